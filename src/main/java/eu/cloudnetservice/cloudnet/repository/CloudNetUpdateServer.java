@@ -2,9 +2,11 @@ package eu.cloudnetservice.cloudnet.repository;
 
 import de.dytanic.cloudnet.common.logging.*;
 import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseArchiver;
+import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseInstallQueue;
 import eu.cloudnetservice.cloudnet.repository.command.ConsoleCommandSender;
 import eu.cloudnetservice.cloudnet.repository.command.DefaultCommandMap;
 import eu.cloudnetservice.cloudnet.repository.command.ICommandMap;
+import eu.cloudnetservice.cloudnet.repository.command.defaults.CommandDatabase;
 import eu.cloudnetservice.cloudnet.repository.command.defaults.CommandUser;
 import eu.cloudnetservice.cloudnet.repository.config.BasicConfiguration;
 import eu.cloudnetservice.cloudnet.repository.console.ConsoleLogHandler;
@@ -14,16 +16,20 @@ import eu.cloudnetservice.cloudnet.repository.console.log.ColouredLogFormatter;
 import eu.cloudnetservice.cloudnet.repository.database.Database;
 import eu.cloudnetservice.cloudnet.repository.database.H2Database;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.StatisticsManager;
+import eu.cloudnetservice.cloudnet.repository.exception.CloudNetVersionInstallException;
 import eu.cloudnetservice.cloudnet.repository.github.GitHubReleaseInfo;
+import eu.cloudnetservice.cloudnet.repository.http.HttpApiClient;
 import eu.cloudnetservice.cloudnet.repository.loader.CloudNetVersionFileLoader;
 import eu.cloudnetservice.cloudnet.repository.loader.JenkinsCloudNetVersionFileLoader;
 import eu.cloudnetservice.cloudnet.repository.module.ModuleRepositoryProvider;
 import eu.cloudnetservice.cloudnet.repository.endpoint.EndPoint;
 import eu.cloudnetservice.cloudnet.repository.endpoint.discord.DiscordEndPoint;
 import eu.cloudnetservice.cloudnet.repository.repository.CloudNetUpdateRepository;
+import eu.cloudnetservice.cloudnet.repository.store.BlobStore;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
 import eu.cloudnetservice.cloudnet.repository.web.WebServer;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
 import org.fusesource.jansi.AnsiConsole;
 
 import java.io.File;
@@ -41,8 +47,12 @@ import java.util.stream.Collectors;
 public class CloudNetUpdateServer {
 
     private ReleaseArchiver releaseArchiver;
+    private ReleaseInstallQueue releaseInstallQueue;
 
     private final ModuleRepositoryProvider moduleRepositoryProvider;
+    private final BlobStore blobStore = new BlobStore(Constants.BLOBS_DIRECTORY);
+    private final FileValidatorCache fileValidatorCache = new FileValidatorCache(this.blobStore);
+    private final HttpApiClient httpClient = new HttpApiClient();
     private final WebServer webServer;
 
     private Collection<EndPoint> endPoints = new ArrayList<>();
@@ -80,8 +90,9 @@ public class CloudNetUpdateServer {
 
         this.registerEndPoint(new DiscordEndPoint());
 
-        CloudNetVersionFileLoader versionFileLoader = new JenkinsCloudNetVersionFileLoader();
-        this.releaseArchiver = new ReleaseArchiver(versionFileLoader);
+        CloudNetVersionFileLoader versionFileLoader = new JenkinsCloudNetVersionFileLoader(this.httpClient);
+        this.releaseArchiver = new ReleaseArchiver(versionFileLoader, this.fileValidatorCache, this.httpClient, this.database, this.blobStore);
+        this.releaseInstallQueue = new ReleaseInstallQueue(this.database, this.executorService, this::installRelease);
 
         this.webServer = new WebServer(this);
 
@@ -95,6 +106,7 @@ public class CloudNetUpdateServer {
     private void initCommands() {
         this.commandMap = new DefaultCommandMap();
         this.commandMap.registerCommand(new CommandUser(this));
+        this.commandMap.registerCommand(new CommandDatabase(this));
         // todo more commands (help, stop, reload)
 
         this.console.addCommandHandler(UUID.randomUUID(), input -> {
@@ -144,6 +156,26 @@ public class CloudNetUpdateServer {
         return this.configuration;
     }
 
+    public FileValidatorCache getFileValidatorCache() {
+        return this.fileValidatorCache;
+    }
+
+    public BlobStore getBlobStore() {
+        return this.blobStore;
+    }
+
+    public HttpApiClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    public WebServer getWebServer() {
+        return this.webServer;
+    }
+
+    public ReleaseInstallQueue getReleaseInstallQueue() {
+        return this.releaseInstallQueue;
+    }
+
     public ModuleRepositoryProvider getModuleRepositoryProvider() {
         return this.moduleRepositoryProvider;
     }
@@ -182,19 +214,55 @@ public class CloudNetUpdateServer {
             }
         }
 
+        // before the web server is started, nothing can be requested while the directories are moved
+        int linkedDirectories = this.releaseArchiver.linkArchivedDirectories(this.getParentVersions());
+        if (linkedDirectories > 0) {
+            System.out.println("Linked " + linkedDirectories + " directories of older release installs");
+        }
+        int removedDirectories = this.releaseArchiver.removeLeftoverDirectories(this.getParentVersions());
+        if (removedDirectories > 0) {
+            System.out.println("Removed " + removedDirectories + " directories of previous release installs");
+        }
+
+        this.initBlobStore();
+
         this.webServer.init();
 
         this.statisticsManager.init(this.executorService, this.webServer.getJavalin());
 
         this.repositories = new ArrayList<>();
         for (CloudNetParentVersion parentVersion : this.getParentVersions()) {
-            CloudNetUpdateRepository repository = new CloudNetUpdateRepository(parentVersion.getName(), this.database, this.releaseArchiver);
+            CloudNetUpdateRepository repository = new CloudNetUpdateRepository(parentVersion.getName(), this.database, this.releaseArchiver, this.webServer.getDownloadSender());
             repository.init(parentVersion.getUpdateRepositoryPath(), this.webServer.getJavalin());
             repository.installVersion(this.getCurrentLatestVersion(parentVersion.getName()));
             this.repositories.add(repository);
 
             this.statisticsManager.getStatistics().registerVersion(parentVersion.getName());
         }
+
+        this.releaseInstallQueue.init();
+    }
+
+    // files which have been archived before the blob store existed are linked in the background, the blob store is locked
+    // while importing, so releases and modules which are installed meanwhile wait until all existing files have been linked
+    private void initBlobStore() throws IOException {
+        this.blobStore.init();
+
+        this.executorService.execute(() -> {
+            try {
+                int imported = 0;
+                for (Path directory : new Path[]{Constants.RELEASES_DIRECTORY, Constants.VERSIONS_DIRECTORY, Constants.DOCS_DIRECTORY, Constants.MODULES_DIRECTORY}) {
+                    imported += this.blobStore.importDirectory(directory);
+                }
+                int deleted = this.blobStore.collectGarbage();
+
+                if (imported > 0 || deleted > 0) {
+                    System.out.println("Linked " + imported + " archived files to the blob store and deleted " + deleted + " unreferenced blobs");
+                }
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        });
     }
 
     public void stop() {
@@ -218,35 +286,38 @@ public class CloudNetUpdateServer {
         }
     }
 
-    public void installLatestRelease(CloudNetParentVersion parentVersion) {
-        try {
-            var version = this.releaseArchiver.installLatestRelease(parentVersion);
-            this.invokeReleasePublished(parentVersion, version);
-            this.database.registerVersion(version);
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
-    }
+    // releases are only installed by the release install queue, which runs one job per parent version at a time;
+    // every step is reported as a stage of the install job
+    private void installRelease(String parentVersionName, GitHubReleaseInfo release, ReleaseInstallQueue.StageListener stageListener) throws Exception {
+        CloudNetParentVersion parentVersion = this.getParentVersion(parentVersionName)
+                .orElseThrow(() -> new CloudNetVersionInstallException("Parent version " + parentVersionName + " not found"));
 
-    public void installLatestRelease(CloudNetParentVersion parentVersion, GitHubReleaseInfo release) {
-        try {
-            var version = this.releaseArchiver.installLatestRelease(parentVersion, release);
-            this.invokeReleasePublished(parentVersion, version);
-            this.database.registerVersion(version);
-        } catch (IOException exception) {
-            exception.printStackTrace();
-        }
+        long start = System.currentTimeMillis();
+        var version = this.releaseArchiver.installLatestRelease(parentVersion, release);
+        stageListener.stageFinished("archive", System.currentTimeMillis() - start);
+
+        this.publishRelease(parentVersion, version, stageListener);
     }
 
-    private void invokeReleasePublished(CloudNetParentVersion parentVersion, CloudNetVersion version) {
-        for (EndPoint endPoint : this.endPoints) {
-            endPoint.publishRelease(parentVersion, version);
-        }
+    // the files have just been published by the archiver, the version is registered before it is announced anywhere
+    private void publishRelease(CloudNetParentVersion parentVersion, CloudNetVersion version, ReleaseInstallQueue.StageListener stageListener) {
+        long start = System.currentTimeMillis();
+        this.database.registerVersion(version);
+        stageListener.stageFinished("database", System.currentTimeMillis() - start);
+
+        start = System.currentTimeMillis();
         for (CloudNetUpdateRepository repository : this.repositories) {
             if (repository.getTargetParentVersion().equals(parentVersion.getName())) {
                 repository.installVersion(version);
             }
         }
+        stageListener.stageFinished("repositories", System.currentTimeMillis() - start);
+
+        start = System.currentTimeMillis();
+        for (EndPoint endPoint : this.endPoints) {
+            endPoint.publishRelease(parentVersion, version);
+        }
+        stageListener.stageFinished("endPoints", System.currentTimeMillis() - start);
     }
 
     public static void main(String[] args) throws Exception {
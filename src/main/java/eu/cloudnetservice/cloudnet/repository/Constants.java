@@ -13,6 +13,10 @@ public class Constants {
     public static final Path DOCS_DIRECTORY = Paths.get("archive", "docs").normalize();
     public static final Path MODULES_DIRECTORY = Paths.get("archive", "modules").normalize();
     public static final Path VERSIONS_DIRECTORY = Paths.get("archive", "versions").normalize();
+    // the real directories of the installed versions and docs, the served directories only contain links to them
+    public static final Path RELEASES_DIRECTORY = Paths.get("archive", "releases").normalize();
+    // every distinct file of the archive stored once by its hash, the archived files are hard links to these blobs
+    public static final Path BLOBS_DIRECTORY = Paths.get("archive", "blobs").normalize();
     public static final Path WORKING_DIRECTORY = Paths.get(".").normalize();
 
 }
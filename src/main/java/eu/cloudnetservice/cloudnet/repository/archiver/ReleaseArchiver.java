@@ -1,49 +1,88 @@
 package eu.cloudnetservice.cloudnet.repository.archiver;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import de.dytanic.cloudnet.common.io.FileUtils;
 import eu.cloudnetservice.cloudnet.repository.Constants;
+import eu.cloudnetservice.cloudnet.repository.archiver.delta.DeltaEncoder;
+import eu.cloudnetservice.cloudnet.repository.archiver.delta.DeltaPatcher;
+import eu.cloudnetservice.cloudnet.repository.database.Database;
 import eu.cloudnetservice.cloudnet.repository.exception.CloudNetVersionInstallException;
 import eu.cloudnetservice.cloudnet.repository.github.GitHubCommitInfo;
 import eu.cloudnetservice.cloudnet.repository.github.GitHubReleaseInfo;
+import eu.cloudnetservice.cloudnet.repository.http.HttpApiClient;
 import eu.cloudnetservice.cloudnet.repository.loader.CloudNetVersionFileLoader;
 import eu.cloudnetservice.cloudnet.repository.loader.CloudNetVersionLoadException;
+import eu.cloudnetservice.cloudnet.repository.store.BlobStore;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+import eu.cloudnetservice.cloudnet.repository.web.download.ZipArchive;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Optional;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.*;
 
 public class ReleaseArchiver {
 
-    private CloudNetVersionFileLoader versionFileLoader;
+    public static final String DOCS_ARCHIVE_NAME = "javadoc.zip";
+
+    private static final int PARALLELISM = Math.max(1, Integer.getInteger("cloudnet.repository.archiver.parallelism", 4));
+    private static final long REMOVAL_DELAY = Long.getLong("cloudnet.repository.archiver.removalDelay", 600);
+    private static final int DELTA_VERSIONS = Integer.getInteger("cloudnet.repository.delta.versions", 3);
+    private static final String DELTAS_DIRECTORY = "deltas";
 
-    public ReleaseArchiver(CloudNetVersionFileLoader versionFileLoader) {
+    private CloudNetVersionFileLoader versionFileLoader;
+    private FileValidatorCache validatorCache;
+    private HttpApiClient httpClient;
+    private Database database;
+    private BlobStore blobStore;
+    private final ScheduledExecutorService removalExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Release directory removal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReleaseArchiver(CloudNetVersionFileLoader versionFileLoader, FileValidatorCache validatorCache, HttpApiClient httpClient, Database database, BlobStore blobStore) {
         this.versionFileLoader = versionFileLoader;
+        this.validatorCache = validatorCache;
+        this.httpClient = httpClient;
+        this.database = database;
+        this.blobStore = blobStore;
     }
 
-    public InputStream openFileStream(CloudNetVersion version, CloudNetVersionFile file) throws IOException {
+    public Path getFilePath(CloudNetVersion version, CloudNetVersionFile file) {
         if (file.getFileType() == CloudNetVersionFile.FileType.JAVA_DOCS) {
             return null;
         }
-        return Files.newInputStream(this.resolveDefaultDirectory(version.getParentVersionName(), version.getName()).resolve(file.getName()));
+        return this.resolveDefaultDirectory(version.getParentVersionName(), version.getName()).resolve(file.getName());
+    }
+
+    // the patch from the given older version to the file of the version, it doesn't exist if no delta has been created
+    public Path getDeltaPath(CloudNetVersion version, String sourceVersionName, CloudNetVersionFile file) {
+        return this.getDeltaDirectory(version).resolve(sourceVersionName).resolve(file.getName());
+    }
+
+    public Path getDeltaDirectory(CloudNetVersion version) {
+        return this.resolveDefaultDirectory(version.getParentVersionName(), version.getName()).resolve(DELTAS_DIRECTORY);
     }
 
     public CloudNetVersion installLatestRelease(CloudNetParentVersion parentVersion) throws IOException, CloudNetVersionLoadException, CloudNetVersionInstallException {
@@ -55,122 +94,268 @@ public class ReleaseArchiver {
     }
 
     public CloudNetVersion installLatestRelease(CloudNetParentVersion parentVersion, GitHubReleaseInfo gitHubRelease) throws IOException, CloudNetVersionLoadException, CloudNetVersionInstallException {
-        var versionFiles = this.versionFileLoader.loadLastVersionFiles(parentVersion, parentVersion.getDefaultVersionFileMappings());
-
         var cloudNetVersion = gitHubRelease.getTagName(); //todo load Raw-Version out of cloudnet.jar instead of the tag
 
-        System.out.println("Extracting docs for CloudNet " + cloudNetVersion + "...");
-        this.generateDocs(parentVersion.getName(), cloudNetVersion, versionFiles);
-        System.out.println("Successfully extracted the docs for CloudNet!");
-        System.out.println("Archiving all CloudNet files for the AutoUpdater...");
-        this.archiveFiles(parentVersion.getName(), cloudNetVersion, versionFiles);
-        System.out.println("Successfully archived all CloudNet files!");
+        StagedDirectory versionStage = new StagedDirectory(
+                this.resolveDefaultDirectory(parentVersion.getName(), cloudNetVersion),
+                Constants.RELEASES_DIRECTORY.resolve("versions").resolve(parentVersion.getName())
+        );
+        StagedDirectory docsStage = new StagedDirectory(
+                Constants.DOCS_DIRECTORY.resolve(parentVersion.getName()).resolve(cloudNetVersion),
+                Constants.RELEASES_DIRECTORY.resolve("docs").resolve(parentVersion.getName())
+        );
+
+        try {
+            // files which are provided by the loader as an archive are streamed straight into the version stage
+            CloudNetVersionFile[] versionFiles = this.versionFileLoader.loadLastVersionFiles(parentVersion, parentVersion.getDefaultVersionFileMappings(), versionStage);
+
+            System.out.println("Archiving all CloudNet files and the docs for CloudNet " + cloudNetVersion + "...");
+            this.fetchFiles(versionStage, docsStage, parentVersion.getName(), cloudNetVersion, versionFiles);
+
+            // everything that can fail is done before the files are published, the version is registered right afterwards
+            var releaseCommit = this.loadCommit(parentVersion.getGitHubApiURL(), gitHubRelease.getTagName());
+            var version = new CloudNetVersion(parentVersion.getName(), cloudNetVersion, releaseCommit, gitHubRelease, new Date(), versionFiles, parentVersion.getDefaultVersionFileMappings(), new HashMap<>());
+
+            this.publish(versionStage, docsStage);
+            System.out.println("Successfully archived all CloudNet files and the docs!");
+            return version;
+        } finally {
+            versionStage.discard();
+            docsStage.discard();
+        }
+    }
 
-        var releaseCommitUrl = this.findCommitUrl(parentVersion.getGitHubApiURL(), gitHubRelease.getTagName());
-        var releaseCommit = this.loadCommit(releaseCommitUrl);
+    private GitHubReleaseInfo loadLatestRelease(String gitHubApiBaseUrl) throws IOException {
+        return this.httpClient.get(gitHubApiBaseUrl + "releases/latest", GitHubReleaseInfo.class);
+    }
 
-        return new CloudNetVersion(parentVersion.getName(), cloudNetVersion, releaseCommit, gitHubRelease, new Date(), versionFiles, parentVersion.getDefaultVersionFileMappings(), new HashMap<>());
+    // the commit is looked up directly by the tag instead of searching through the list of all tags
+    private GitHubCommitInfo loadCommit(String gitHubApiBaseUrl, String tag) throws IOException {
+        String ref = URLEncoder.encode(tag, StandardCharsets.UTF_8).replace("+", "%20");
+        JsonElement commit = this.httpClient.getJson(gitHubApiBaseUrl + "commits/" + ref).getAsJsonObject().get("commit");
+        return commit != null ? JsonDocument.GSON.fromJson(commit, GitHubCommitInfo.class) : null;
     }
 
-    private GitHubCommitInfo loadCommit(String url) throws IOException {
-        try (InputStream inputStream = new URL(url).openStream()) {
-            return JsonDocument.newDocument().read(inputStream).get("commit", GitHubCommitInfo.class);
-        }
+    // every file is downloaded by its own task, the docs zip is fetched alongside the other files;
+    // nothing is visible to the web server until the stages are published
+    private void fetchFiles(StagedDirectory versionStage, StagedDirectory docsStage, String parentVersionName, String cloudNetVersion,
+                            CloudNetVersionFile[] versionFiles) throws IOException {
+        this.downloadFiles(versionStage, docsStage, cloudNetVersion, versionFiles);
+        this.generateDeltas(versionStage, parentVersionName, cloudNetVersion, versionFiles);
+
+        versionStage.linkBlobs(this.blobStore);
+        docsStage.linkBlobs(this.blobStore);
     }
 
-    private GitHubReleaseInfo loadLatestRelease(String gitHubApiBaseUrl) throws IOException {
-        try (InputStream inputStream = new URL(gitHubApiBaseUrl + "releases/latest").openStream()) {
-            return JsonDocument.newDocument()
-                    .read(inputStream)
-                    .toInstanceOf(GitHubReleaseInfo.class);
+    private void publish(StagedDirectory versionStage, StagedDirectory docsStage) throws IOException {
+        if (!docsStage.isEmpty()) {
+            this.scheduleRemoval(docsStage.publish(this.validatorCache));
         }
+        this.scheduleRemoval(versionStage.publish(this.validatorCache));
     }
 
-    private String findCommitUrl(String gitHubApiBaseUrl, String tag) throws IOException {
-        try (InputStream inputStream = new URL(gitHubApiBaseUrl + "tags").openStream();
-             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
-            JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
-            for (JsonElement jsonElement : array) {
-                if (jsonElement.getAsJsonObject().get("name").getAsString().equals(tag)) {
-                    return jsonElement.getAsJsonObject().getAsJsonObject("commit").get("url").getAsString();
-                }
+    private void downloadFiles(StagedDirectory versionStage, StagedDirectory docsStage, String cloudNetVersion, CloudNetVersionFile[] versionFiles) throws IOException {
+        Collection<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            this.timed("docs", () -> this.generateDocs(docsStage, versionFiles));
+            return null;
+        });
+        for (CloudNetVersionFile versionFile : versionFiles) {
+            if (versionFile.getFileType().equals(CloudNetVersionFile.FileType.JAVA_DOCS) || versionStage.contains(versionFile.getName())) {
+                continue;
             }
+
+            tasks.add(() -> {
+                this.timed(versionFile.getName(), () -> this.archiveFile(versionStage, versionFile));
+                return null;
+            });
         }
 
-        return null;
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(PARALLELISM, tasks.size()));
+        try {
+            Collection<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            throw new IOException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while archiving CloudNet " + cloudNetVersion);
+        } finally {
+            // cancels the remaining downloads if one of them failed
+            executorService.shutdownNow();
+        }
     }
 
-    private void archiveFiles(String parentVersionName, String cloudNetVersion, CloudNetVersionFile[] versionFiles) throws IOException {
-        var directory = this.resolveDefaultDirectory(parentVersionName, cloudNetVersion);
-
-        if (Files.exists(directory)) {
-            FileUtils.delete(directory.toFile());
-        }
+    private long archiveFile(StagedDirectory stage, CloudNetVersionFile versionFile) throws IOException {
+        long size = this.httpClient.download(versionFile.getDownloadURL().toString(), (inputStream, expectedSize) -> {
+            long written = stage.write(versionFile.getName(), inputStream);
+            if (expectedSize != -1 && written != expectedSize) {
+                throw new IOException("Downloaded " + written + " of " + expectedSize + " bytes of " + versionFile.getName());
+            }
+            return written;
+        });
 
-        Files.createDirectories(directory);
+        versionFile.setSize(size);
+        versionFile.setSha256(stage.getSha256(versionFile.getName()));
+        return size;
+    }
 
+    // patches from the last archived versions to this one, a file only gets a patch if it changed and the patch is smaller than the file;
+    // every patch is applied once before it is staged, so that a broken patch is never published
+    private void generateDeltas(StagedDirectory stage, String parentVersionName, String cloudNetVersion, CloudNetVersionFile[] versionFiles) throws IOException {
+        CloudNetVersion[] sourceVersions = Arrays.stream(this.database.getAllVersions(parentVersionName))
+                .filter(version -> !version.getName().equals(cloudNetVersion))
+                .sorted(Comparator.comparing(CloudNetVersion::getReleaseDate).reversed())
+                .limit(DELTA_VERSIONS)
+                .toArray(CloudNetVersion[]::new);
+
+        DeltaEncoder encoder = new DeltaEncoder();
+        DeltaPatcher patcher = new DeltaPatcher();
         for (CloudNetVersionFile versionFile : versionFiles) {
-            if (versionFile.getFileType().equals(CloudNetVersionFile.FileType.JAVA_DOCS)) {
+            if (!stage.contains(versionFile.getName())) {
                 continue;
             }
+            ByteBuffer target = this.map(stage.getFile(versionFile.getName()));
+
+            for (CloudNetVersion sourceVersion : sourceVersions) {
+                Optional<CloudNetVersionFile> sourceFile = Arrays.stream(sourceVersion.getFiles())
+                        .filter(file -> file.getName().equals(versionFile.getName()))
+                        .filter(file -> file.getSha256() == null || !file.getSha256().equals(versionFile.getSha256()))
+                        .findFirst();
+                Path sourcePath = sourceFile.map(file -> this.getFilePath(sourceVersion, file)).orElse(null);
+                if (sourcePath == null || !Files.exists(sourcePath)) {
+                    continue;
+                }
 
-            var path = directory.resolve(versionFile.getName());
+                long start = System.nanoTime();
+                ByteBuffer source = this.map(sourcePath);
+                ByteArrayOutputStream patchStream = new ByteArrayOutputStream();
+                encoder.encode(source, target, patchStream);
+                if (patchStream.size() >= target.limit()) {
+                    continue;
+                }
+                byte[] patch = patchStream.toByteArray();
+                patcher.apply(source, new ByteArrayInputStream(patch), OutputStream.nullOutputStream());
 
-            try (InputStream inputStream = versionFile.getDownloadURL().openStream()) {
-                Files.copy(inputStream, path);
+                stage.write(DELTAS_DIRECTORY + "/" + sourceVersion.getName() + "/" + versionFile.getName(), new ByteArrayInputStream(patch));
+                System.out.println("Created delta of " + versionFile.getName() + " from " + sourceVersion.getName() + " (" + patch.length + " of " + target.limit()
+                        + " bytes) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
             }
         }
+    }
+
+    public int linkArchivedDirectories(Collection<CloudNetParentVersion> parentVersions) throws IOException {
+        int linked = 0;
+        for (CloudNetParentVersion parentVersion : parentVersions) {
+            linked += StagedDirectory.linkDirectories(
+                    Constants.RELEASES_DIRECTORY.resolve("versions").resolve(parentVersion.getName()),
+                    Constants.VERSIONS_DIRECTORY.resolve(parentVersion.getName())
+            );
+            linked += StagedDirectory.linkDirectories(
+                    Constants.RELEASES_DIRECTORY.resolve("docs").resolve(parentVersion.getName()),
+                    Constants.DOCS_DIRECTORY.resolve(parentVersion.getName())
+            );
+        }
+        return linked;
+    }
 
+    // the files are mapped instead of being read into the heap, only the patch which is smaller than the file is kept in memory
+    private ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
     }
 
-    private void generateDocs(String parentVersionName, String cloudNetVersion, CloudNetVersionFile[] versionFiles) throws IOException {
-        var docsDirectory = Constants.DOCS_DIRECTORY.resolve(parentVersionName).resolve(cloudNetVersion);
+    // the removal of old directories is only scheduled in memory, directories of installs before a restart are removed on startup
+    public int removeLeftoverDirectories(Collection<CloudNetParentVersion> parentVersions) throws IOException {
+        int removed = 0;
+        for (CloudNetParentVersion parentVersion : parentVersions) {
+            removed += StagedDirectory.removeUnpublished(
+                    Constants.RELEASES_DIRECTORY.resolve("versions").resolve(parentVersion.getName()),
+                    Constants.VERSIONS_DIRECTORY.resolve(parentVersion.getName())
+            );
+            removed += StagedDirectory.removeUnpublished(
+                    Constants.RELEASES_DIRECTORY.resolve("docs").resolve(parentVersion.getName()),
+                    Constants.DOCS_DIRECTORY.resolve(parentVersion.getName())
+            );
+        }
+        return removed;
+    }
 
-        if (Files.exists(docsDirectory)) {
-            FileUtils.delete(docsDirectory.toFile());
+    // old directories are only removed after a delay, downloads which are still running may read from them
+    private void scheduleRemoval(Path oldDirectory) {
+        if (oldDirectory != null) {
+            this.removalExecutor.schedule(() -> {
+                FileUtils.delete(oldDirectory.toFile());
+                this.collectGarbage();
+            }, REMOVAL_DELAY, TimeUnit.SECONDS);
         }
+    }
+
+    // blobs which were only used by the removed directory are deleted
+    private void collectGarbage() {
+        try {
+            int deleted = this.blobStore.collectGarbage();
+            if (deleted > 0) {
+                System.out.println("Deleted " + deleted + " unreferenced blobs");
+            }
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    private void timed(String name, IOTask task) throws IOException {
+        long start = System.nanoTime();
+        long bytes = task.run();
+        System.out.println("Fetched " + name + " (" + bytes + " bytes) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
 
+    private long generateDocs(StagedDirectory stage, CloudNetVersionFile[] versionFiles) throws IOException {
         Optional<CloudNetVersionFile> optionalVersionFile = Arrays.stream(versionFiles)
                 .filter(versionFile -> versionFile.getFileType().equals(CloudNetVersionFile.FileType.JAVA_DOCS))
                 .findFirst();
 
         if (optionalVersionFile.isEmpty()) {
-            return;
+            return 0;
         }
 
         var javaDocsZipFile = optionalVersionFile.get();
 
-        Files.createDirectories(docsDirectory);
-
-        URLConnection connection = javaDocsZipFile.getDownloadURL().openConnection();
-
-        try (var inputStream = connection.getInputStream();
-             var zipInputStream = new ZipInputStream(inputStream, StandardCharsets.UTF_8)) {
-
-            ZipEntry entry;
-            while ((entry = zipInputStream.getNextEntry()) != null) {
-                if (entry.isDirectory()) {
-                    Files.createDirectories(docsDirectory.resolve(entry.getName()));
-
-                    zipInputStream.closeEntry();
-                    continue;
-                }
-
-                var path = docsDirectory.resolve(entry.getName());
-                var parent = path.getParent();
-                if (parent != null) {
-                    Files.createDirectories(parent);
-                }
-
-                Files.copy(zipInputStream, path);
-
-                zipInputStream.closeEntry();
+        // the docs are served out of the zip file instead of being extracted
+        long size = this.httpClient.download(javaDocsZipFile.getDownloadURL().toString(), (inputStream, expectedSize) -> {
+            long written = stage.write(DOCS_ARCHIVE_NAME, inputStream);
+            if (expectedSize != -1 && written != expectedSize) {
+                throw new IOException("Downloaded " + written + " of " + expectedSize + " bytes of " + javaDocsZipFile.getName());
             }
+            return written;
+        });
 
+        // a file which is no valid zip file is never published
+        try (ZipArchive archive = ZipArchive.open(stage.getFile(DOCS_ARCHIVE_NAME))) {
+            if (archive.size() == 0) {
+                throw new IOException("The docs of " + javaDocsZipFile.getName() + " are empty");
+            }
         }
+        return size;
     }
 
     private Path resolveDefaultDirectory(String parentVersionName, String versionName) {
         return Constants.VERSIONS_DIRECTORY.resolve(parentVersionName).resolve(versionName);
     }
+
+    @FunctionalInterface
+    private interface IOTask {
+
+        // returns the number of bytes that have been written
+        long run() throws IOException;
+
+    }
 }
@@ -0,0 +1,107 @@
+package eu.cloudnetservice.cloudnet.repository.archiver;
+
+import eu.cloudnetservice.cloudnet.repository.github.GitHubReleaseInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// jobs are only modified by the ReleaseInstallQueue while holding its lock
+public class ReleaseInstallJob {
+
+    private final UUID uniqueId;
+    private final String parentVersionName;
+    private GitHubReleaseInfo release;
+    private State state = State.QUEUED;
+    private final long creationTime;
+    private long startTime;
+    private long finishTime;
+    // the duration of every stage in milliseconds, in the order in which they were run
+    private Map<String, Long> stageTimes = new LinkedHashMap<>();
+    private String error;
+    private int coalescedEvents;
+
+    public ReleaseInstallJob(UUID uniqueId, String parentVersionName, GitHubReleaseInfo release, long creationTime) {
+        this.uniqueId = uniqueId;
+        this.parentVersionName = parentVersionName;
+        this.release = release;
+        this.creationTime = creationTime;
+    }
+
+    public UUID getUniqueId() {
+        return this.uniqueId;
+    }
+
+    public String getParentVersionName() {
+        return this.parentVersionName;
+    }
+
+    public GitHubReleaseInfo getRelease() {
+        return this.release;
+    }
+
+    public void setRelease(GitHubReleaseInfo release) {
+        this.release = release;
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public long getCreationTime() {
+        return this.creationTime;
+    }
+
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getFinishTime() {
+        return this.finishTime;
+    }
+
+    public void setFinishTime(long finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public Map<String, Long> getStageTimes() {
+        return this.stageTimes;
+    }
+
+    public void setStageTimes(Map<String, Long> stageTimes) {
+        this.stageTimes = stageTimes;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getCoalescedEvents() {
+        return this.coalescedEvents;
+    }
+
+    public void setCoalescedEvents(int coalescedEvents) {
+        this.coalescedEvents = coalescedEvents;
+    }
+
+    public boolean isFinished() {
+        return this.state == State.SUCCEEDED || this.state == State.FAILED;
+    }
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+}
@@ -0,0 +1,158 @@
+package eu.cloudnetservice.cloudnet.repository.archiver;
+
+import de.dytanic.cloudnet.common.document.gson.JsonDocument;
+import eu.cloudnetservice.cloudnet.repository.database.Database;
+import eu.cloudnetservice.cloudnet.repository.github.GitHubReleaseInfo;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+// installs releases in the background, jobs of the same parent version are run one after another
+// and events for a release that is already queued or installing are merged into the existing job
+public class ReleaseInstallQueue {
+
+    private static final int MAX_FINISHED_JOBS = 50;
+
+    private final Database database;
+    private final Executor executor;
+    private final ReleaseInstaller installer;
+
+    private final Map<UUID, ReleaseInstallJob> jobs = new LinkedHashMap<>();
+    private final Map<String, Deque<ReleaseInstallJob>> pendingJobs = new HashMap<>();
+    private final Set<String> runningParentVersions = new HashSet<>();
+
+    public ReleaseInstallQueue(Database database, Executor executor, ReleaseInstaller installer) {
+        this.database = database;
+        this.executor = executor;
+        this.installer = installer;
+    }
+
+    // jobs that were still queued or running when the server stopped are started again
+    public synchronized void init() {
+        for (ReleaseInstallJob job : this.database.getInstallJobs()) {
+            this.jobs.put(job.getUniqueId(), job);
+            if (!job.isFinished()) {
+                job.setState(ReleaseInstallJob.State.QUEUED);
+                this.enqueue(job);
+            }
+        }
+    }
+
+    public synchronized ReleaseInstallJob submit(String parentVersionName, GitHubReleaseInfo release) {
+        for (ReleaseInstallJob job : this.jobs.values()) {
+            if (!job.isFinished() && job.getParentVersionName().equals(parentVersionName) && job.getRelease().getTagName().equals(release.getTagName())) {
+                if (job.getState() == ReleaseInstallJob.State.QUEUED) {
+                    job.setRelease(release);
+                }
+                job.setCoalescedEvents(job.getCoalescedEvents() + 1);
+                this.database.updateInstallJob(job);
+                return this.copy(job);
+            }
+        }
+
+        ReleaseInstallJob job = new ReleaseInstallJob(UUID.randomUUID(), parentVersionName, release, System.currentTimeMillis());
+        this.jobs.put(job.getUniqueId(), job);
+        this.database.updateInstallJob(job);
+        this.enqueue(job);
+        this.removeFinishedJobs();
+        return this.copy(job);
+    }
+
+    public synchronized ReleaseInstallJob getJob(UUID uniqueId) {
+        ReleaseInstallJob job = this.jobs.get(uniqueId);
+        return job != null ? this.copy(job) : null;
+    }
+
+    public synchronized List<ReleaseInstallJob> getJobs() {
+        List<ReleaseInstallJob> jobs = new ArrayList<>(this.jobs.size());
+        for (ReleaseInstallJob job : this.jobs.values()) {
+            jobs.add(this.copy(job));
+        }
+        return jobs;
+    }
+
+    private void enqueue(ReleaseInstallJob job) {
+        this.pendingJobs.computeIfAbsent(job.getParentVersionName(), key -> new ArrayDeque<>()).add(job);
+        this.scheduleNext(job.getParentVersionName());
+    }
+
+    private void scheduleNext(String parentVersionName) {
+        if (this.runningParentVersions.contains(parentVersionName)) {
+            return;
+        }
+        Deque<ReleaseInstallJob> queue = this.pendingJobs.get(parentVersionName);
+        ReleaseInstallJob job = queue != null ? queue.poll() : null;
+        if (job == null) {
+            return;
+        }
+
+        this.runningParentVersions.add(parentVersionName);
+        job.setState(ReleaseInstallJob.State.RUNNING);
+        job.setStartTime(System.currentTimeMillis());
+        this.database.updateInstallJob(job);
+
+        this.executor.execute(() -> this.run(job));
+    }
+
+    private void run(ReleaseInstallJob job) {
+        GitHubReleaseInfo release;
+        synchronized (this) {
+            release = job.getRelease();
+        }
+
+        String error = null;
+        try {
+            this.installer.install(job.getParentVersionName(), release, (stage, millis) -> {
+                synchronized (this) {
+                    job.getStageTimes().put(stage, millis);
+                }
+            });
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+            error = throwable.getClass().getSimpleName() + ": " + throwable.getMessage();
+        }
+
+        synchronized (this) {
+            job.setState(error == null ? ReleaseInstallJob.State.SUCCEEDED : ReleaseInstallJob.State.FAILED);
+            job.setError(error);
+            job.setFinishTime(System.currentTimeMillis());
+            this.database.updateInstallJob(job);
+
+            this.runningParentVersions.remove(job.getParentVersionName());
+            this.scheduleNext(job.getParentVersionName());
+        }
+    }
+
+    private void removeFinishedJobs() {
+        int finishedJobs = (int) this.jobs.values().stream().filter(ReleaseInstallJob::isFinished).count();
+        Iterator<ReleaseInstallJob> iterator = this.jobs.values().iterator();
+        while (finishedJobs > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            ReleaseInstallJob job = iterator.next();
+            if (job.isFinished()) {
+                iterator.remove();
+                this.database.deleteInstallJob(job.getUniqueId());
+                finishedJobs--;
+            }
+        }
+    }
+
+    // the web threads only get copies, the jobs themselves are modified while installing
+    private ReleaseInstallJob copy(ReleaseInstallJob job) {
+        return JsonDocument.GSON.fromJson(JsonDocument.GSON.toJson(job), ReleaseInstallJob.class);
+    }
+
+    @FunctionalInterface
+    public interface ReleaseInstaller {
+
+        void install(String parentVersionName, GitHubReleaseInfo release, StageListener stageListener) throws Exception;
+
+    }
+
+    @FunctionalInterface
+    public interface StageListener {
+
+        void stageFinished(String stage, long millis);
+
+    }
+
+}
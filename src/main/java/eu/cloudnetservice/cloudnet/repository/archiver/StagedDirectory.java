@@ -0,0 +1,194 @@
+package eu.cloudnetservice.cloudnet.repository.archiver;
+
+import de.dytanic.cloudnet.common.io.FileUtils;
+import eu.cloudnetservice.cloudnet.repository.store.BlobStore;
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// files are written into a directory outside of the served tree and only become visible once all of them
+// have been written, the target is then a symbolic link which is replaced atomically by the link to the new directory
+public class StagedDirectory {
+
+    private final Path target;
+    private final Path directory;
+    private final Map<Path, byte[]> hashes = new ConcurrentHashMap<>();
+    private boolean published;
+
+    public StagedDirectory(Path target, Path storeDirectory) throws IOException {
+        this.target = target;
+        this.directory = storeDirectory.resolve(target.getFileName() + "-" + UUID.randomUUID()).toAbsolutePath().normalize();
+        Files.createDirectories(this.directory);
+    }
+
+    public Path getTarget() {
+        return this.target;
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    public boolean isEmpty() {
+        return this.hashes.isEmpty();
+    }
+
+    public boolean contains(String name) throws IOException {
+        return this.hashes.containsKey(this.directory.relativize(this.resolve(name)));
+    }
+
+    public Path getFile(String name) throws IOException {
+        return this.resolve(name);
+    }
+
+    public void createDirectories(String name) throws IOException {
+        Files.createDirectories(this.resolve(name));
+    }
+
+    // writes the stream into the staged file and returns the number of bytes that have been written
+    public long write(String name, InputStream inputStream) throws IOException {
+        Path path = this.resolve(name);
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        MessageDigest digest = FileValidatorCache.newDigest();
+        long size = Files.copy(new DigestInputStream(inputStream, digest), path);
+        this.hashes.put(this.directory.relativize(path), digest.digest());
+        return size;
+    }
+
+    public String getSha256(String name) throws IOException {
+        byte[] hash = this.hashes.get(this.directory.relativize(this.resolve(name)));
+        return hash != null ? StringUtils.toHex(hash) : null;
+    }
+
+    // replaces every staged file by a link to the blob with the same content, files which did not change since older versions
+    // therefore don't take any additional space
+    public void linkBlobs(BlobStore blobStore) throws IOException {
+        for (Map.Entry<Path, byte[]> entry : this.hashes.entrySet()) {
+            Path path = this.directory.resolve(entry.getKey());
+            blobStore.place(path, StringUtils.toHex(entry.getValue()), path);
+        }
+    }
+
+    // returns the directory that has been replaced, it is still in use by running downloads and has to be removed later
+    public Path publish(FileValidatorCache validatorCache) throws IOException {
+        Files.createDirectories(this.target.toAbsolutePath().getParent());
+
+        Path oldDirectory = Files.isSymbolicLink(this.target) ? Files.readSymbolicLink(this.target) : null;
+        Path link = this.target.resolveSibling("." + this.target.getFileName() + "-" + UUID.randomUUID());
+        try {
+            Files.createSymbolicLink(link, this.directory);
+            Files.move(link, this.target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (UnsupportedOperationException | IOException exception) {
+            // no symbolic links on this file system, the staged directory is moved to the target instead;
+            // directories can't be replaced atomically, so the old one is moved away right before
+            Files.deleteIfExists(link);
+            if (Files.isSymbolicLink(this.target)) {
+                Files.delete(this.target);
+            } else if (Files.exists(this.target)) {
+                oldDirectory = this.directory.resolveSibling(this.directory.getFileName() + "-replaced");
+                Files.move(this.target, oldDirectory, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(this.directory, this.target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        this.published = true;
+
+        validatorCache.invalidateDirectory(this.target);
+        for (Map.Entry<Path, byte[]> entry : this.hashes.entrySet()) {
+            validatorCache.register(this.target.resolve(entry.getKey().toString()), entry.getValue());
+        }
+        return oldDirectory;
+    }
+
+    // directories of installs before releases were staged can't be replaced by a link atomically, they are moved into the
+    // store and linked once on startup before any request is served, later installs then only swap links
+    public static int linkDirectories(Path storeDirectory, Path targetDirectory) throws IOException {
+        if (!Files.isDirectory(targetDirectory)) {
+            return 0;
+        }
+
+        Collection<Path> targets;
+        try (Stream<Path> stream = Files.list(targetDirectory)) {
+            targets = stream.filter(target -> !Files.isSymbolicLink(target) && Files.isDirectory(target)).collect(Collectors.toList());
+        }
+
+        int linked = 0;
+        for (Path target : targets) {
+            Files.createDirectories(storeDirectory);
+            Path directory = storeDirectory.resolve(target.getFileName() + "-" + UUID.randomUUID()).toAbsolutePath().normalize();
+            Files.move(target, directory, StandardCopyOption.ATOMIC_MOVE);
+            try {
+                Files.createSymbolicLink(target, directory);
+            } catch (UnsupportedOperationException | IOException exception) {
+                // no symbolic links on this file system, the directories stay where they are
+                Files.move(directory, target, StandardCopyOption.ATOMIC_MOVE);
+                break;
+            }
+            linked++;
+        }
+        return linked;
+    }
+
+    // deletes every directory of the store which is not the target of a link in the target directory, these are stages and
+    // replaced directories which have been left behind because the server has been stopped before they were removed
+    public static int removeUnpublished(Path storeDirectory, Path targetDirectory) throws IOException {
+        if (!Files.isDirectory(storeDirectory)) {
+            return 0;
+        }
+
+        Collection<Path> published = new HashSet<>();
+        if (Files.isDirectory(targetDirectory)) {
+            try (Stream<Path> targets = Files.list(targetDirectory)) {
+                for (Path target : (Iterable<Path>) targets::iterator) {
+                    if (Files.isSymbolicLink(target)) {
+                        published.add(target.resolveSibling(Files.readSymbolicLink(target)).toAbsolutePath().normalize());
+                    }
+                }
+            }
+        }
+
+        int removed = 0;
+        try (Stream<Path> directories = Files.list(storeDirectory)) {
+            for (Path directory : (Iterable<Path>) directories::iterator) {
+                if (!published.contains(directory.toAbsolutePath().normalize())) {
+                    FileUtils.delete(directory.toFile());
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    // removes the staged files if they have not been published
+    public void discard() {
+        if (!this.published) {
+            FileUtils.delete(this.directory.toFile());
+        }
+    }
+
+    private Path resolve(String name) throws IOException {
+        Path path = this.directory.resolve(name).normalize();
+        if (!path.startsWith(this.directory)) {
+            throw new IOException("File " + name + " would be outside of the staged directory");
+        }
+        return path;
+    }
+
+}
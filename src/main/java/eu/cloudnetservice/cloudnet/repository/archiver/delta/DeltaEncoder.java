@@ -0,0 +1,213 @@
+package eu.cloudnetservice.cloudnet.repository.archiver.delta;
+
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.GZIPOutputStream;
+
+// creates a patch which turns the source into the target; entries of zip files which did not change are copied as a whole,
+// everything else is matched by blocks of the source which are found in the target using a rolling hash;
+// both files are only read by their absolute positions, so they can be mapped instead of being loaded into the heap
+public class DeltaEncoder {
+
+    private static final int HASH_MULTIPLIER = 31;
+
+    private final int blockSize;
+    private final int rollFactor;
+
+    public DeltaEncoder() {
+        this(Integer.getInteger("cloudnet.repository.delta.blockSize", 32));
+    }
+
+    public DeltaEncoder(int blockSize) {
+        this.blockSize = blockSize;
+
+        int rollFactor = 1;
+        for (int i = 1; i < blockSize; i++) {
+            rollFactor *= HASH_MULTIPLIER;
+        }
+        this.rollFactor = rollFactor;
+    }
+
+    public void encode(ByteBuffer source, ByteBuffer target, OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(new GZIPOutputStream(outputStream));
+        dataOutputStream.writeInt(DeltaFormat.MAGIC);
+        dataOutputStream.writeByte(DeltaFormat.VERSION);
+        dataOutputStream.writeLong(source.limit());
+        dataOutputStream.write(digest(source));
+        dataOutputStream.writeLong(target.limit());
+        dataOutputStream.write(digest(target));
+
+        BlockIndex blockIndex = new BlockIndex(source);
+        int position = 0;
+        for (ZipEntryIndex.Entry[] match : this.findUnchangedEntries(source, target)) {
+            ZipEntryIndex.Entry sourceEntry = match[0];
+            ZipEntryIndex.Entry targetEntry = match[1];
+            if (targetEntry.getDataOffset() < position) {
+                continue;
+            }
+
+            this.encodeBlocks(blockIndex, source, target, position, targetEntry.getDataOffset(), dataOutputStream);
+            this.writeCopy(dataOutputStream, sourceEntry.getDataOffset(), sourceEntry.getDataLength());
+            position = targetEntry.getDataOffset() + targetEntry.getDataLength();
+        }
+        this.encodeBlocks(blockIndex, source, target, position, target.limit(), dataOutputStream);
+
+        dataOutputStream.writeByte(DeltaFormat.END);
+        dataOutputStream.close();
+    }
+
+    // pairs of source and target entries whose compressed data is identical, ordered by their position in the target
+    private ZipEntryIndex.Entry[][] findUnchangedEntries(ByteBuffer source, ByteBuffer target) {
+        ZipEntryIndex sourceIndex = ZipEntryIndex.read(source);
+        ZipEntryIndex targetIndex = sourceIndex != null ? ZipEntryIndex.read(target) : null;
+        if (targetIndex == null) {
+            return new ZipEntryIndex.Entry[0][];
+        }
+
+        return targetIndex.getEntries().stream()
+                .filter(entry -> entry.getDataLength() > 0)
+                .sorted(Comparator.comparingInt(ZipEntryIndex.Entry::getDataOffset))
+                .map(targetEntry -> new ZipEntryIndex.Entry[]{sourceIndex.getEntry(targetEntry.getName()), targetEntry})
+                .filter(match -> match[0] != null && match[0].hasSameContent(match[1]))
+                .filter(match -> range(source, match[0].getDataOffset(), match[0].getDataLength())
+                        .equals(range(target, match[1].getDataOffset(), match[1].getDataLength())))
+                .toArray(ZipEntryIndex.Entry[][]::new);
+    }
+
+    private void encodeBlocks(BlockIndex blockIndex, ByteBuffer source, ByteBuffer target, int start, int end, DataOutputStream outputStream) throws IOException {
+        int literalStart = start;
+        int position = start;
+        int hash = position + this.blockSize <= end ? this.hash(target, position) : 0;
+
+        while (position + this.blockSize <= end) {
+            int candidate = blockIndex.get(hash);
+            if (candidate != -1 && range(source, candidate, this.blockSize).equals(range(target, position, this.blockSize))) {
+                int sourceStart = candidate;
+                int targetStart = position;
+                while (targetStart > literalStart && sourceStart > 0 && source.get(sourceStart - 1) == target.get(targetStart - 1)) {
+                    sourceStart--;
+                    targetStart--;
+                }
+                int length = position + this.blockSize - targetStart;
+                while (targetStart + length < end && sourceStart + length < source.limit() && source.get(sourceStart + length) == target.get(targetStart + length)) {
+                    length++;
+                }
+
+                this.writeAdd(outputStream, target, literalStart, targetStart - literalStart);
+                this.writeCopy(outputStream, sourceStart, length);
+
+                position = targetStart + length;
+                literalStart = position;
+                if (position + this.blockSize <= end) {
+                    hash = this.hash(target, position);
+                }
+                continue;
+            }
+
+            if (position + this.blockSize < end) {
+                hash = (hash - target.get(position) * this.rollFactor) * HASH_MULTIPLIER + target.get(position + this.blockSize);
+            }
+            position++;
+        }
+
+        this.writeAdd(outputStream, target, literalStart, end - literalStart);
+    }
+
+    private int hash(ByteBuffer data, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + this.blockSize; i++) {
+            hash = hash * HASH_MULTIPLIER + data.get(i);
+        }
+        return hash;
+    }
+
+    private void writeCopy(DataOutputStream outputStream, int offset, int length) throws IOException {
+        outputStream.writeByte(DeltaFormat.COPY);
+        outputStream.writeLong(offset);
+        outputStream.writeInt(length);
+    }
+
+    private void writeAdd(DataOutputStream outputStream, ByteBuffer data, int offset, int length) throws IOException {
+        if (length > 0) {
+            outputStream.writeByte(DeltaFormat.ADD);
+            outputStream.writeInt(length);
+            write(outputStream, range(data, offset, length));
+        }
+    }
+
+    // the content between the offset and the length, the position of the given buffer is not changed
+    static ByteBuffer range(ByteBuffer data, int offset, int length) {
+        ByteBuffer range = data.duplicate();
+        range.limit(offset + length).position(offset);
+        return range.slice();
+    }
+
+    static void write(OutputStream outputStream, ByteBuffer data) throws IOException {
+        byte[] buffer = new byte[Math.min(data.remaining(), 8192)];
+        while (data.hasRemaining()) {
+            int length = Math.min(buffer.length, data.remaining());
+            data.get(buffer, 0, length);
+            outputStream.write(buffer, 0, length);
+        }
+    }
+
+    static byte[] digest(ByteBuffer data) {
+        MessageDigest digest = FileValidatorCache.newDigest();
+        digest.update(data.duplicate().rewind());
+        return digest.digest();
+    }
+
+    // open addressing table of the hashes of all aligned blocks of the source, the first block with a hash wins
+    private class BlockIndex {
+
+        private final int[] hashes;
+        private final int[] offsets;
+        private final int mask;
+
+        private BlockIndex(ByteBuffer source) {
+            int blocks = source.limit() / DeltaEncoder.this.blockSize;
+            int capacity = Integer.highestOneBit(Math.max(16, blocks * 2)) << 1;
+            this.hashes = new int[capacity];
+            this.offsets = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(this.offsets, -1);
+
+            for (int block = 0; block < blocks; block++) {
+                int offset = block * DeltaEncoder.this.blockSize;
+                int hash = DeltaEncoder.this.hash(source, offset);
+                int slot = this.slot(hash);
+                while (this.offsets[slot] != -1 && this.hashes[slot] != hash) {
+                    slot = (slot + 1) & this.mask;
+                }
+                if (this.offsets[slot] == -1) {
+                    this.hashes[slot] = hash;
+                    this.offsets[slot] = offset;
+                }
+            }
+        }
+
+        private int get(int hash) {
+            int slot = this.slot(hash);
+            while (this.offsets[slot] != -1) {
+                if (this.hashes[slot] == hash) {
+                    return this.offsets[slot];
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return -1;
+        }
+
+        private int slot(int hash) {
+            return (hash * 0x9E3779B9 >>> 7) & this.mask;
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package eu.cloudnetservice.cloudnet.repository.archiver.delta;
+
+// a patch is gzip compressed and starts with the length and the SHA-256 hash of the source and the target file,
+// followed by operations that either copy a range of the source or add new bytes to the target
+final class DeltaFormat {
+
+    static final int MAGIC = 0x434E4450;
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int COPY = 1;
+    static final int ADD = 2;
+
+    private DeltaFormat() {
+        throw new UnsupportedOperationException();
+    }
+
+}
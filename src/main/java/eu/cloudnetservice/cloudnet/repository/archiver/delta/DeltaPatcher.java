@@ -0,0 +1,69 @@
+package eu.cloudnetservice.cloudnet.repository.archiver.delta;
+
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+// applies a patch created by the DeltaEncoder, both the source and the created target are verified by their hashes
+public class DeltaPatcher {
+
+    public void apply(ByteBuffer source, InputStream patchStream, OutputStream targetStream) throws IOException {
+        DataInputStream inputStream = new DataInputStream(new GZIPInputStream(patchStream));
+        if (inputStream.readInt() != DeltaFormat.MAGIC || inputStream.readUnsignedByte() != DeltaFormat.VERSION) {
+            throw new IOException("Unsupported patch format");
+        }
+
+        long sourceLength = inputStream.readLong();
+        byte[] sourceHash = inputStream.readNBytes(32);
+        if (source.limit() != sourceLength || !Arrays.equals(DeltaEncoder.digest(source), sourceHash)) {
+            throw new IOException("The patch can't be applied to this source file");
+        }
+        long targetLength = inputStream.readLong();
+        byte[] targetHash = inputStream.readNBytes(32);
+
+        MessageDigest digest = FileValidatorCache.newDigest();
+        OutputStream outputStream = new DigestOutputStream(targetStream, digest);
+        byte[] buffer = new byte[8192];
+        long length = 0;
+
+        int operation;
+        while ((operation = inputStream.readUnsignedByte()) != DeltaFormat.END) {
+            if (operation == DeltaFormat.COPY) {
+                long offset = inputStream.readLong();
+                int copyLength = inputStream.readInt();
+                if (offset < 0 || copyLength < 0 || offset + copyLength > source.limit()) {
+                    throw new IOException("Patch copies outside of the source file");
+                }
+                DeltaEncoder.write(outputStream, DeltaEncoder.range(source, (int) offset, copyLength));
+                length += copyLength;
+            } else if (operation == DeltaFormat.ADD) {
+                int remaining = inputStream.readInt();
+                length += remaining;
+                while (remaining > 0) {
+                    int read = inputStream.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (read == -1) {
+                        throw new IOException("Unexpected end of patch");
+                    }
+                    outputStream.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            } else {
+                throw new IOException("Unknown patch operation " + operation);
+            }
+        }
+        outputStream.flush();
+
+        if (length != targetLength || !Arrays.equals(digest.digest(), targetHash)) {
+            throw new IOException("The patched file does not match the target file");
+        }
+    }
+
+}
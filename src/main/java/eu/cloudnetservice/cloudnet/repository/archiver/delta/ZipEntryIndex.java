@@ -0,0 +1,133 @@
+package eu.cloudnetservice.cloudnet.repository.archiver.delta;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// the entries of a zip file read from its central directory, every entry knows where its compressed data is stored
+class ZipEntryIndex {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+
+    private final Map<String, Entry> entries;
+
+    private ZipEntryIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    // returns null if the data is no zip file or uses features which are not supported (zip64)
+    static ZipEntryIndex read(ByteBuffer data) {
+        int end = findEndOfCentralDirectory(data);
+        if (end == -1) {
+            return null;
+        }
+
+        int entryCount = readShort(data, end + 10);
+        long offset = readInt(data, end + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || offset >= data.limit()) {
+            return null;
+        }
+
+        Map<String, Entry> entries = new HashMap<>();
+        int position = (int) offset;
+        for (int i = 0; i < entryCount; i++) {
+            if (position + 46 > data.limit() || readInt(data, position) != CENTRAL_DIRECTORY_HEADER) {
+                return null;
+            }
+
+            int method = readShort(data, position + 10);
+            int crc = readInt(data, position + 16);
+            long compressedSize = readInt(data, position + 20) & 0xFFFFFFFFL;
+            int nameLength = readShort(data, position + 28);
+            int extraLength = readShort(data, position + 30);
+            int commentLength = readShort(data, position + 32);
+            long localHeaderOffset = readInt(data, position + 42) & 0xFFFFFFFFL;
+            if (position + 46 + nameLength > data.limit()) {
+                return null;
+            }
+            byte[] nameBytes = new byte[nameLength];
+            data.duplicate().position(position + 46).get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if (localHeaderOffset + 30 > data.limit() || readInt(data, (int) localHeaderOffset) != LOCAL_FILE_HEADER) {
+                return null;
+            }
+            long dataOffset = localHeaderOffset + 30 + readShort(data, (int) localHeaderOffset + 26) + readShort(data, (int) localHeaderOffset + 28);
+            if (dataOffset + compressedSize > data.limit()) {
+                return null;
+            }
+
+            entries.put(name, new Entry(name, method, crc, (int) dataOffset, (int) compressedSize));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+
+        return new ZipEntryIndex(entries);
+    }
+
+    Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    Collection<Entry> getEntries() {
+        return new ArrayList<>(this.entries.values());
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer data) {
+        // the record is at least 22 bytes long and may be followed by a comment of up to 65535 bytes
+        for (int position = data.limit() - 22; position >= Math.max(0, data.limit() - 22 - 0xFFFF); position--) {
+            if (readInt(data, position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static int readShort(ByteBuffer data, int offset) {
+        return (data.get(offset) & 0xFF) | (data.get(offset + 1) & 0xFF) << 8;
+    }
+
+    private static int readInt(ByteBuffer data, int offset) {
+        return readShort(data, offset) | readShort(data, offset + 2) << 16;
+    }
+
+    static class Entry {
+
+        private final String name;
+        private final int method;
+        private final int crc;
+        private final int dataOffset;
+        private final int dataLength;
+
+        private Entry(String name, int method, int crc, int dataOffset, int dataLength) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        int getDataOffset() {
+            return this.dataOffset;
+        }
+
+        int getDataLength() {
+            return this.dataLength;
+        }
+
+        // entries with the same content which have been compressed the same way have identical data
+        boolean hasSameContent(Entry other) {
+            return this.method == other.method && this.crc == other.crc && this.dataLength == other.dataLength;
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package eu.cloudnetservice.cloudnet.repository.command.defaults;
+
+import de.dytanic.cloudnet.common.Properties;
+import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
+import eu.cloudnetservice.cloudnet.repository.command.Command;
+import eu.cloudnetservice.cloudnet.repository.command.ICommandSender;
+
+public class CommandDatabase extends Command {
+
+    private CloudNetUpdateServer updateServer;
+
+    public CommandDatabase(CloudNetUpdateServer updateServer) {
+        super("database");
+        this.updateServer = updateServer;
+    }
+
+    @Override
+    public void execute(ICommandSender sender, String command, String[] args, String commandLine, Properties properties) {
+        if (args.length == 1 && args[0].equalsIgnoreCase("resync")) {
+
+            this.updateServer.getDatabase().resync();
+
+            sender.sendMessage("All cached database entries have been reloaded");
+
+        } else {
+            sender.sendMessage(
+                    "database resync | reload all cached entries from the database"
+            );
+        }
+    }
+}
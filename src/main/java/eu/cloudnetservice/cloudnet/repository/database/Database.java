@@ -1,5 +1,6 @@
 package eu.cloudnetservice.cloudnet.repository.database;
 
+import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseInstallJob;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalStatistics;
 import eu.cloudnetservice.cloudnet.repository.faq.FAQEntry;
 import eu.cloudnetservice.cloudnet.repository.github.GitHubReleaseInfo;
@@ -19,6 +20,10 @@ public interface Database extends Closeable {
 
     boolean init();
 
+    void resync();
+
+    void addChangeListener(DatabaseChangeListener listener);
+
     void registerVersion(CloudNetVersion version);
 
     void updateVersion(CloudNetVersion version);
@@ -42,6 +47,11 @@ public interface Database extends Closeable {
 
     FAQEntry[] getFAQEntries(String parentVersionName);
 
+    FAQEntry[] getFAQEntries(String parentVersionName, String language);
+
+    // the languages are lower case
+    Collection<String> getFAQLanguages(String parentVersionName);
+
     void insertFAQEntry(FAQEntry entry);
 
     void updateFAQEntry(FAQEntry entry);
@@ -80,6 +90,12 @@ public interface Database extends Closeable {
 
     RepositoryModuleInfo[] getModuleInfos();
 
+    RepositoryModuleInfo[] getModuleInfos(String parentVersionName);
+
+    RepositoryModuleInfo[] getModuleInfos(String parentVersionName, String group);
+
+    RepositoryModuleInfo[] getModuleInfos(String parentVersionName, String group, String name);
+
     InternalStatistics getStatistics();
 
     void updateStatistics(InternalStatistics statistics);
@@ -92,4 +108,10 @@ public interface Database extends Closeable {
 
     void insertServiceVersionType(ServiceVersionType versionType);
 
+    void updateInstallJob(ReleaseInstallJob job);
+
+    void deleteInstallJob(UUID uniqueId);
+
+    ReleaseInstallJob[] getInstallJobs();
+
 }
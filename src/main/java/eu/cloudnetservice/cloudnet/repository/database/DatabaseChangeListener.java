@@ -0,0 +1,9 @@
+package eu.cloudnetservice.cloudnet.repository.database;
+
+@FunctionalInterface
+public interface DatabaseChangeListener {
+
+    // called after the cached snapshot of the table has been replaced, the parent version is null if the change may affect all of them
+    void handleChange(DatabaseTable table, String parentVersionName);
+
+}
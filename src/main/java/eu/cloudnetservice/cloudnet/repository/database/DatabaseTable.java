@@ -0,0 +1,11 @@
+package eu.cloudnetservice.cloudnet.repository.database;
+
+public enum DatabaseTable {
+
+    VERSIONS,
+    FAQ,
+    USERS,
+    MODULES,
+    SERVICE_VERSIONS
+
+}
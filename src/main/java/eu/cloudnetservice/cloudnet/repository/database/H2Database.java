@@ -2,8 +2,12 @@ package eu.cloudnetservice.cloudnet.repository.database;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import de.dytanic.cloudnet.common.document.gson.JsonDocument;
-import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalStatistics;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.dytanic.cloudnet.common.JavaVersion;
+import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseInstallJob;
+import eu.cloudnetservice.cloudnet.repository.database.cache.*;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.*;
 import eu.cloudnetservice.cloudnet.repository.faq.FAQEntry;
 import eu.cloudnetservice.cloudnet.repository.module.ModuleId;
 import eu.cloudnetservice.cloudnet.repository.module.RepositoryModuleInfo;
@@ -13,13 +17,14 @@ import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
 import eu.cloudnetservice.cloudnet.repository.version.service.ServiceVersionType;
 import eu.cloudnetservice.cloudnet.repository.web.WebPermissionRole;
 import eu.cloudnetservice.cloudnet.repository.web.WebUser;
+import org.h2.jdbcx.JdbcConnectionPool;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class H2Database implements Database {
 
@@ -29,13 +34,16 @@ public class H2Database implements Database {
 
     private Path mvStorePath;
 
-    private Connection connection;
+    private JdbcConnectionPool connectionPool;
 
-    private CloudNetVersion[] cachedVersions;
-    private FAQEntry[] cachedFAQEntries;
-    private WebUser[] cachedUsers;
-    private RepositoryModuleInfo[] cachedModules;
-    private ServiceVersionType[] cachedServiceVersions;
+    // immutable snapshots for lock free reads, writers are synchronized and replace them after each change
+    private volatile VersionCache cachedVersions;
+    private volatile FAQCache cachedFAQEntries;
+    private volatile UserCache cachedUsers;
+    private volatile ModuleCache cachedModules;
+    private volatile ServiceVersionCache cachedServiceVersions;
+
+    private final Collection<DatabaseChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     public H2Database(Path mvStorePath) {
         this.mvStorePath = mvStorePath;
@@ -43,202 +51,264 @@ public class H2Database implements Database {
 
     @Override
     public boolean init() {
+        this.connectionPool = JdbcConnectionPool.create("jdbc:h2:" + this.mvStorePath.toAbsolutePath(), "", "");
+
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS versions (name VARCHAR(128) NOT NULL, content TEXT)");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS faq (uniqueId BINARY(16) NOT NULL, content TEXT)");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS users (username VARCHAR(128) NOT NULL, password TEXT, role VARCHAR(32))");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS modules (moduleId VARCHAR(128) NOT NULL, parentVersionName VARCHAR(32), content TEXT)");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS extras (key VARCHAR(128) NOT NULL, content TEXT)");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS service_versions (key VARCHAR(64) NOT NULL, content TEXT)");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS statistics_installs (uniqueId VARCHAR(64) NOT NULL, parentVersion VARCHAR(32) NOT NULL, " +
+                "lastReport BIGINT, cloudNetVersion VARCHAR(32), javaVersion VARCHAR(32), operatingSystem VARCHAR(32), country VARCHAR(64), " +
+                "PRIMARY KEY (uniqueId, parentVersion))");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS statistics_server_versions (uniqueId VARCHAR(64) NOT NULL, parentVersion VARCHAR(32) NOT NULL, " +
+                "serverVersion VARCHAR(16) NOT NULL, PRIMARY KEY (uniqueId, parentVersion, serverVersion))");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS statistics_downloads (scope VARCHAR(32) NOT NULL PRIMARY KEY, downloads BIGINT)");
+        this.executeUpdate("ALTER TABLE statistics_downloads ADD COLUMN IF NOT EXISTS expiredInstalls BIGINT NOT NULL DEFAULT 0");
+        this.executeUpdate("CREATE TABLE IF NOT EXISTS install_jobs (uniqueId BINARY(16) NOT NULL PRIMARY KEY, creationTime BIGINT, content TEXT)");
+
+        this.resync();
 
-        try {
-            this.connection = DriverManager.getConnection("jdbc:h2:" + this.mvStorePath.toAbsolutePath());
-
-            this.executeUpdate("CREATE TABLE IF NOT EXISTS versions (name VARCHAR(128) NOT NULL, content TEXT)");
-            this.executeUpdate("CREATE TABLE IF NOT EXISTS faq (uniqueId BINARY(16) NOT NULL, content TEXT)");
-            this.executeUpdate("CREATE TABLE IF NOT EXISTS users (username VARCHAR(128) NOT NULL, password TEXT, role VARCHAR(32))");
-            this.executeUpdate("CREATE TABLE IF NOT EXISTS modules (moduleId VARCHAR(128) NOT NULL, parentVersionName VARCHAR(32), content TEXT)");
-            this.executeUpdate("CREATE TABLE IF NOT EXISTS extras (key VARCHAR(128) NOT NULL, content TEXT)");
-            this.executeUpdate("CREATE TABLE IF NOT EXISTS service_versions (key VARCHAR(64) NOT NULL, content TEXT)");
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        return true;
+    }
 
+    @Override
+    public synchronized void resync() {
         this.cacheVersions();
         this.cacheFAQEntries();
         this.cacheUsers();
         this.cacheModules();
         this.cacheServiceVersions();
 
-        return true;
+        for (DatabaseTable table : DatabaseTable.values()) {
+            this.notifyChange(table, null);
+        }
+    }
+
+    @Override
+    public void addChangeListener(DatabaseChangeListener listener) {
+        this.changeListeners.add(listener);
+    }
+
+    private void notifyChange(DatabaseTable table, String parentVersionName) {
+        for (DatabaseChangeListener listener : this.changeListeners) {
+            listener.handleChange(table, parentVersionName);
+        }
     }
 
     private void executeUpdate(String sql) {
         this.executeUpdate(sql, preparedStatement -> {});
     }
 
-    private void executeUpdate(String sql, ThrowingConsumer<PreparedStatement, SQLException> preUpdateHandler) {
-        try (PreparedStatement statement = this.connection.prepareStatement(sql)) {
+    // returns false if the statement failed, the cached snapshots must only be replaced after a successful write
+    private boolean executeUpdate(String sql, ThrowingConsumer<PreparedStatement, SQLException> preUpdateHandler) {
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             preUpdateHandler.accept(statement);
             statement.executeUpdate();
+            return true;
         } catch (SQLException exception) {
             exception.printStackTrace();
+            return false;
         }
     }
 
-    @Override
-    public void registerVersion(CloudNetVersion version) {
-        if (Arrays.stream(this.cachedVersions).anyMatch(cloudNetVersion -> cloudNetVersion.getName().equals(version.getName()))) {
-            this.executeUpdate(
-                    "DELETE FROM versions WHERE `name` = ?",
-                    preparedStatement -> preparedStatement.setString(1, version.getName())
-            );
+    private boolean executeTransaction(ThrowingConsumer<Connection, SQLException> handler) {
+        try (Connection connection = this.connectionPool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                handler.accept(connection);
+                connection.commit();
+                return true;
+            } catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+            return false;
         }
+    }
 
-        this.executeUpdate(
-                "INSERT INTO versions (name, content) VALUES (?, ?)",
-                preparedStatement -> {
-                    preparedStatement.setString(1, version.getName());
-                    preparedStatement.setString(2, this.gson.toJson(version));
-                }
-        );
+    @Override
+    public synchronized void registerVersion(CloudNetVersion version) {
+        String content = this.gson.toJson(version);
+        boolean success = this.executeTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM versions WHERE `name` = ?")) {
+                statement.setString(1, version.getName());
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO versions (name, content) VALUES (?, ?)")) {
+                statement.setString(1, version.getName());
+                statement.setString(2, content);
+                statement.executeUpdate();
+            }
+        });
+        if (!success) {
+            return;
+        }
 
-        this.cacheVersions();
+        this.cachedVersions = this.cachedVersions.withVersion(this.gson.fromJson(content, CloudNetVersion.class));
+        this.notifyChange(DatabaseTable.VERSIONS, version.getParentVersionName());
     }
 
     @Override
-    public void updateVersion(CloudNetVersion version) {
-        this.executeUpdate(
+    public synchronized void updateVersion(CloudNetVersion version) {
+        String content = this.gson.toJson(version);
+        if (!this.executeUpdate(
                 "UPDATE versions SET content = ? WHERE name = ?",
                 preparedStatement -> {
-                    preparedStatement.setString(1, this.gson.toJson(version));
+                    preparedStatement.setString(1, content);
                     preparedStatement.setString(2, version.getName());
                 }
-        );
+        )) {
+            return;
+        }
+
+        if (this.cachedVersions.contains(version.getName())) {
+            this.cachedVersions = this.cachedVersions.withVersion(this.gson.fromJson(content, CloudNetVersion.class));
+            this.notifyChange(DatabaseTable.VERSIONS, version.getParentVersionName());
+        }
     }
 
     @Override
     public CloudNetVersion getVersion(String parentVersionName, String name) {
-        return Arrays.stream(this.cachedVersions)
-                .filter(version -> version.getParentVersionName().equalsIgnoreCase(parentVersionName))
-                .filter(version -> version.getName().equals(name))
-                .findFirst()
-                .orElse(null);
+        return this.cachedVersions.getVersion(parentVersionName, name);
     }
 
     @Override
     public CloudNetVersion getLatestVersion(String parentVersionName) {
-        return Arrays.stream(this.cachedVersions)
-                .filter(Objects::nonNull)
-                .filter(version -> version.getParentVersionName().equalsIgnoreCase(parentVersionName))
-                .max(Comparator.comparing(CloudNetVersion::getReleaseDate)).orElse(null);
+        return this.cachedVersions.getLatestVersion(parentVersionName);
     }
 
     @Override
     public CloudNetVersion[] getAllVersions() {
-        return this.cachedVersions;
+        return this.cachedVersions.getVersions();
     }
 
     @Override
     public CloudNetVersion[] getAllVersions(String parentVersionName) {
-        return Arrays.stream(this.cachedVersions)
-                .filter(Objects::nonNull)
-                .filter(version -> version.getParentVersionName().equalsIgnoreCase(parentVersionName))
-                .toArray(CloudNetVersion[]::new);
+        return this.cachedVersions.getVersions(parentVersionName);
     }
 
     @Override
     public FAQEntry[] getFAQEntries(String parentVersionName) {
-        return Arrays.stream(this.cachedFAQEntries)
-                .filter(entry -> entry.getParentVersionName().equalsIgnoreCase(parentVersionName))
-                .toArray(FAQEntry[]::new);
+        return this.cachedFAQEntries.getEntries(parentVersionName);
     }
 
     @Override
-    public void insertFAQEntry(FAQEntry entry) {
-        this.executeUpdate(
+    public FAQEntry[] getFAQEntries(String parentVersionName, String language) {
+        return this.cachedFAQEntries.getEntries(parentVersionName, language);
+    }
+
+    @Override
+    public Collection<String> getFAQLanguages(String parentVersionName) {
+        return this.cachedFAQEntries.getLanguages(parentVersionName);
+    }
+
+    @Override
+    public synchronized void insertFAQEntry(FAQEntry entry) {
+        String content = this.gson.toJson(entry);
+        if (!this.executeUpdate(
                 "INSERT INTO faq (uniqueId, content) VALUES (?, ?)",
                 preparedStatement -> {
                     preparedStatement.setBytes(1, this.uuidToBytes(entry.getUniqueId()));
-                    preparedStatement.setString(2, this.gson.toJson(entry));
+                    preparedStatement.setString(2, content);
                 }
-        );
-        this.cacheFAQEntries();
+        )) {
+            return;
+        }
+        this.cachedFAQEntries = this.cachedFAQEntries.withEntry(this.gson.fromJson(content, FAQEntry.class));
+        this.notifyChange(DatabaseTable.FAQ, entry.getParentVersionName());
     }
 
     @Override
-    public void updateFAQEntry(FAQEntry entry) {
-        this.executeUpdate(
+    public synchronized void updateFAQEntry(FAQEntry entry) {
+        String content = this.gson.toJson(entry);
+        if (!this.executeUpdate(
                 "UPDATE faq SET content = ? WHERE uniqueId = ?",
                 preparedStatement -> {
-                    preparedStatement.setString(1, this.gson.toJson(entry));
+                    preparedStatement.setString(1, content);
                     preparedStatement.setBytes(2, this.uuidToBytes(entry.getUniqueId()));
                 }
-        );
-        this.cacheFAQEntries();
+        )) {
+            return;
+        }
+        if (this.cachedFAQEntries.getEntry(entry.getUniqueId()) != null) {
+            this.cachedFAQEntries = this.cachedFAQEntries.withEntry(this.gson.fromJson(content, FAQEntry.class));
+            this.notifyChange(DatabaseTable.FAQ, entry.getParentVersionName());
+        }
     }
 
     @Override
     public FAQEntry getFAQEntry(UUID uniqueId) {
-        return Arrays.stream(this.cachedFAQEntries)
-                .filter(entry -> entry.getUniqueId().equals(uniqueId))
-                .findFirst()
-                .orElse(null);
+        return this.cachedFAQEntries.getEntry(uniqueId);
     }
 
     @Override
-    public void deleteFAQEntry(UUID uniqueId) {
-        this.executeUpdate(
+    public synchronized void deleteFAQEntry(UUID uniqueId) {
+        FAQEntry entry = this.cachedFAQEntries.getEntry(uniqueId);
+        if (!this.executeUpdate(
                 "DELETE FROM faq WHERE uniqueId = ?",
                 preparedStatement -> preparedStatement.setBytes(1, this.uuidToBytes(uniqueId))
-        );
-        this.cacheFAQEntries();
+        )) {
+            return;
+        }
+        this.cachedFAQEntries = this.cachedFAQEntries.withoutEntry(uniqueId);
+        this.notifyChange(DatabaseTable.FAQ, entry != null ? entry.getParentVersionName() : null);
     }
 
     @Override
     public Collection<String> getUserNames() {
-        return Arrays.stream(this.cachedUsers).map(WebUser::getUsername).collect(Collectors.toList());
+        return this.cachedUsers.getUserNames();
     }
 
     @Override
     public boolean checkUserPassword(String username, String password) {
-        String hashedPassword = StringUtils.hashString(password);
-        return Arrays.stream(this.cachedUsers)
-                .filter(webUser -> webUser.getUsername().equals(username))
-                .anyMatch(webUser -> webUser.getHashedPassword().equals(hashedPassword));
+        WebUser user = this.cachedUsers.getUser(username);
+        return user != null && user.getHashedPassword().equals(StringUtils.hashString(password));
     }
 
     @Override
     public boolean hasPassword(String username) {
-        return Arrays.stream(this.cachedUsers)
-                .filter(webUser -> webUser.getUsername().equals(username))
-                .anyMatch(webUser -> webUser.getHashedPassword().equals(StringUtils.EMPTY_HASH_STRING));
+        WebUser user = this.cachedUsers.getUser(username);
+        return user != null && user.getHashedPassword().equals(StringUtils.EMPTY_HASH_STRING);
     }
 
     @Override
     public boolean containsUser(String username) {
-        return Arrays.stream(this.cachedUsers).anyMatch(webUser -> webUser.getUsername().equals(username));
+        return this.cachedUsers.getUser(username) != null;
     }
 
     @Override
     public WebPermissionRole getRole(String username) {
-        return Arrays.stream(this.cachedUsers)
-                .filter(webUser -> webUser.getUsername().equals(username))
-                .findFirst()
-                .map(WebUser::getPermissionRole)
-                .orElse(null);
+        WebUser user = this.cachedUsers.getUser(username);
+        return user != null ? user.getPermissionRole() : null;
     }
 
     @Override
-    public void insertUser(String username, String password) {
+    public synchronized void insertUser(String username, String password) {
         if (username.length() > 128) {
             throw new IllegalArgumentException("Username may not be longer than 128 characters!");
         }
         if (this.containsUser(username)) {
             throw new IllegalArgumentException("Username is already taken!");
         }
-        this.executeUpdate(
+        if (!this.executeUpdate(
                 "INSERT INTO users (username, password, role) VALUES (?, ?, ?)",
                 preparedStatement -> {
                     preparedStatement.setString(1, username);
                     preparedStatement.setString(2, StringUtils.hashString(password));
                     preparedStatement.setString(3, WebPermissionRole.MEMBER.name());
                 }
-        );
-        this.cacheUsers();
+        )) {
+            return;
+        }
+        this.cachedUsers = this.cachedUsers.withUser(new WebUser(username, StringUtils.hashString(password), WebPermissionRole.MEMBER));
+        this.notifyChange(DatabaseTable.USERS, null);
     }
 
     @Override
@@ -247,62 +317,93 @@ public class H2Database implements Database {
     }
 
     @Override
-    public void deleteUser(String username) {
-        this.executeUpdate(
+    public synchronized void deleteUser(String username) {
+        if (!this.executeUpdate(
                 "DELETE FROM users WHERE username = ?",
                 preparedStatement -> preparedStatement.setString(1, username)
-        );
-        this.cacheUsers();
+        )) {
+            return;
+        }
+        this.cachedUsers = this.cachedUsers.withoutUser(username);
+        this.notifyChange(DatabaseTable.USERS, null);
     }
 
     @Override
-    public void updateUserRole(String username, WebPermissionRole newPermissionRole) {
-        this.executeUpdate(
+    public synchronized void updateUserRole(String username, WebPermissionRole newPermissionRole) {
+        if (!this.executeUpdate(
                 "UPDATE users SET role = ? WHERE username = ?",
                 preparedStatement -> {
                     preparedStatement.setString(1, newPermissionRole.name());
                     preparedStatement.setString(2, username);
                 }
-        );
-        this.cacheUsers();
+        )) {
+            return;
+        }
+        WebUser user = this.cachedUsers.getUser(username);
+        if (user != null) {
+            this.cachedUsers = this.cachedUsers.withUser(new WebUser(username, user.getHashedPassword(), newPermissionRole));
+            this.notifyChange(DatabaseTable.USERS, null);
+        }
     }
 
     @Override
-    public void updateUserPassword(String username, String newPassword) {
-        this.executeUpdate(
+    public synchronized void updateUserPassword(String username, String newPassword) {
+        String hashedPassword = StringUtils.hashString(newPassword);
+        if (!this.executeUpdate(
                 "UPDATE users SET password = ? WHERE username = ?",
                 preparedStatement -> {
-                    preparedStatement.setString(1, StringUtils.hashString(newPassword));
+                    preparedStatement.setString(1, hashedPassword);
                     preparedStatement.setString(2, username);
                 }
-        );
-        this.cacheUsers();
+        )) {
+            return;
+        }
+        WebUser user = this.cachedUsers.getUser(username);
+        if (user != null) {
+            this.cachedUsers = this.cachedUsers.withUser(new WebUser(username, hashedPassword, user.getPermissionRole()));
+            this.notifyChange(DatabaseTable.USERS, null);
+        }
     }
 
     @Override
-    public void insertModuleInfo(RepositoryModuleInfo moduleInfo) {
-        this.executeUpdate(
-                "INSERT INTO modules (moduleId, parentVersionName, content) VALUES (?, ?, ?)",
-                preparedStatement -> {
-                    preparedStatement.setString(1, moduleInfo.getModuleId().ignoreVersion().toString());
-                    preparedStatement.setString(2, moduleInfo.getParentVersionName());
-                    preparedStatement.setString(3, this.gson.toJson(moduleInfo));
-                }
-        );
-        this.cacheModules();
+    public synchronized void insertModuleInfo(RepositoryModuleInfo moduleInfo) {
+        String content = this.gson.toJson(moduleInfo);
+        // an existing module with the same id in this parent version is replaced, like it is in the cache
+        boolean success = this.executeTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM modules WHERE moduleId = ? AND parentVersionName = ?")) {
+                statement.setString(1, moduleInfo.getModuleId().ignoreVersion().toString());
+                statement.setString(2, moduleInfo.getParentVersionName());
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO modules (moduleId, parentVersionName, content) VALUES (?, ?, ?)")) {
+                statement.setString(1, moduleInfo.getModuleId().ignoreVersion().toString());
+                statement.setString(2, moduleInfo.getParentVersionName());
+                statement.setString(3, content);
+                statement.executeUpdate();
+            }
+        });
+        if (!success) {
+            return;
+        }
+        this.cachedModules = this.cachedModules.withModuleInfo(this.gson.fromJson(content, RepositoryModuleInfo.class));
+        this.notifyChange(DatabaseTable.MODULES, moduleInfo.getParentVersionName());
     }
 
     @Override
-    public void updateModuleInfo(RepositoryModuleInfo moduleInfo) {
-        this.executeUpdate(
+    public synchronized void updateModuleInfo(RepositoryModuleInfo moduleInfo) {
+        String content = this.gson.toJson(moduleInfo);
+        if (!this.executeUpdate(
                 "UPDATE modules SET content = ?, parentVersionName = ? WHERE moduleId = ?",
                 preparedStatement -> {
-                    preparedStatement.setString(1, this.gson.toJson(moduleInfo));
+                    preparedStatement.setString(1, content);
                     preparedStatement.setString(2, moduleInfo.getParentVersionName());
                     preparedStatement.setString(3, moduleInfo.getModuleId().ignoreVersion().toString());
                 }
-        );
-        this.cacheModules();
+        )) {
+            return;
+        }
+        this.cachedModules = this.cachedModules.withUpdatedModuleInfo(this.gson.fromJson(content, RepositoryModuleInfo.class));
+        this.notifyChange(DatabaseTable.MODULES, null);
     }
 
     @Override
@@ -311,69 +412,285 @@ public class H2Database implements Database {
     }
 
     @Override
-    public void removeModuleInfo(String parentVersionName, ModuleId moduleId) {
-        this.executeUpdate("DELETE FROM modules WHERE moduleId = ? AND parentVersionName = ?", preparedStatement -> {
+    public synchronized void removeModuleInfo(String parentVersionName, ModuleId moduleId) {
+        if (!this.executeUpdate("DELETE FROM modules WHERE moduleId = ? AND parentVersionName = ?", preparedStatement -> {
             preparedStatement.setString(1, moduleId.ignoreVersion().toString());
             preparedStatement.setString(2, parentVersionName);
-        });
-        this.cacheModules();
+        })) {
+            return;
+        }
+        this.cachedModules = this.cachedModules.withoutModuleInfo(parentVersionName, moduleId);
+        this.notifyChange(DatabaseTable.MODULES, parentVersionName);
     }
 
     @Override
     public RepositoryModuleInfo[] getModuleInfos() {
-        return this.cachedModules;
+        return this.cachedModules.getModuleInfos();
     }
 
     @Override
-    public InternalStatistics getStatistics() { // todo save without json but in an extra table
-        try (PreparedStatement statement = this.connection.prepareStatement("SELECT content FROM extras WHERE `key` = 'statistics'");
+    public RepositoryModuleInfo[] getModuleInfos(String parentVersionName) {
+        return this.cachedModules.getModuleInfos(parentVersionName);
+    }
+
+    @Override
+    public RepositoryModuleInfo[] getModuleInfos(String parentVersionName, String group) {
+        return this.cachedModules.getModuleInfos(parentVersionName, group);
+    }
+
+    @Override
+    public RepositoryModuleInfo[] getModuleInfos(String parentVersionName, String group, String name) {
+        return this.cachedModules.getModuleInfos(parentVersionName, group, name);
+    }
+
+    @Override
+    public synchronized InternalStatistics getStatistics() {
+        InternalStatistics statistics = new InternalStatistics();
+
+        try (Connection connection = this.connectionPool.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM statistics_downloads");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    statistics.restoreDownloads(resultSet.getString("scope"), resultSet.getLong("downloads"));
+                    statistics.restoreExpiredInstalls(resultSet.getString("scope"), resultSet.getLong("expiredInstalls"));
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM statistics_installs");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    CloudId id = new CloudId(resultSet.getString("parentVersion"), resultSet.getString("uniqueId"), null, resultSet.getLong("lastReport"));
+                    String cloudNetVersion = resultSet.getString("cloudNetVersion");
+                    JavaVersion javaVersion = this.parseEnum(JavaVersion.class, resultSet.getString("javaVersion"));
+                    OperatingSystem operatingSystem = this.parseEnum(OperatingSystem.class, resultSet.getString("operatingSystem"));
+                    String country = resultSet.getString("country");
+
+                    statistics.restoreStatistics(id, versionedStatistics -> {
+                        if (cloudNetVersion != null) {
+                            versionedStatistics.setCloudNetVersion(id, cloudNetVersion);
+                        }
+                        if (javaVersion != null) {
+                            versionedStatistics.setJavaVersion(id, javaVersion);
+                        }
+                        if (operatingSystem != null) {
+                            versionedStatistics.setOperatingSystem(id, operatingSystem);
+                        }
+                        if (country != null) {
+                            versionedStatistics.setCountry(id, country);
+                        }
+                    });
+                }
+            }
+            // the last report is needed for the expiry, server versions without an install row expire immediately
+            try (PreparedStatement statement = connection.prepareStatement("SELECT s.uniqueId, s.parentVersion, s.serverVersion, COALESCE(i.lastReport, 0) AS lastReport " +
+                    "FROM statistics_server_versions s LEFT JOIN statistics_installs i ON s.uniqueId = i.uniqueId AND s.parentVersion = i.parentVersion");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    CloudId id = new CloudId(resultSet.getString("parentVersion"), resultSet.getString("uniqueId"), null, resultSet.getLong("lastReport"));
+                    ServerVersion serverVersion = this.parseEnum(ServerVersion.class, resultSet.getString("serverVersion"));
+                    if (serverVersion != null) {
+                        statistics.restoreStatistics(id, versionedStatistics -> versionedStatistics.addServerVersion(id, serverVersion));
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+
+        this.migrateLegacyStatistics(statistics);
+
+        return statistics;
+    }
+
+    // statistics were stored as one json document in the extras table before, only the download counters
+    // can be taken over because the maps with the CloudId keys could never be deserialized again
+    private void migrateLegacyStatistics(InternalStatistics statistics) {
+        String content = null;
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT content FROM extras WHERE `key` = 'statistics'");
              ResultSet resultSet = statement.executeQuery()) {
             if (resultSet.next()) {
-                return JsonDocument.newDocument(resultSet.getString("content")).toInstanceOf(InternalStatistics.class);
+                content = resultSet.getString("content");
             }
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
-        InternalStatistics statistics = new InternalStatistics();
-        this.executeUpdate("INSERT INTO extras (`key`, `content`) VALUES ('statistics', ?)", preparedStatement -> preparedStatement.setString(1, JsonDocument.newDocument(statistics).toJson()));
-        return statistics;
+        if (content == null) {
+            return;
+        }
+
+        JsonObject legacyStatistics = this.gson.fromJson(content, JsonObject.class);
+        if (legacyStatistics.has("globalStatistics")) {
+            statistics.restoreDownloads(InternalStatistics.GLOBAL_SCOPE, legacyStatistics.getAsJsonObject("globalStatistics").get("downloads").getAsLong());
+        }
+        if (legacyStatistics.has("versionedStatistics")) {
+            for (Map.Entry<String, JsonElement> entry : legacyStatistics.getAsJsonObject("versionedStatistics").entrySet()) {
+                statistics.restoreDownloads(entry.getKey(), entry.getValue().getAsJsonObject().get("downloads").getAsLong());
+            }
+        }
+
+        statistics.markAllDownloadsChanged();
+        this.updateStatistics(statistics);
+        if (!statistics.hasChanges()) {
+            this.executeUpdate("DELETE FROM extras WHERE `key` = 'statistics'");
+        }
     }
 
     @Override
-    public void updateStatistics(InternalStatistics statistics) {
-        this.executeUpdate("UPDATE extras SET content = ? WHERE `key` = 'statistics'", preparedStatement -> preparedStatement.setString(1, JsonDocument.newDocument(statistics).toJson()));
+    public synchronized void updateStatistics(InternalStatistics statistics) {
+        Collection<CloudId> ids = statistics.drainChangedIds();
+        Collection<String> downloadScopes = statistics.drainChangedDownloads();
+        Collection<CloudId> expiredIds = statistics.drainExpiredIds();
+        if (ids.isEmpty() && downloadScopes.isEmpty() && expiredIds.isEmpty()) {
+            return;
+        }
+
+        boolean success = this.executeTransaction(connection -> {
+            try (PreparedStatement installStatement = connection.prepareStatement(
+                    "MERGE INTO statistics_installs (uniqueId, parentVersion, lastReport, cloudNetVersion, javaVersion, operatingSystem, country) KEY (uniqueId, parentVersion) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement serverVersionStatement = connection.prepareStatement(
+                         "MERGE INTO statistics_server_versions (uniqueId, parentVersion, serverVersion) KEY (uniqueId, parentVersion, serverVersion) VALUES (?, ?, ?)");
+                 PreparedStatement downloadStatement = connection.prepareStatement(
+                         "MERGE INTO statistics_downloads (scope, downloads, expiredInstalls) KEY (scope) VALUES (?, ?, ?)");
+                 PreparedStatement deleteInstallStatement = connection.prepareStatement(
+                         "DELETE FROM statistics_installs WHERE uniqueId = ? AND parentVersion = ?");
+                 PreparedStatement deleteServerVersionsStatement = connection.prepareStatement(
+                         "DELETE FROM statistics_server_versions WHERE uniqueId = ? AND parentVersion = ?")) {
+
+                // deleted first, an install that reported again after it expired is written again by the merge below
+                for (CloudId id : expiredIds) {
+                    deleteInstallStatement.setString(1, id.getUniqueId());
+                    deleteInstallStatement.setString(2, id.getParentVersion());
+                    deleteInstallStatement.addBatch();
+                    deleteServerVersionsStatement.setString(1, id.getUniqueId());
+                    deleteServerVersionsStatement.setString(2, id.getParentVersion());
+                    deleteServerVersionsStatement.addBatch();
+                }
+                deleteInstallStatement.executeBatch();
+                deleteServerVersionsStatement.executeBatch();
+
+                for (CloudId id : ids) {
+                    InternalVersionedStatistics versionedStatistics = statistics.getVersionedStatistics(id.getParentVersion()).orElse(null);
+                    if (versionedStatistics == null) {
+                        continue;
+                    }
+                    JavaVersion javaVersion = versionedStatistics.getJavaVersion(id);
+                    OperatingSystem operatingSystem = versionedStatistics.getOperatingSystem(id);
+
+                    installStatement.setString(1, id.getUniqueId());
+                    installStatement.setString(2, id.getParentVersion());
+                    installStatement.setLong(3, id.getTimestamp());
+                    installStatement.setString(4, versionedStatistics.getCloudNetVersion(id));
+                    installStatement.setString(5, javaVersion != null ? javaVersion.name() : null);
+                    installStatement.setString(6, operatingSystem != null ? operatingSystem.name() : null);
+                    installStatement.setString(7, versionedStatistics.getCountry(id));
+                    installStatement.addBatch();
+
+                    for (ServerVersion serverVersion : versionedStatistics.getServerVersions(id)) {
+                        serverVersionStatement.setString(1, id.getUniqueId());
+                        serverVersionStatement.setString(2, id.getParentVersion());
+                        serverVersionStatement.setString(3, serverVersion.name());
+                        serverVersionStatement.addBatch();
+                    }
+                }
+
+                for (String scope : downloadScopes) {
+                    downloadStatement.setString(1, scope);
+                    downloadStatement.setLong(2, statistics.getDownloads(scope));
+                    downloadStatement.setLong(3, statistics.getExpiredInstalls(scope));
+                    downloadStatement.addBatch();
+                }
+
+                installStatement.executeBatch();
+                serverVersionStatement.executeBatch();
+                downloadStatement.executeBatch();
+            }
+        });
+
+        if (!success) {
+            statistics.markChanged(ids, downloadScopes);
+            statistics.markExpired(expiredIds);
+        }
+    }
+
+    private <E extends Enum<E>> E parseEnum(Class<E> enumClass, String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
     }
 
     @Override
     public ServiceVersionType[] getServiceVersionTypes(String parentVersionName) {
-        return Arrays.stream(this.cachedServiceVersions)
-                .filter(versionType -> versionType.getParentVersionName().equals(parentVersionName))
-                .toArray(ServiceVersionType[]::new);
+        return this.cachedServiceVersions.getVersionTypes(parentVersionName);
     }
 
     @Override
     public boolean containsServiceVersionType(String parentVersionName, String name) {
-        return Arrays.stream(this.cachedServiceVersions)
-                .filter(versionType -> versionType.getParentVersionName().equals(parentVersionName))
-                .anyMatch(versionType -> versionType.getName().equals(name));
+        return this.cachedServiceVersions.contains(parentVersionName, name);
     }
 
     @Override
-    public void updateServiceVersionType(ServiceVersionType versionType) {
-        this.executeUpdate("UPDATE service_versions SET content = ? WHERE `key` = ?", preparedStatement -> {
-            preparedStatement.setString(1, this.gson.toJson(versionType));
+    public synchronized void updateServiceVersionType(ServiceVersionType versionType) {
+        String content = this.gson.toJson(versionType);
+        if (!this.executeUpdate("UPDATE service_versions SET content = ? WHERE `key` = ?", preparedStatement -> {
+            preparedStatement.setString(1, content);
             preparedStatement.setString(2, versionType.getParentVersionName() + "-" + versionType.getName());
-        });
-        this.cacheServiceVersions();
+        })) {
+            return;
+        }
+        if (this.cachedServiceVersions.contains(versionType.getParentVersionName(), versionType.getName())) {
+            this.cachedServiceVersions = this.cachedServiceVersions.withVersionType(this.gson.fromJson(content, ServiceVersionType.class));
+            this.notifyChange(DatabaseTable.SERVICE_VERSIONS, versionType.getParentVersionName());
+        }
     }
 
     @Override
-    public void insertServiceVersionType(ServiceVersionType versionType) {
-        this.executeUpdate("INSERT INTO service_versions (`key`, `content`) VALUES (?, ?)", preparedStatement -> {
+    public synchronized void insertServiceVersionType(ServiceVersionType versionType) {
+        String content = this.gson.toJson(versionType);
+        if (!this.executeUpdate("INSERT INTO service_versions (`key`, `content`) VALUES (?, ?)", preparedStatement -> {
             preparedStatement.setString(1, versionType.getParentVersionName() + "-" + versionType.getName());
-            preparedStatement.setString(2, this.gson.toJson(versionType));
+            preparedStatement.setString(2, content);
+        })) {
+            return;
+        }
+        this.cachedServiceVersions = this.cachedServiceVersions.withVersionType(this.gson.fromJson(content, ServiceVersionType.class));
+        this.notifyChange(DatabaseTable.SERVICE_VERSIONS, versionType.getParentVersionName());
+    }
+
+    @Override
+    public synchronized void updateInstallJob(ReleaseInstallJob job) {
+        String content = this.gson.toJson(job);
+        this.executeUpdate("MERGE INTO install_jobs (uniqueId, creationTime, content) KEY (uniqueId) VALUES (?, ?, ?)", preparedStatement -> {
+            preparedStatement.setBytes(1, this.uuidToBytes(job.getUniqueId()));
+            preparedStatement.setLong(2, job.getCreationTime());
+            preparedStatement.setString(3, content);
         });
-        this.cacheServiceVersions();
+    }
+
+    @Override
+    public synchronized void deleteInstallJob(UUID uniqueId) {
+        this.executeUpdate("DELETE FROM install_jobs WHERE uniqueId = ?", preparedStatement -> preparedStatement.setBytes(1, this.uuidToBytes(uniqueId)));
+    }
+
+    @Override
+    public ReleaseInstallJob[] getInstallJobs() {
+        Collection<ReleaseInstallJob> jobs = new ArrayList<>();
+
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT content FROM install_jobs ORDER BY creationTime");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                jobs.add(this.gson.fromJson(resultSet.getString("content"), ReleaseInstallJob.class));
+            }
+        } catch (SQLException exception) {
+            exception.printStackTrace();
+        }
+
+        return jobs.toArray(ReleaseInstallJob[]::new);
     }
 
     private byte[] uuidToBytes(UUID uuid) {
@@ -388,7 +705,8 @@ public class H2Database implements Database {
     private void cacheVersions() {
         Collection<CloudNetVersion> versions = new ArrayList<>();
 
-        try (PreparedStatement statement = this.connection.prepareStatement("SELECT content FROM versions");
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT content FROM versions");
              ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
                 versions.add(this.gson.fromJson(resultSet.getString("content"), CloudNetVersion.class));
@@ -397,12 +715,13 @@ public class H2Database implements Database {
             exception.printStackTrace();
         }
 
-        this.cachedVersions = versions.toArray(CloudNetVersion[]::new);
+        this.cachedVersions = new VersionCache(versions.toArray(CloudNetVersion[]::new));
     }
 
     private void cacheFAQEntries() {
         Collection<FAQEntry> entries = new ArrayList<>();
-        try (PreparedStatement statement = this.connection.prepareStatement("SELECT content FROM faq");
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT content FROM faq");
              ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
                 entries.add(this.gson.fromJson(resultSet.getString("content"), FAQEntry.class));
@@ -410,12 +729,13 @@ public class H2Database implements Database {
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
-        this.cachedFAQEntries = entries.toArray(FAQEntry[]::new);
+        this.cachedFAQEntries = new FAQCache(entries.toArray(FAQEntry[]::new));
     }
 
     private void cacheUsers() {
         Collection<WebUser> users = new ArrayList<>();
-        try (PreparedStatement statement = this.connection.prepareStatement("SELECT * FROM users");
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM users");
              ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
                 users.add(new WebUser(
@@ -427,12 +747,13 @@ public class H2Database implements Database {
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
-        this.cachedUsers = users.toArray(WebUser[]::new);
+        this.cachedUsers = new UserCache(users.toArray(WebUser[]::new));
     }
 
     private void cacheModules() {
         Collection<RepositoryModuleInfo> moduleInfos = new ArrayList<>();
-        try (PreparedStatement statement = this.connection.prepareStatement("SELECT * FROM modules");
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM modules");
              ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
                 moduleInfos.add(this.gson.fromJson(resultSet.getString("content"), RepositoryModuleInfo.class));
@@ -440,12 +761,13 @@ public class H2Database implements Database {
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
-        this.cachedModules = moduleInfos.toArray(RepositoryModuleInfo[]::new);
+        this.cachedModules = new ModuleCache(moduleInfos.toArray(RepositoryModuleInfo[]::new));
     }
 
     private void cacheServiceVersions() {
         Collection<ServiceVersionType> versionTypes = new ArrayList<>();
-        try (PreparedStatement statement = this.connection.prepareStatement("SELECT * FROM service_versions");
+        try (Connection connection = this.connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM service_versions");
              ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
                 versionTypes.add(this.gson.fromJson(resultSet.getString("content"), ServiceVersionType.class));
@@ -453,15 +775,11 @@ public class H2Database implements Database {
         } catch (SQLException exception) {
             exception.printStackTrace();
         }
-        this.cachedServiceVersions = versionTypes.toArray(ServiceVersionType[]::new);
+        this.cachedServiceVersions = new ServiceVersionCache(versionTypes.toArray(ServiceVersionType[]::new));
     }
 
     @Override
     public void close() throws IOException {
-        try {
-            this.connection.close();
-        } catch (SQLException exception) {
-            exception.printStackTrace();
-        }
+        this.connectionPool.dispose();
     }
 }
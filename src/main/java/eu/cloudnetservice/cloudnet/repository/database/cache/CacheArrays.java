@@ -0,0 +1,37 @@
+package eu.cloudnetservice.cloudnet.repository.database.cache;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+final class CacheArrays {
+
+    private CacheArrays() {
+        throw new UnsupportedOperationException();
+    }
+
+    // the given arrays are never modified, readers might still be using them
+    static <T> T[] replace(T[] array, T element, Predicate<T> filter) {
+        T[] result = null;
+        for (int i = 0; i < array.length; i++) {
+            if (filter.test(array[i])) {
+                if (result == null) {
+                    result = array.clone();
+                }
+                result[i] = element;
+            }
+        }
+        return result != null ? result : append(array, element);
+    }
+
+    static <T> T[] append(T[] array, T element) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = element;
+        return result;
+    }
+
+    static <T> T[] remove(T[] array, Predicate<T> filter, IntFunction<T[]> generator) {
+        return Arrays.stream(array).filter(filter.negate()).toArray(generator);
+    }
+
+}
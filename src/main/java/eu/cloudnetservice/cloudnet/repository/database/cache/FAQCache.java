@@ -0,0 +1,67 @@
+package eu.cloudnetservice.cloudnet.repository.database.cache;
+
+import eu.cloudnetservice.cloudnet.repository.faq.FAQEntry;
+
+import java.util.*;
+
+public class FAQCache {
+
+    private static final FAQEntry[] EMPTY = new FAQEntry[0];
+
+    private final FAQEntry[] entries;
+    private final Map<UUID, FAQEntry> entriesById = new HashMap<>();
+    // parent version names and languages are compared case insensitive, the keys are always lower case
+    private final Map<String, FAQEntry[]> entriesByParent = new HashMap<>();
+    private final Map<String, Map<String, FAQEntry[]>> entriesByLanguage = new HashMap<>();
+
+    public FAQCache(FAQEntry[] entries) {
+        this.entries = entries;
+
+        Map<String, Collection<FAQEntry>> entriesByParent = new HashMap<>();
+        Map<String, Map<String, Collection<FAQEntry>>> entriesByLanguage = new HashMap<>();
+
+        for (FAQEntry entry : entries) {
+            String parent = entry.getParentVersionName().toLowerCase();
+
+            this.entriesById.putIfAbsent(entry.getUniqueId(), entry);
+            entriesByParent.computeIfAbsent(parent, key -> new ArrayList<>()).add(entry);
+            entriesByLanguage.computeIfAbsent(parent, key -> new HashMap<>())
+                    .computeIfAbsent(entry.getLanguage().toLowerCase(), key -> new ArrayList<>())
+                    .add(entry);
+        }
+
+        entriesByParent.forEach((parent, parentEntries) -> this.entriesByParent.put(parent, parentEntries.toArray(FAQEntry[]::new)));
+        entriesByLanguage.forEach((parent, languages) -> {
+            Map<String, FAQEntry[]> languageEntries = new HashMap<>();
+            languages.forEach((language, entriesOfLanguage) -> languageEntries.put(language, entriesOfLanguage.toArray(FAQEntry[]::new)));
+            this.entriesByLanguage.put(parent, languageEntries);
+        });
+    }
+
+    public FAQCache withEntry(FAQEntry entry) {
+        return new FAQCache(CacheArrays.replace(this.entries, entry, cached -> cached.getUniqueId().equals(entry.getUniqueId())));
+    }
+
+    public FAQCache withoutEntry(UUID uniqueId) {
+        return new FAQCache(CacheArrays.remove(this.entries, cached -> cached.getUniqueId().equals(uniqueId), FAQEntry[]::new));
+    }
+
+    public FAQEntry getEntry(UUID uniqueId) {
+        return this.entriesById.get(uniqueId);
+    }
+
+    public FAQEntry[] getEntries(String parentVersionName) {
+        return this.entriesByParent.getOrDefault(parentVersionName.toLowerCase(), EMPTY);
+    }
+
+    public Collection<String> getLanguages(String parentVersionName) {
+        Map<String, FAQEntry[]> languages = this.entriesByLanguage.get(parentVersionName.toLowerCase());
+        return languages != null ? Collections.unmodifiableSet(languages.keySet()) : Collections.emptySet();
+    }
+
+    public FAQEntry[] getEntries(String parentVersionName, String language) {
+        Map<String, FAQEntry[]> languages = this.entriesByLanguage.get(parentVersionName.toLowerCase());
+        return languages != null ? languages.getOrDefault(language.toLowerCase(), EMPTY) : EMPTY;
+    }
+
+}
@@ -0,0 +1,100 @@
+package eu.cloudnetservice.cloudnet.repository.database.cache;
+
+import eu.cloudnetservice.cloudnet.repository.module.ModuleId;
+import eu.cloudnetservice.cloudnet.repository.module.RepositoryModuleInfo;
+
+import java.util.*;
+
+public class ModuleCache {
+
+    private static final RepositoryModuleInfo[] EMPTY = new RepositoryModuleInfo[0];
+
+    private final RepositoryModuleInfo[] moduleInfos;
+    private final Map<String, RepositoryModuleInfo[]> moduleInfosByParent = new HashMap<>();
+    // groups and names are looked up case insensitive, the keys are always lower case
+    private final Map<String, Map<String, RepositoryModuleInfo[]>> moduleInfosByGroup = new HashMap<>();
+    private final Map<String, Map<String, RepositoryModuleInfo[]>> moduleInfosById = new HashMap<>();
+
+    public ModuleCache(RepositoryModuleInfo[] moduleInfos) {
+        this.moduleInfos = moduleInfos;
+
+        Map<String, Collection<RepositoryModuleInfo>> moduleInfosByParent = new HashMap<>();
+        Map<String, Map<String, Collection<RepositoryModuleInfo>>> moduleInfosByGroup = new HashMap<>();
+        Map<String, Map<String, Collection<RepositoryModuleInfo>>> moduleInfosById = new HashMap<>();
+
+        for (RepositoryModuleInfo moduleInfo : moduleInfos) {
+            String parent = moduleInfo.getParentVersionName();
+            String group = moduleInfo.getModuleId().getGroup().toLowerCase();
+
+            moduleInfosByParent.computeIfAbsent(parent, key -> new ArrayList<>()).add(moduleInfo);
+            moduleInfosByGroup.computeIfAbsent(parent, key -> new HashMap<>())
+                    .computeIfAbsent(group, key -> new ArrayList<>())
+                    .add(moduleInfo);
+            moduleInfosById.computeIfAbsent(parent, key -> new HashMap<>())
+                    .computeIfAbsent(this.idKey(group, moduleInfo.getModuleId().getName()), key -> new ArrayList<>())
+                    .add(moduleInfo);
+        }
+
+        moduleInfosByParent.forEach((parent, parentModuleInfos) -> this.moduleInfosByParent.put(parent, parentModuleInfos.toArray(RepositoryModuleInfo[]::new)));
+        this.toArrays(moduleInfosByGroup, this.moduleInfosByGroup);
+        this.toArrays(moduleInfosById, this.moduleInfosById);
+    }
+
+    // a module with the same id in the same parent version is replaced instead of being listed twice
+    public ModuleCache withModuleInfo(RepositoryModuleInfo moduleInfo) {
+        ModuleId moduleId = moduleInfo.getModuleId();
+        return new ModuleCache(CacheArrays.replace(
+                this.moduleInfos,
+                moduleInfo,
+                cached -> cached.getParentVersionName().equals(moduleInfo.getParentVersionName()) && moduleId.equalsIgnoreVersion(cached.getModuleId())
+        ));
+    }
+
+    // the module id is the key in the database, an update replaces it in every parent version
+    public ModuleCache withUpdatedModuleInfo(RepositoryModuleInfo moduleInfo) {
+        ModuleId moduleId = moduleInfo.getModuleId();
+        return new ModuleCache(CacheArrays.replace(this.moduleInfos, moduleInfo, cached -> moduleId.equalsIgnoreVersion(cached.getModuleId())));
+    }
+
+    public ModuleCache withoutModuleInfo(String parentVersionName, ModuleId moduleId) {
+        return new ModuleCache(CacheArrays.remove(
+                this.moduleInfos,
+                cached -> cached.getParentVersionName().equals(parentVersionName) && moduleId.equalsIgnoreVersion(cached.getModuleId()),
+                RepositoryModuleInfo[]::new
+        ));
+    }
+
+    public RepositoryModuleInfo[] getModuleInfos() {
+        return this.moduleInfos;
+    }
+
+    public RepositoryModuleInfo[] getModuleInfos(String parentVersionName) {
+        return this.moduleInfosByParent.getOrDefault(parentVersionName, EMPTY);
+    }
+
+    public RepositoryModuleInfo[] getModuleInfos(String parentVersionName, String group) {
+        return this.lookup(this.moduleInfosByGroup, parentVersionName, group.toLowerCase());
+    }
+
+    public RepositoryModuleInfo[] getModuleInfos(String parentVersionName, String group, String name) {
+        return this.lookup(this.moduleInfosById, parentVersionName, this.idKey(group.toLowerCase(), name));
+    }
+
+    private RepositoryModuleInfo[] lookup(Map<String, Map<String, RepositoryModuleInfo[]>> index, String parentVersionName, String key) {
+        Map<String, RepositoryModuleInfo[]> moduleInfos = index.get(parentVersionName);
+        return moduleInfos != null ? moduleInfos.getOrDefault(key, EMPTY) : EMPTY;
+    }
+
+    private String idKey(String group, String name) {
+        return group + ":" + name.toLowerCase();
+    }
+
+    private void toArrays(Map<String, Map<String, Collection<RepositoryModuleInfo>>> source, Map<String, Map<String, RepositoryModuleInfo[]>> target) {
+        source.forEach((parent, keys) -> {
+            Map<String, RepositoryModuleInfo[]> moduleInfos = new HashMap<>();
+            keys.forEach((key, keyModuleInfos) -> moduleInfos.put(key, keyModuleInfos.toArray(RepositoryModuleInfo[]::new)));
+            target.put(parent, moduleInfos);
+        });
+    }
+
+}
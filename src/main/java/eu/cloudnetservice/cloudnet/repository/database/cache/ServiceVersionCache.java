@@ -0,0 +1,43 @@
+package eu.cloudnetservice.cloudnet.repository.database.cache;
+
+import eu.cloudnetservice.cloudnet.repository.version.service.ServiceVersionType;
+
+import java.util.*;
+
+public class ServiceVersionCache {
+
+    private static final ServiceVersionType[] EMPTY = new ServiceVersionType[0];
+
+    private final ServiceVersionType[] versionTypes;
+    private final Map<String, ServiceVersionType[]> versionTypesByParent = new HashMap<>();
+    private final Map<String, Set<String>> versionTypeNames = new HashMap<>();
+
+    public ServiceVersionCache(ServiceVersionType[] versionTypes) {
+        this.versionTypes = versionTypes;
+
+        Map<String, Collection<ServiceVersionType>> versionTypesByParent = new HashMap<>();
+        for (ServiceVersionType versionType : versionTypes) {
+            versionTypesByParent.computeIfAbsent(versionType.getParentVersionName(), key -> new ArrayList<>()).add(versionType);
+            this.versionTypeNames.computeIfAbsent(versionType.getParentVersionName(), key -> new HashSet<>()).add(versionType.getName());
+        }
+        versionTypesByParent.forEach((parent, parentVersionTypes) -> this.versionTypesByParent.put(parent, parentVersionTypes.toArray(ServiceVersionType[]::new)));
+    }
+
+    public ServiceVersionCache withVersionType(ServiceVersionType versionType) {
+        return new ServiceVersionCache(CacheArrays.replace(
+                this.versionTypes,
+                versionType,
+                cached -> cached.getParentVersionName().equals(versionType.getParentVersionName()) && cached.getName().equals(versionType.getName())
+        ));
+    }
+
+    public ServiceVersionType[] getVersionTypes(String parentVersionName) {
+        return this.versionTypesByParent.getOrDefault(parentVersionName, EMPTY);
+    }
+
+    public boolean contains(String parentVersionName, String name) {
+        Set<String> names = this.versionTypeNames.get(parentVersionName);
+        return names != null && names.contains(name);
+    }
+
+}
@@ -0,0 +1,40 @@
+package eu.cloudnetservice.cloudnet.repository.database.cache;
+
+import eu.cloudnetservice.cloudnet.repository.web.WebUser;
+
+import java.util.*;
+
+public class UserCache {
+
+    private final WebUser[] users;
+    private final Map<String, WebUser> usersByName = new HashMap<>();
+    private final Collection<String> userNames;
+
+    public UserCache(WebUser[] users) {
+        this.users = users;
+
+        Collection<String> userNames = new ArrayList<>(users.length);
+        for (WebUser user : users) {
+            this.usersByName.putIfAbsent(user.getUsername(), user);
+            userNames.add(user.getUsername());
+        }
+        this.userNames = Collections.unmodifiableCollection(userNames);
+    }
+
+    public UserCache withUser(WebUser user) {
+        return new UserCache(CacheArrays.replace(this.users, user, cached -> cached.getUsername().equals(user.getUsername())));
+    }
+
+    public UserCache withoutUser(String username) {
+        return new UserCache(CacheArrays.remove(this.users, cached -> cached.getUsername().equals(username), WebUser[]::new));
+    }
+
+    public WebUser getUser(String username) {
+        return this.usersByName.get(username);
+    }
+
+    public Collection<String> getUserNames() {
+        return this.userNames;
+    }
+
+}
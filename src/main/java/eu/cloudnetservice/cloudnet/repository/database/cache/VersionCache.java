@@ -0,0 +1,68 @@
+package eu.cloudnetservice.cloudnet.repository.database.cache;
+
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
+
+import java.util.*;
+
+public class VersionCache {
+
+    private static final CloudNetVersion[] EMPTY = new CloudNetVersion[0];
+
+    private final CloudNetVersion[] versions;
+    // the parent version names are compared case insensitive, the keys are always lower case
+    private final Map<String, Map<String, CloudNetVersion>> versionsByParent = new HashMap<>();
+    private final Map<String, CloudNetVersion[]> allVersionsByParent = new HashMap<>();
+    private final Map<String, CloudNetVersion> latestVersions = new HashMap<>();
+
+    public VersionCache(CloudNetVersion[] versions) {
+        this.versions = versions;
+
+        Map<String, Collection<CloudNetVersion>> allVersions = new HashMap<>();
+        for (CloudNetVersion version : versions) {
+            if (version == null) {
+                continue;
+            }
+            String parent = version.getParentVersionName().toLowerCase();
+
+            this.versionsByParent.computeIfAbsent(parent, key -> new HashMap<>()).putIfAbsent(version.getName(), version);
+            allVersions.computeIfAbsent(parent, key -> new ArrayList<>()).add(version);
+
+            CloudNetVersion latestVersion = this.latestVersions.get(parent);
+            if (latestVersion == null || version.getReleaseDate().compareTo(latestVersion.getReleaseDate()) > 0) {
+                this.latestVersions.put(parent, version);
+            }
+        }
+        allVersions.forEach((parent, parentVersions) -> this.allVersionsByParent.put(parent, parentVersions.toArray(CloudNetVersion[]::new)));
+    }
+
+    public CloudNetVersion[] getVersions() {
+        return this.versions;
+    }
+
+    public CloudNetVersion getVersion(String parentVersionName, String name) {
+        Map<String, CloudNetVersion> versions = this.versionsByParent.get(parentVersionName.toLowerCase());
+        return versions != null ? versions.get(name) : null;
+    }
+
+    public CloudNetVersion getLatestVersion(String parentVersionName) {
+        return this.latestVersions.get(parentVersionName.toLowerCase());
+    }
+
+    public CloudNetVersion[] getVersions(String parentVersionName) {
+        return this.allVersionsByParent.getOrDefault(parentVersionName.toLowerCase(), EMPTY);
+    }
+
+    public VersionCache withVersion(CloudNetVersion version) {
+        return new VersionCache(CacheArrays.replace(this.versions, version, cached -> cached != null && cached.getName().equals(version.getName())));
+    }
+
+    public boolean contains(String name) {
+        for (Map<String, CloudNetVersion> versions : this.versionsByParent.values()) {
+            if (versions.containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -1,22 +1,32 @@
 package eu.cloudnetservice.cloudnet.repository.database.statistics;
 
+import com.google.gson.JsonParseException;
 import de.dytanic.cloudnet.common.JavaVersion;
+import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import eu.cloudnetservice.cloudnet.repository.database.Database;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.external.ExternalStatistics;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.*;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries.TimeSeriesRange;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries.TimeSeriesResolution;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries.TimeSeriesStore;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
+import eu.cloudnetservice.cloudnet.repository.web.ConditionalRequests;
+import eu.cloudnetservice.cloudnet.repository.web.ratelimit.RateLimiter;
 import eu.cloudnetservice.cloudnet.repository.web.registry.GeneralHandlerRegistry;
 import io.javalin.Javalin;
 import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import io.javalin.http.NotFoundResponse;
-import io.javalin.http.util.RateLimit;
+import io.javalin.http.ServiceUnavailableResponse;
 import io.javalin.plugin.openapi.dsl.OpenApiUpdater;
 import io.swagger.v3.oas.models.Operation;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static io.javalin.apibuilder.ApiBuilder.path;
 import static io.javalin.apibuilder.ApiBuilder.post;
@@ -26,9 +36,17 @@ import static io.javalin.plugin.openapi.dsl.OpenApiBuilder.documented;
 public class StatisticsManager {
 
     private final Database database;
+    // installs that did not report within this window are removed from the statistics
+    private final long activeInstallWindow = TimeUnit.DAYS.toMillis(Integer.getInteger("cloudnet.repository.statistics.activeDays", 30));
+
+    private static final long EXTERNAL_SNAPSHOT_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final int MAX_RATE_LIMITED_KEYS = 100000;
+    private static final long EXPIRY_INTERVAL = TimeUnit.HOURS.toMillis(1);
 
     private InternalStatistics currentStatistics;
-    private boolean modified = false;
+    private StatisticsWriter writer;
+    private final TimeSeriesStore timeSeries = new TimeSeriesStore(Integer.getInteger("cloudnet.repository.statistics.maxTimeSeries", 1000));
+    private volatile ExternalStatisticsSnapshot externalSnapshot;
 
     public StatisticsManager(Database database) {
         this.database = database;
@@ -36,12 +54,27 @@ public class StatisticsManager {
 
     public void init(ExecutorService executorService, Javalin javalin) {
         this.currentStatistics = this.database.getStatistics();
+        this.writer = new StatisticsWriter(this.currentStatistics, Integer.getInteger("cloudnet.repository.statistics.queueSize", 10000));
+
+        executorService.execute(this.writer);
+        executorService.execute(() -> {
+            while (!Thread.interrupted()) {
+                int expired = this.writer.expireInstalls(System.currentTimeMillis() - this.activeInstallWindow);
+                if (expired > 0) {
+                    System.out.println("Expired " + expired + " installs that did not report within the active window");
+                }
 
+                try {
+                    Thread.sleep(EXPIRY_INTERVAL);
+                } catch (InterruptedException exception) {
+                    break;
+                }
+            }
+        });
         executorService.execute(() -> {
             while (!Thread.interrupted()) {
-                if (this.modified) {
+                if (this.currentStatistics.hasChanges()) {
                     this.database.updateStatistics(this.currentStatistics);
-                    this.modified = false;
                 }
 
                 try {
@@ -52,123 +85,248 @@ public class StatisticsManager {
             }
         });
 
-        this.initWeb(executorService, javalin);
+        this.initWeb(javalin);
     }
 
-    private void initWeb(ExecutorService executorService, Javalin javalin) {
+    private void initWeb(Javalin javalin) {
+        RateLimiter serverVersionLimiter = new RateLimiter(20, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter javaVersionLimiter = new RateLimiter(3, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter cloudNetVersionLimiter = new RateLimiter(3, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter countryLimiter = new RateLimiter(2, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter countryIdLimiter = new RateLimiter(2, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter operatingSystemLimiter = new RateLimiter(2, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter reportLimiter = new RateLimiter(20, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+        RateLimiter reportIdLimiter = new RateLimiter(2, TimeUnit.DAYS, MAX_RATE_LIMITED_KEYS);
+
         javalin.get("/api/statistics", documented(
                 document()
                         .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get the global statistics of CloudNet").addTagsItem(GeneralHandlerRegistry.GENERAL_TAG))
                         .json("200", ExternalStatistics.class)
                         .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                (Handler) ctx -> ctx.json(this.getExternalStatistics())
+                (Handler) ctx -> {
+                    ExternalStatisticsSnapshot snapshot = this.getExternalSnapshot();
+                    ConditionalRequests.sendResult(ctx, snapshot.json, snapshot.entityTag, "application/json");
+                }
+        ));
+
+        javalin.get("/api/statistics/timeseries", documented(
+                document()
+                        .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get the names of all time series").addTagsItem(GeneralHandlerRegistry.GENERAL_TAG))
+                        .jsonArray("200", String.class)
+                        .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
+                (Handler) ctx -> ctx.json(this.timeSeries.getSeriesNames())
+        ));
+        javalin.get("/api/statistics/timeseries/:series", documented(
+                document()
+                        .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get the counters of a time series, resolution is minute, hour or day and from/to are unix timestamps in milliseconds").addTagsItem(GeneralHandlerRegistry.GENERAL_TAG))
+                        .json("200", TimeSeriesRange.class)
+                        .result("400", (Class<?>) null, apiResponse -> apiResponse.description("Invalid resolution or range"))
+                        .result("404", (Class<?>) null, apiResponse -> apiResponse.description("Time series not found"))
+                        .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
+                (Handler) ctx -> {
+                    TimeSeriesResolution resolution = TimeSeriesResolution.parseResolution(ctx.queryParam("resolution", "hour"));
+                    if (resolution == null) {
+                        throw new BadRequestResponse("Resolution not found");
+                    }
+                    long to = ctx.queryParam("to", Long.class, String.valueOf(System.currentTimeMillis())).get();
+                    long from = ctx.queryParam("from", Long.class, String.valueOf(to - resolution.getRetention())).get();
+                    if (from < 0 || to < 0 || from > to) {
+                        throw new BadRequestResponse("Invalid range");
+                    }
+
+                    TimeSeriesRange range = this.timeSeries.query(ctx.pathParam("series"), resolution, from, to);
+                    if (range == null) {
+                        throw new NotFoundResponse("Time series not found");
+                    }
+                    ctx.json(range);
+                }
         ));
 
         javalin.routes(() -> path("/internal/statistics", () -> {
-            post("serverVersion", ctx -> {
-                new RateLimit(ctx).requestPerTimeUnit(20, TimeUnit.DAYS);
+            post("report", ctx -> {
+                reportLimiter.acquire(ctx, ctx.ip());
 
-                String rawVersion = ctx.header("X-Server-Version");
-                if (rawVersion == null || rawVersion.length() >= 10) {
-                    throw new BadRequestResponse();
+                StatisticsReport report;
+                try {
+                    report = JsonDocument.GSON.fromJson(ctx.body(), StatisticsReport.class);
+                } catch (JsonParseException exception) {
+                    throw new BadRequestResponse("Invalid report");
+                }
+                if (report == null) {
+                    throw new BadRequestResponse("Invalid report");
                 }
-
-                ServerVersion version = ServerVersion.parseServerVersion(rawVersion).orElseThrow(() -> new BadRequestResponse("Version not found"));
 
                 CloudId id = this.getId(ctx);
 
-                this.getStatistics().acceptStatistics(id.getParentVersion(), statistics -> statistics.getServerVersions().get(version).add(id));
+                // everything is validated before anything is queued, a report is applied completely or not at all
+                String cloudNetVersion = report.getCloudNetVersion() != null ? this.parseCloudNetVersion(id, report.getCloudNetVersion()) : null;
+                JavaVersion javaVersion = report.getJavaVersion() != null ? this.parseJavaVersion(report.getJavaVersion()) : null;
+                OperatingSystem operatingSystem = report.getOperatingSystem() != null ? this.parseOperatingSystem(report.getOperatingSystem()) : null;
+                String country = report.getCountry() != null ? this.parseCountry(report.getCountry()) : null;
+                Collection<ServerVersion> serverVersions = new ArrayList<>();
+                if (report.getServerVersions() != null) {
+                    if (report.getServerVersions().length > ServerVersion.values().length) {
+                        throw new BadRequestResponse();
+                    }
+                    for (String serverVersion : report.getServerVersions()) {
+                        serverVersions.add(this.parseServerVersion(serverVersion));
+                    }
+                }
 
+                reportIdLimiter.acquire(ctx, id.getUniqueId());
+
+                this.enqueue(ctx, id, "report", statistics -> {
+                    if (cloudNetVersion != null) {
+                        statistics.setCloudNetVersion(id, cloudNetVersion);
+                    }
+                    if (javaVersion != null) {
+                        statistics.setJavaVersion(id, javaVersion);
+                    }
+                    if (operatingSystem != null) {
+                        statistics.setOperatingSystem(id, operatingSystem);
+                    }
+                    if (country != null) {
+                        statistics.setCountry(id, country);
+                    }
+                    for (ServerVersion serverVersion : serverVersions) {
+                        statistics.addServerVersion(id, serverVersion);
+                    }
+                }, () -> reportIdLimiter.block(id.getUniqueId()));
             });
-            post("javaVersion", ctx -> {
-                new RateLimit(ctx).requestPerTimeUnit(3, TimeUnit.DAYS);
+            post("serverVersion", ctx -> {
+                serverVersionLimiter.acquire(ctx, ctx.ip());
 
-                String rawVersion = ctx.header("X-Java-Version");
-                if (rawVersion == null || rawVersion.length() >= 3) {
-                    throw new BadRequestResponse();
-                }
+                ServerVersion version = this.parseServerVersion(ctx.header("X-Server-Version"));
 
-                int parsedVersion;
-                try {
-                    parsedVersion = Integer.parseInt(rawVersion);
-                } catch (NumberFormatException exception) {
-                    throw new BadRequestResponse();
-                }
+                CloudId id = this.getId(ctx);
+
+                this.enqueue(ctx, id, "serverVersion", statistics -> statistics.addServerVersion(id, version), () -> {});
+            });
+            post("javaVersion", ctx -> {
+                javaVersionLimiter.acquire(ctx, ctx.ip());
 
-                JavaVersion version = JavaVersion.fromVersionId(parsedVersion).orElseThrow(() -> new BadRequestResponse("JavaVersion not found"));
+                JavaVersion version = this.parseJavaVersion(ctx.header("X-Java-Version"));
 
                 CloudId id = this.getId(ctx);
 
-                this.getStatistics().acceptStatistics(id.getParentVersion(), statistics -> statistics.getJavaVersions().put(id, version));
+                this.enqueue(ctx, id, "javaVersion", statistics -> statistics.setJavaVersion(id, version), () -> {});
             });
             post("cloudNetVersion", ctx -> {
-                new RateLimit(ctx).requestPerTimeUnit(3, TimeUnit.DAYS);
+                cloudNetVersionLimiter.acquire(ctx, ctx.ip());
 
                 String rawVersion = ctx.header("X-CloudNet-Version");
-                if (rawVersion == null || rawVersion.length() >= 20) {
-                    throw new BadRequestResponse();
-                }
 
                 CloudId id = this.getId(ctx);
 
-                CloudNetVersion version = this.database.getVersion(id.getParentVersion(), rawVersion);
-                if (version == null) {
-                    throw new BadRequestResponse();
-                }
+                String version = this.parseCloudNetVersion(id, rawVersion);
 
-                this.getStatistics().acceptStatistics(id.getParentVersion(), statistics -> statistics.getInstalledVersions().put(id, version.getName()));
+                this.enqueue(ctx, id, "cloudNetVersion", statistics -> statistics.setCloudNetVersion(id, version), () -> {});
             });
-
-            StatisticsRateLimiter countryLimiter = new StatisticsRateLimiter(executorService, TimeUnit.DAYS, 2);
             post("country", ctx -> {
-                new RateLimit(ctx).requestPerTimeUnit(2, TimeUnit.DAYS);
+                countryLimiter.acquire(ctx, ctx.ip());
 
-                String country = ctx.header("X-Country");
-                if (country == null || country.length() >= 50) {
-                    throw new BadRequestResponse();
-                }
+                String country = this.parseCountry(ctx.header("X-Country"));
 
                 CloudId id = this.getId(ctx);
-                countryLimiter.test(id);
-
-                this.getStatistics().acceptStatistics(id.getParentVersion(), statistics -> {
-                    // todo check if country exists?
-                    statistics.getCountries().put(id, country);
-                }, () -> countryLimiter.block(id));
+                countryIdLimiter.acquire(ctx, id.getUniqueId());
 
+                // todo check if country exists?
+                this.enqueue(ctx, id, "country", statistics -> statistics.setCountry(id, country), () -> countryIdLimiter.block(id.getUniqueId()));
             });
             post("operatingSystem", ctx -> {
-                new RateLimit(ctx).requestPerTimeUnit(2, TimeUnit.DAYS);
+                operatingSystemLimiter.acquire(ctx, ctx.ip());
 
-                String rawOperatingSystem = ctx.header("X-Operating-System");
-                if (rawOperatingSystem == null) {
-                    throw new BadRequestResponse();
-                }
-
-                OperatingSystem operatingSystem = OperatingSystem.parseOperatingSystem(rawOperatingSystem);
-                if (operatingSystem == null) {
-                    throw new NotFoundResponse("OperatingSystem not found");
-                }
+                OperatingSystem operatingSystem = this.parseOperatingSystem(ctx.header("X-Operating-System"));
 
                 CloudId id = this.getId(ctx);
 
-                this.getStatistics().acceptStatistics(id.getParentVersion(), statistics -> statistics.getOperatingSystems().put(id, operatingSystem));
-
+                this.enqueue(ctx, id, "operatingSystem", statistics -> statistics.setOperatingSystem(id, operatingSystem), () -> {});
             });
         }));
     }
 
+    private void enqueue(Context ctx, CloudId id, String dimension, Consumer<InternalVersionedStatistics> consumer, Runnable orElse) {
+        if (!this.writer.offer(id, consumer, orElse)) {
+            throw new ServiceUnavailableResponse("Too many statistics reports, try again later");
+        }
+        // the parent is sent by the client, unknown parents would only fill the time series store
+        if (this.currentStatistics.getVersionedStatistics(id.getParentVersion()).isPresent()) {
+            long now = System.currentTimeMillis();
+            this.timeSeries.increment(TimeSeriesStore.seriesName(TimeSeriesStore.REPORTS, id.getParentVersion()), now);
+            this.timeSeries.increment(TimeSeriesStore.seriesName(TimeSeriesStore.REPORTS, id.getParentVersion(), dimension), now);
+        }
+        ctx.status(202);
+    }
+
+    private ServerVersion parseServerVersion(String rawVersion) {
+        if (rawVersion == null || rawVersion.length() >= 10) {
+            throw new BadRequestResponse();
+        }
+
+        return ServerVersion.parseServerVersion(rawVersion).orElseThrow(() -> new BadRequestResponse("Version not found"));
+    }
+
+    private JavaVersion parseJavaVersion(String rawVersion) {
+        if (rawVersion == null || rawVersion.length() >= 3) {
+            throw new BadRequestResponse();
+        }
+
+        int parsedVersion;
+        try {
+            parsedVersion = Integer.parseInt(rawVersion);
+        } catch (NumberFormatException exception) {
+            throw new BadRequestResponse();
+        }
+
+        return JavaVersion.fromVersionId(parsedVersion).orElseThrow(() -> new BadRequestResponse("JavaVersion not found"));
+    }
+
+    private String parseCloudNetVersion(CloudId id, String rawVersion) {
+        if (rawVersion == null || rawVersion.length() >= 20) {
+            throw new BadRequestResponse();
+        }
+
+        CloudNetVersion version = this.database.getVersion(id.getParentVersion(), rawVersion);
+        if (version == null) {
+            throw new BadRequestResponse();
+        }
+        return version.getName();
+    }
+
+    private String parseCountry(String country) {
+        if (country == null || country.length() >= 50) {
+            throw new BadRequestResponse();
+        }
+        return country;
+    }
+
+    private OperatingSystem parseOperatingSystem(String rawOperatingSystem) {
+        if (rawOperatingSystem == null) {
+            throw new BadRequestResponse();
+        }
+
+        OperatingSystem operatingSystem = OperatingSystem.parseOperatingSystem(rawOperatingSystem);
+        if (operatingSystem == null) {
+            throw new NotFoundResponse("OperatingSystem not found");
+        }
+        return operatingSystem;
+    }
+
     private CloudId getId(Context ctx) {
         CloudId id = CloudId.parse(ctx.header("CloudNet-ID"), ctx.ip());
 
-        if (id == null) {
+        // the id is stored in the database, it has to fit into the statistics tables
+        if (id == null || id.getUniqueId().length() > 64) {
             throw new BadRequestResponse();
         }
         return id;
     }
 
     public void save() {
-        if (this.modified) {
+        if (this.writer != null) {
+            this.writer.drain();
+        }
+        if (this.currentStatistics.hasChanges()) {
             this.database.updateStatistics(this.currentStatistics);
         }
     }
@@ -181,10 +339,53 @@ public class StatisticsManager {
         return this.currentStatistics.toExternal();
     }
 
+    // the serialized statistics are shared by all requests and rebuilt at most once per interval
+    private ExternalStatisticsSnapshot getExternalSnapshot() {
+        ExternalStatisticsSnapshot snapshot = this.externalSnapshot;
+        long now = System.currentTimeMillis();
+        if (snapshot == null || (now - snapshot.creationTime >= EXTERNAL_SNAPSHOT_INTERVAL && this.currentStatistics.pollModified())) {
+            String json = JsonDocument.GSON.toJson(this.currentStatistics.toExternal());
+            snapshot = new ExternalStatisticsSnapshot(json, ConditionalRequests.computeEntityTag(json), now);
+            this.externalSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
     public void increaseDownloads(String version) {
-        this.currentStatistics.getVersionedStatistics(version).ifPresent(InternalVersionedStatistics::increaseDownloads);
-        this.currentStatistics.getGlobalStatistics().increaseDownloads();
-        this.modified = true;
+        this.increaseDownloads(version, System.currentTimeMillis());
+    }
+
+    // only files of released versions get their own series, the number of series is limited and
+    // other paths like the pages of the docs would take the place of the files that matter
+    public void increaseDownloads(String version, String fileName) {
+        long now = System.currentTimeMillis();
+        this.increaseDownloads(version, now);
+        this.timeSeries.increment(TimeSeriesStore.seriesName(TimeSeriesStore.DOWNLOADS, version, fileName), now);
+    }
+
+    private void increaseDownloads(String version, long now) {
+        this.currentStatistics.increaseDownloads(version);
+
+        this.timeSeries.increment(TimeSeriesStore.seriesName(TimeSeriesStore.DOWNLOADS, InternalStatistics.GLOBAL_SCOPE), now);
+        this.timeSeries.increment(TimeSeriesStore.seriesName(TimeSeriesStore.DOWNLOADS, version), now);
+    }
+
+    public TimeSeriesStore getTimeSeries() {
+        return this.timeSeries;
+    }
+
+    private static class ExternalStatisticsSnapshot {
+
+        private final String json;
+        private final String entityTag;
+        private final long creationTime;
+
+        private ExternalStatisticsSnapshot(String json, String entityTag, long creationTime) {
+            this.json = json;
+            this.entityTag = entityTag;
+            this.creationTime = creationTime;
+        }
+
     }
 
 }
@@ -0,0 +1,40 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics;
+
+// body of /internal/statistics/report, every dimension is optional
+public class StatisticsReport {
+
+    private String cloudNetVersion;
+    private String javaVersion;
+    private String operatingSystem;
+    private String country;
+    private String[] serverVersions;
+
+    public StatisticsReport(String cloudNetVersion, String javaVersion, String operatingSystem, String country, String[] serverVersions) {
+        this.cloudNetVersion = cloudNetVersion;
+        this.javaVersion = javaVersion;
+        this.operatingSystem = operatingSystem;
+        this.country = country;
+        this.serverVersions = serverVersions;
+    }
+
+    public String getCloudNetVersion() {
+        return this.cloudNetVersion;
+    }
+
+    public String getJavaVersion() {
+        return this.javaVersion;
+    }
+
+    public String getOperatingSystem() {
+        return this.operatingSystem;
+    }
+
+    public String getCountry() {
+        return this.country;
+    }
+
+    public String[] getServerVersions() {
+        return this.serverVersions;
+    }
+
+}
@@ -0,0 +1,94 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics;
+
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.CloudId;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalStatistics;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalVersionedStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+// the web threads only enqueue reports, a single thread applies them to the statistics in batches
+public class StatisticsWriter implements Runnable {
+
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private final InternalStatistics statistics;
+    private final BlockingQueue<Update> queue;
+
+    public StatisticsWriter(InternalStatistics statistics, int capacity) {
+        this.statistics = statistics;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    // returns false if the queue is full
+    public boolean offer(CloudId id, Consumer<InternalVersionedStatistics> consumer, Runnable orElse) {
+        return this.queue.offer(new Update(id, consumer, orElse));
+    }
+
+    public boolean offer(CloudId id, Consumer<InternalVersionedStatistics> consumer) {
+        return this.offer(id, consumer, () -> {});
+    }
+
+    public int getQueuedUpdates() {
+        return this.queue.size();
+    }
+
+    @Override
+    public void run() {
+        List<Update> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            this.queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            this.apply(batch);
+            batch.clear();
+        }
+        this.drain();
+    }
+
+    // applies everything that is still queued, used before the statistics are saved on shutdown
+    public synchronized void drain() {
+        List<Update> batch = new ArrayList<>();
+        while (this.queue.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+            this.apply(batch);
+            batch.clear();
+        }
+    }
+
+    // runs between two batches, the expiry must never see a report that is only half applied
+    public synchronized int expireInstalls(long minimumTimestamp) {
+        return this.statistics.expireInstalls(minimumTimestamp);
+    }
+
+    private synchronized void apply(List<Update> batch) {
+        for (Update update : batch) {
+            try {
+                this.statistics.acceptStatistics(update.id, update.consumer, update.orElse);
+            } catch (RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    private static class Update {
+
+        private final CloudId id;
+        private final Consumer<InternalVersionedStatistics> consumer;
+        private final Runnable orElse;
+
+        private Update(CloudId id, Consumer<InternalVersionedStatistics> consumer, Runnable orElse) {
+            this.id = id;
+            this.consumer = consumer;
+            this.orElse = orElse;
+        }
+
+    }
+
+}
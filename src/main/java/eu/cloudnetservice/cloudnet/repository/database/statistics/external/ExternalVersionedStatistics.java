@@ -9,14 +9,16 @@ import java.util.Map;
 public class ExternalVersionedStatistics {
 
     private long downloads;
+    private long expiredInstalls;
     private Map<String, Long> cloudNetVersions;
     private Map<ServerVersion, Integer> serverVersions;
     private Map<JavaVersion, Long> javaVersions;
     private Map<OperatingSystem, Long> operatingSystem;
     private Map<String, Long> countries;
 
-    public ExternalVersionedStatistics(long downloads, Map<String, Long> cloudNetVersions, Map<ServerVersion, Integer> serverVersions, Map<JavaVersion, Long> javaVersions, Map<OperatingSystem, Long> operatingSystem, Map<String, Long> countries) {
+    public ExternalVersionedStatistics(long downloads, long expiredInstalls, Map<String, Long> cloudNetVersions, Map<ServerVersion, Integer> serverVersions, Map<JavaVersion, Long> javaVersions, Map<OperatingSystem, Long> operatingSystem, Map<String, Long> countries) {
         this.downloads = downloads;
+        this.expiredInstalls = expiredInstalls;
         this.cloudNetVersions = cloudNetVersions;
         this.serverVersions = serverVersions;
         this.javaVersions = javaVersions;
@@ -28,6 +30,10 @@ public class ExternalVersionedStatistics {
         return this.downloads;
     }
 
+    public long getExpiredInstalls() {
+        return this.expiredInstalls;
+    }
+
     public Map<String, Long> getCloudNetVersions() {
         return this.cloudNetVersions;
     }
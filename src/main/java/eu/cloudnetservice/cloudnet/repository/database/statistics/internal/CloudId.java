@@ -10,10 +10,14 @@ public class CloudId {
     private long timestamp;
 
     public CloudId(String parentVersion, String uniqueId, String latestIp) {
+        this(parentVersion, uniqueId, latestIp, System.currentTimeMillis());
+    }
+
+    public CloudId(String parentVersion, String uniqueId, String latestIp, long timestamp) {
         this.parentVersion = parentVersion;
         this.uniqueId = uniqueId;
         this.latestIp = latestIp;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
     }
 
     public String getParentVersion() {
@@ -44,7 +48,6 @@ public class CloudId {
     public int hashCode() {
         return Objects.hash(uniqueId);
     }
-// todo equals/hashcode methods
 
     public static CloudId parse(String line, String ip) {
         if (line == null) {
@@ -0,0 +1,117 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// assigns every install a dense index which is used for the columns of all versioned statistics,
+// an index is reused once no statistics reference its install anymore
+public class InstallRegistry {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private String[] uniqueIds = new String[64];
+    private int[] references = new int[64];
+    private int[] freeIndices = new int[16];
+    private int freeCount;
+    private int size;
+
+    // values like CloudNet versions or countries are stored once and only referenced by their index,
+    // every column entry holding a value is one reference and the index is reused once there are none left
+    private final Map<String, Integer> valueIndices = new HashMap<>();
+    private String[] values = new String[16];
+    private int[] valueReferences = new int[16];
+    private int[] freeValueIndices = new int[16];
+    private int freeValueCount;
+    private int valueSize;
+
+    public synchronized int indexOf(String uniqueId) {
+        Integer index = this.indices.get(uniqueId);
+        return index != null ? index : -1;
+    }
+
+    public synchronized String getUniqueId(int index) {
+        return index < this.size ? this.uniqueIds[index] : null;
+    }
+
+    // returns the index of the install and adds one reference to it
+    public synchronized int retain(String uniqueId) {
+        Integer existingIndex = this.indices.get(uniqueId);
+        int index;
+        if (existingIndex != null) {
+            index = existingIndex;
+        } else {
+            index = this.freeCount > 0 ? this.freeIndices[--this.freeCount] : this.size++;
+            if (index >= this.uniqueIds.length) {
+                this.uniqueIds = Arrays.copyOf(this.uniqueIds, this.uniqueIds.length * 2);
+                this.references = Arrays.copyOf(this.references, this.references.length * 2);
+            }
+            this.uniqueIds[index] = uniqueId;
+            this.indices.put(uniqueId, index);
+        }
+        this.references[index]++;
+        return index;
+    }
+
+    public synchronized void release(int index) {
+        if (index >= this.size || this.references[index] == 0 || --this.references[index] > 0) {
+            return;
+        }
+
+        this.indices.remove(this.uniqueIds[index]);
+        this.uniqueIds[index] = null;
+        if (this.freeCount == this.freeIndices.length) {
+            this.freeIndices = Arrays.copyOf(this.freeIndices, this.freeIndices.length * 2);
+        }
+        this.freeIndices[this.freeCount++] = index;
+    }
+
+    // the upper bound of all indices, used to size the columns
+    public synchronized int getCapacity() {
+        return this.uniqueIds.length;
+    }
+
+    public synchronized int getInstalls() {
+        return this.indices.size();
+    }
+
+    // returns the index of the value and adds one reference to it
+    public synchronized int retainValue(String value) {
+        Integer existingIndex = this.valueIndices.get(value);
+        int index;
+        if (existingIndex != null) {
+            index = existingIndex;
+        } else {
+            index = this.freeValueCount > 0 ? this.freeValueIndices[--this.freeValueCount] : this.valueSize++;
+            if (index >= this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.values.length * 2);
+                this.valueReferences = Arrays.copyOf(this.valueReferences, this.valueReferences.length * 2);
+            }
+            this.values[index] = value;
+            this.valueIndices.put(value, index);
+        }
+        this.valueReferences[index]++;
+        return index;
+    }
+
+    public synchronized void releaseValue(int valueIndex) {
+        if (valueIndex >= this.valueSize || this.valueReferences[valueIndex] == 0 || --this.valueReferences[valueIndex] > 0) {
+            return;
+        }
+
+        this.valueIndices.remove(this.values[valueIndex]);
+        this.values[valueIndex] = null;
+        if (this.freeValueCount == this.freeValueIndices.length) {
+            this.freeValueIndices = Arrays.copyOf(this.freeValueIndices, this.freeValueIndices.length * 2);
+        }
+        this.freeValueIndices[this.freeValueCount++] = valueIndex;
+    }
+
+    public synchronized int getValues() {
+        return this.valueIndices.size();
+    }
+
+    public synchronized String getValue(int valueIndex) {
+        return valueIndex < this.valueSize ? this.values[valueIndex] : null;
+    }
+
+}
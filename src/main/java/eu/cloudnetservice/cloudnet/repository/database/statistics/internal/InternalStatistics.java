@@ -3,25 +3,33 @@ package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.external.ExternalStatistics;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.external.ExternalVersionedStatistics;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public class InternalStatistics {
 
-    private InternalVersionedStatistics globalStatistics;
-    private Map<String, InternalVersionedStatistics> versionedStatistics;
+    // download counters are stored per parent version, the global counter uses this scope
+    public static final String GLOBAL_SCOPE = "*";
+
+    // shared by all statistics in here so that every install only has one index
+    private final transient InstallRegistry registry = new InstallRegistry();
+    private final InternalVersionedStatistics globalStatistics;
+    private final Map<String, InternalVersionedStatistics> versionedStatistics;
+
+    // only the counters and expired installs in here have to be written on the next save, changed installs
+    // and their latest reports are kept by the versioned statistics in columns of the install index
+    private final transient Set<String> changedDownloads = ConcurrentHashMap.newKeySet();
+    private final transient Map<String, CloudId> expiredIds = new ConcurrentHashMap<>();
+    private transient volatile boolean modifiedSinceExternal = true;
 
     public InternalStatistics() {
-        this.globalStatistics = new InternalVersionedStatistics();
-        this.versionedStatistics = new HashMap<>();
+        this.globalStatistics = new InternalVersionedStatistics(this.registry);
+        this.versionedStatistics = new ConcurrentHashMap<>();
     }
 
     public void registerVersion(String version) {
-        if (!this.versionedStatistics.containsKey(version)) {
-            this.versionedStatistics.put(version, new InternalVersionedStatistics());
-        }
+        this.versionedStatistics.computeIfAbsent(version, key -> new InternalVersionedStatistics(this.registry));
     }
 
     public Map<String, InternalVersionedStatistics> getVersionedStatistics() {
@@ -42,15 +50,190 @@ public class InternalStatistics {
         return new ExternalStatistics(this.globalStatistics.toExternal(), versionedStatistics);
     }
 
-    public void acceptStatistics(String version, Consumer<InternalVersionedStatistics> consumer, Runnable orElse) {
-        this.getVersionedStatistics(version).ifPresentOrElse(versionedStatistics -> {
+    public void acceptStatistics(CloudId id, Consumer<InternalVersionedStatistics> consumer, Runnable orElse) {
+        this.getVersionedStatistics(id.getParentVersion()).ifPresentOrElse(versionedStatistics -> {
             consumer.accept(versionedStatistics);
             consumer.accept(this.globalStatistics);
+            versionedStatistics.markReported(id);
+            this.markModified();
         }, orElse);
     }
 
-    public void acceptStatistics(String version, Consumer<InternalVersionedStatistics> consumer) {
-        this.acceptStatistics(version, consumer, () -> {});
+    public void acceptStatistics(CloudId id, Consumer<InternalVersionedStatistics> consumer) {
+        this.acceptStatistics(id, consumer, () -> {});
+    }
+
+    // used when loading the statistics from the database, nothing is marked as changed
+    public void restoreStatistics(CloudId id, Consumer<InternalVersionedStatistics> consumer) {
+        this.registerVersion(id.getParentVersion());
+        InternalVersionedStatistics versionedStatistics = this.versionedStatistics.get(id.getParentVersion());
+        consumer.accept(versionedStatistics);
+        consumer.accept(this.globalStatistics);
+        versionedStatistics.restoreReport(id);
+        this.markModified();
+    }
+
+    public void restoreDownloads(String scope, long downloads) {
+        if (scope.equals(GLOBAL_SCOPE)) {
+            this.globalStatistics.setDownloads(downloads);
+        } else {
+            this.registerVersion(scope);
+            this.versionedStatistics.get(scope).setDownloads(downloads);
+        }
+        this.markModified();
+    }
+
+    public void restoreExpiredInstalls(String scope, long expiredInstalls) {
+        if (scope.equals(GLOBAL_SCOPE)) {
+            this.globalStatistics.setExpiredInstalls(expiredInstalls);
+        } else {
+            this.registerVersion(scope);
+            this.versionedStatistics.get(scope).setExpiredInstalls(expiredInstalls);
+        }
+        this.markModified();
+    }
+
+    public long getExpiredInstalls(String scope) {
+        if (scope.equals(GLOBAL_SCOPE)) {
+            return this.globalStatistics.getExpiredInstalls();
+        }
+        return this.getVersionedStatistics(scope).map(InternalVersionedStatistics::getExpiredInstalls).orElse(0L);
+    }
+
+    // removes every install that did not report since the given time, they are only kept in the expired counters
+    // of their scope; this must not run concurrently with acceptStatistics
+    public int expireInstalls(long minimumTimestamp) {
+        int expired = 0;
+        for (Map.Entry<String, InternalVersionedStatistics> entry : this.versionedStatistics.entrySet()) {
+            Collection<CloudId> ids = entry.getValue().expireInstalls(entry.getKey(), minimumTimestamp);
+            if (ids.isEmpty()) {
+                continue;
+            }
+
+            for (CloudId id : ids) {
+                this.expiredIds.put(this.changeKey(id), id);
+                // the same install may still report for another parent version and has to stay in the global statistics then
+                if (this.versionedStatistics.values().stream().noneMatch(statistics -> statistics.hasInstall(id))) {
+                    this.globalStatistics.removeInstall(id);
+                }
+            }
+            this.changedDownloads.add(entry.getKey());
+            this.changedDownloads.add(GLOBAL_SCOPE);
+            expired += ids.size();
+        }
+
+        if (expired > 0) {
+            this.markModified();
+        }
+        return expired;
+    }
+
+    public InstallRegistry getRegistry() {
+        return this.registry;
+    }
+
+    public int getActiveInstalls() {
+        int installs = 0;
+        for (InternalVersionedStatistics statistics : this.versionedStatistics.values()) {
+            installs += statistics.getInstalls();
+        }
+        return installs;
+    }
+
+    public long getDownloads(String scope) {
+        if (scope.equals(GLOBAL_SCOPE)) {
+            return this.globalStatistics.getDownloads();
+        }
+        return this.getVersionedStatistics(scope).map(InternalVersionedStatistics::getDownloads).orElse(0L);
+    }
+
+    public void increaseDownloads(String version) {
+        this.getVersionedStatistics(version).ifPresent(statistics -> {
+            statistics.increaseDownloads();
+            this.changedDownloads.add(version);
+        });
+        this.globalStatistics.increaseDownloads();
+        this.changedDownloads.add(GLOBAL_SCOPE);
+        this.markModified();
+    }
+
+    // returns whether anything changed since the last call, used to decide whether toExternal has to be called again
+    public boolean pollModified() {
+        if (!this.modifiedSinceExternal) {
+            return false;
+        }
+        this.modifiedSinceExternal = false;
+        return true;
+    }
+
+    private void markModified() {
+        // reading first avoids writing the shared field on every download
+        if (!this.modifiedSinceExternal) {
+            this.modifiedSinceExternal = true;
+        }
+    }
+
+    public boolean hasChanges() {
+        if (!this.changedDownloads.isEmpty() || !this.expiredIds.isEmpty()) {
+            return true;
+        }
+        for (InternalVersionedStatistics statistics : this.versionedStatistics.values()) {
+            if (statistics.hasChangedInstalls()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Collection<CloudId> drainChangedIds() {
+        Collection<CloudId> ids = new ArrayList<>();
+        this.versionedStatistics.forEach((version, statistics) -> ids.addAll(statistics.drainChangedInstalls(version)));
+        return ids;
+    }
+
+    public Collection<CloudId> drainExpiredIds() {
+        Collection<CloudId> ids = new ArrayList<>();
+        for (String key : this.expiredIds.keySet()) {
+            CloudId id = this.expiredIds.remove(key);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // the counters of a scope are the downloads and the expired installs
+    public Collection<String> drainChangedDownloads() {
+        Collection<String> scopes = new ArrayList<>();
+        for (String scope : this.changedDownloads) {
+            if (this.changedDownloads.remove(scope)) {
+                scopes.add(scope);
+            }
+        }
+        return scopes;
+    }
+
+    // called if a save failed, the changes will be written again on the next save
+    public void markChanged(Collection<CloudId> ids, Collection<String> downloadScopes) {
+        for (CloudId id : ids) {
+            this.getVersionedStatistics(id.getParentVersion()).ifPresent(statistics -> statistics.markChanged(id));
+        }
+        this.changedDownloads.addAll(downloadScopes);
+    }
+
+    public void markExpired(Collection<CloudId> ids) {
+        for (CloudId id : ids) {
+            this.expiredIds.putIfAbsent(this.changeKey(id), id);
+        }
+    }
+
+    public void markAllDownloadsChanged() {
+        this.changedDownloads.addAll(this.versionedStatistics.keySet());
+        this.changedDownloads.add(GLOBAL_SCOPE);
+    }
+
+    private String changeKey(CloudId id) {
+        return id.getParentVersion() + ":" + id.getUniqueId();
     }
 
 }
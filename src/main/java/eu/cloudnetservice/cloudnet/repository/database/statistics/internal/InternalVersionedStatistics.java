@@ -3,98 +3,320 @@ package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
 import de.dytanic.cloudnet.common.JavaVersion;
 import eu.cloudnetservice.cloudnet.repository.database.statistics.external.ExternalVersionedStatistics;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class InternalVersionedStatistics {
 
-    private long downloads;
-    private Map<CloudId, String> installedVersions;
-    private Map<ServerVersion, Set<CloudId>> serverVersions;
-    private Map<CloudId, JavaVersion> javaVersions;
-    private Map<CloudId, OperatingSystem> operatingSystems;
-    private Map<CloudId, String> countries;
+    private static final JavaVersion[] JAVA_VERSIONS = JavaVersion.values();
+    private static final OperatingSystem[] OPERATING_SYSTEMS = OperatingSystem.values();
+    private static final ServerVersion[] SERVER_VERSIONS = ServerVersion.values();
+
+    // downloads are counted by the web threads without holding the lock of these statistics
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder expiredInstalls = new LongAdder();
+
+    // one column per dimension, indexed by the index of the install in the registry;
+    // values are stored as their index + 1, 0 means that the install did not report that dimension
+    private final InstallRegistry registry;
+    private final BitSet installs = new BitSet();
+    private int[] cloudNetVersions = new int[0];
+    private byte[] javaVersions = new byte[0];
+    private byte[] operatingSystems = new byte[0];
+    private int[] countries = new int[0];
+    private int[] serverVersions = new int[0];
+
+    // the time of the latest report of every install and the installs which have to be written on the next save
+    private long[] lastReports = new long[0];
+    private final BitSet changedInstalls = new BitSet();
+
+    // aggregates for the external statistics, updated with every report so that they never have to be recounted
+    private long[] cloudNetVersionCounts = new long[0];
+    private long[] countryCounts = new long[0];
+    private final long[] javaVersionCounts = new long[JAVA_VERSIONS.length];
+    private final long[] operatingSystemCounts = new long[OPERATING_SYSTEMS.length];
+    private final long[] serverVersionCounts = new long[SERVER_VERSIONS.length];
+
+    public InternalVersionedStatistics(InstallRegistry registry) {
+        this.registry = registry;
+    }
 
     public InternalVersionedStatistics() {
-        this.downloads = 0;
-        this.installedVersions = new HashMap<>();
-        this.serverVersions = new HashMap<>();
-        this.javaVersions = new HashMap<>();
-        this.operatingSystems = new HashMap<>();
-        this.countries = new HashMap<>();
+        this(new InstallRegistry());
+    }
+
+    public long getDownloads() {
+        return this.downloads.sum();
+    }
+
+    // installs that did not report within the active window, they are only kept as this counter
+    public long getExpiredInstalls() {
+        return this.expiredInstalls.sum();
+    }
+
+    public void setExpiredInstalls(long expiredInstalls) {
+        this.expiredInstalls.reset();
+        this.expiredInstalls.add(expiredInstalls);
+    }
+
+    public void increaseDownloads() {
+        this.downloads.increment();
+    }
 
-        for (ServerVersion version : ServerVersion.values()) {
-            this.serverVersions.put(version, new HashSet<>());
+    // only used while loading, there are no concurrent increments at that time
+    public void setDownloads(long downloads) {
+        this.downloads.reset();
+        this.downloads.add(downloads);
+    }
+
+    public synchronized int getInstalls() {
+        return this.installs.cardinality();
+    }
+
+    public synchronized boolean hasInstall(CloudId id) {
+        return this.indexOf(id) != -1;
+    }
+
+    public synchronized String getCloudNetVersion(CloudId id) {
+        int index = this.indexOf(id);
+        return index != -1 && this.cloudNetVersions[index] != 0 ? this.registry.getValue(this.cloudNetVersions[index] - 1) : null;
+    }
+
+    public synchronized JavaVersion getJavaVersion(CloudId id) {
+        int index = this.indexOf(id);
+        return index != -1 && this.javaVersions[index] != 0 ? JAVA_VERSIONS[this.javaVersions[index] - 1] : null;
+    }
+
+    public synchronized OperatingSystem getOperatingSystem(CloudId id) {
+        int index = this.indexOf(id);
+        return index != -1 && this.operatingSystems[index] != 0 ? OPERATING_SYSTEMS[this.operatingSystems[index] - 1] : null;
+    }
+
+    public synchronized String getCountry(CloudId id) {
+        int index = this.indexOf(id);
+        return index != -1 && this.countries[index] != 0 ? this.registry.getValue(this.countries[index] - 1) : null;
+    }
+
+    public synchronized Collection<ServerVersion> getServerVersions(CloudId id) {
+        Collection<ServerVersion> versions = new ArrayList<>();
+        int index = this.indexOf(id);
+        if (index != -1) {
+            for (ServerVersion version : SERVER_VERSIONS) {
+                if ((this.serverVersions[index] & (1 << version.ordinal())) != 0) {
+                    versions.add(version);
+                }
+            }
         }
+        return versions;
     }
 
-    public long getDownloads() {
-        return downloads;
+    public synchronized void setCloudNetVersion(CloudId id, String version) {
+        int index = this.register(id);
+        int value = this.retainValue(version, this.cloudNetVersions[index]);
+        this.cloudNetVersionCounts = this.updateCount(this.cloudNetVersionCounts, this.cloudNetVersions[index], value);
+        this.cloudNetVersions[index] = value;
     }
 
-    public Map<CloudId, String> getInstalledVersions() {
-        return installedVersions;
+    public synchronized void addServerVersion(CloudId id, ServerVersion version) {
+        int index = this.register(id);
+        int mask = 1 << version.ordinal();
+        if ((this.serverVersions[index] & mask) == 0) {
+            this.serverVersions[index] |= mask;
+            this.serverVersionCounts[version.ordinal()]++;
+        }
     }
 
-    public Map<ServerVersion, Set<CloudId>> getServerVersions() {
-        return serverVersions;
+    public synchronized void setJavaVersion(CloudId id, JavaVersion version) {
+        int index = this.register(id);
+        int value = version.ordinal() + 1;
+        this.updateCount(this.javaVersionCounts, this.javaVersions[index], value);
+        this.javaVersions[index] = (byte) value;
     }
 
-    public Map<CloudId, JavaVersion> getJavaVersions() {
-        return javaVersions;
+    public synchronized void setOperatingSystem(CloudId id, OperatingSystem system) {
+        int index = this.register(id);
+        int value = system.ordinal() + 1;
+        this.updateCount(this.operatingSystemCounts, this.operatingSystems[index], value);
+        this.operatingSystems[index] = (byte) value;
     }
 
-    public Map<CloudId, OperatingSystem> getOperatingSystems() {
-        return operatingSystems;
+    public synchronized void setCountry(CloudId id, String country) {
+        int index = this.register(id);
+        int value = this.retainValue(country, this.countries[index]);
+        this.countryCounts = this.updateCount(this.countryCounts, this.countries[index], value);
+        this.countries[index] = value;
     }
 
-    public Map<CloudId, String> getCountries() {
-        return countries;
+    // removes an install that did not report within the active window, the aggregates are decremented accordingly
+    public synchronized void removeInstall(CloudId id) {
+        int index = this.indexOf(id);
+        if (index == -1) {
+            return;
+        }
+
+        this.updateCount(this.cloudNetVersionCounts, this.cloudNetVersions[index], 0);
+        this.updateCount(this.javaVersionCounts, this.javaVersions[index], 0);
+        this.updateCount(this.operatingSystemCounts, this.operatingSystems[index], 0);
+        this.updateCount(this.countryCounts, this.countries[index], 0);
+        this.releaseValue(this.cloudNetVersions[index]);
+        this.releaseValue(this.countries[index]);
+        for (ServerVersion version : SERVER_VERSIONS) {
+            if ((this.serverVersions[index] & (1 << version.ordinal())) != 0) {
+                this.serverVersionCounts[version.ordinal()]--;
+            }
+        }
+
+        this.cloudNetVersions[index] = 0;
+        this.javaVersions[index] = 0;
+        this.operatingSystems[index] = 0;
+        this.countries[index] = 0;
+        this.serverVersions[index] = 0;
+        this.lastReports[index] = 0;
+        this.changedInstalls.clear(index);
+        this.installs.clear(index);
+        this.registry.release(index);
+
+        this.expiredInstalls.increment();
     }
 
-    public void increaseDownloads() {
-        ++this.downloads;
+    // stores the time of the report, the install is written on the next save
+    public synchronized void markReported(CloudId id) {
+        int index = this.register(id);
+        this.lastReports[index] = id.getTimestamp();
+        this.changedInstalls.set(index);
     }
 
-    public void setCloudNetVersion(CloudId id, String version) {
-        this.installedVersions.put(id, version);
+    // used when loading, the latest of all restored reports is kept and nothing is marked as changed
+    public synchronized void restoreReport(CloudId id) {
+        int index = this.register(id);
+        this.lastReports[index] = Math.max(this.lastReports[index], id.getTimestamp());
     }
 
-    public void addServerVersion(CloudId id, ServerVersion version) {
-        this.serverVersions.get(version).add(id);
+    public synchronized void markChanged(CloudId id) {
+        int index = this.indexOf(id);
+        if (index != -1) {
+            this.changedInstalls.set(index);
+        }
     }
 
-    public void setJavaVersion(CloudId id, JavaVersion version) {
-        this.javaVersions.put(id, version);
+    public synchronized boolean hasChangedInstalls() {
+        return !this.changedInstalls.isEmpty();
     }
 
-    public void setOperatingSystem(CloudId id, OperatingSystem system) {
-        this.operatingSystems.put(id, system);
+    public synchronized Collection<CloudId> drainChangedInstalls(String parentVersion) {
+        Collection<CloudId> ids = new ArrayList<>(this.changedInstalls.cardinality());
+        for (int index = this.changedInstalls.nextSetBit(0); index >= 0; index = this.changedInstalls.nextSetBit(index + 1)) {
+            ids.add(new CloudId(parentVersion, this.registry.getUniqueId(index), null, this.lastReports[index]));
+        }
+        this.changedInstalls.clear();
+        return ids;
     }
 
-    public void setCountry(CloudId id, String country) {
-        this.countries.put(id, country);
+    // removes every install whose latest report is older than the given time and returns them
+    public synchronized Collection<CloudId> expireInstalls(String parentVersion, long minimumTimestamp) {
+        Collection<CloudId> ids = new ArrayList<>();
+        for (int index = this.installs.nextSetBit(0); index >= 0; index = this.installs.nextSetBit(index + 1)) {
+            if (this.lastReports[index] < minimumTimestamp) {
+                ids.add(new CloudId(parentVersion, this.registry.getUniqueId(index), null, this.lastReports[index]));
+            }
+        }
+        for (CloudId id : ids) {
+            this.removeInstall(id);
+        }
+        return ids;
     }
 
-    public ExternalVersionedStatistics toExternal() {
-        Map<String, Long> cloudNetVersions = this.installedVersions.values().stream()
-                .collect(Collectors.toMap(Function.identity(), version -> 1L, Long::sum));
-        Map<ServerVersion, Integer> serverVersions = this.serverVersions.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().size()));
-        Map<JavaVersion, Long> javaVersions = this.javaVersions.values().stream()
-                .collect(Collectors.toMap(Function.identity(), version -> 1L, Long::sum));
-        Map<OperatingSystem, Long> operatingSystems = this.operatingSystems.values().stream()
-                .collect(Collectors.toMap(Function.identity(), os -> 1L, Long::sum));
-        Map<String, Long> countries = this.countries.values().stream()
-                .collect(Collectors.toMap(Function.identity(), country -> 1L, Long::sum));
+    public synchronized ExternalVersionedStatistics toExternal() {
+        Map<ServerVersion, Integer> serverVersions = new EnumMap<>(ServerVersion.class);
+        for (ServerVersion version : SERVER_VERSIONS) {
+            serverVersions.put(version, (int) this.serverVersionCounts[version.ordinal()]);
+        }
 
         return new ExternalVersionedStatistics(
-                this.downloads, cloudNetVersions, serverVersions, javaVersions, operatingSystems, countries
+                this.getDownloads(),
+                this.getExpiredInstalls(),
+                this.toValueCounts(this.cloudNetVersionCounts),
+                serverVersions,
+                this.toCounts(JavaVersion.class, JAVA_VERSIONS, this.javaVersionCounts),
+                this.toCounts(OperatingSystem.class, OPERATING_SYSTEMS, this.operatingSystemCounts),
+                this.toValueCounts(this.countryCounts)
         );
     }
 
+    private int indexOf(CloudId id) {
+        int index = this.registry.indexOf(id.getUniqueId());
+        return index != -1 && this.installs.get(index) ? index : -1;
+    }
+
+    private int register(CloudId id) {
+        int index = this.indexOf(id);
+        if (index != -1) {
+            return index;
+        }
+
+        // the reference keeps the index from being reused while this install is part of these statistics
+        index = this.registry.retain(id.getUniqueId());
+        if (index >= this.cloudNetVersions.length) {
+            int capacity = Math.max(index + 1, this.registry.getCapacity());
+            this.cloudNetVersions = Arrays.copyOf(this.cloudNetVersions, capacity);
+            this.javaVersions = Arrays.copyOf(this.javaVersions, capacity);
+            this.operatingSystems = Arrays.copyOf(this.operatingSystems, capacity);
+            this.countries = Arrays.copyOf(this.countries, capacity);
+            this.serverVersions = Arrays.copyOf(this.serverVersions, capacity);
+            this.lastReports = Arrays.copyOf(this.lastReports, capacity);
+        }
+        this.installs.set(index);
+        return index;
+    }
+
+    // the new value is retained before the old one is released so that an unchanged value keeps its index
+    private int retainValue(String value, int oldValue) {
+        int newValue = this.registry.retainValue(value) + 1;
+        this.releaseValue(oldValue);
+        return newValue;
+    }
+
+    private void releaseValue(int value) {
+        if (value != 0) {
+            this.registry.releaseValue(value - 1);
+        }
+    }
+
+    // returns the counts array, it grows if the new value has not been counted in here before
+    private long[] updateCount(long[] counts, int oldValue, int newValue) {
+        if (oldValue == newValue) {
+            return counts;
+        }
+        if (newValue > counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(newValue, counts.length * 2));
+        }
+        if (oldValue != 0) {
+            counts[oldValue - 1]--;
+        }
+        if (newValue != 0) {
+            counts[newValue - 1]++;
+        }
+        return counts;
+    }
+
+    private Map<String, Long> toValueCounts(long[] counts) {
+        Map<String, Long> result = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.put(this.registry.getValue(i), counts[i]);
+            }
+        }
+        return result;
+    }
+
+    private <E extends Enum<E>> Map<E, Long> toCounts(Class<E> enumClass, E[] constants, long[] counts) {
+        Map<E, Long> result = new EnumMap<>(enumClass);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.put(constants[i], counts[i]);
+            }
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,58 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries;
+
+// one ring buffer of counters per resolution, every slot remembers which bucket it currently counts
+// so that slots of buckets which are older than the retention are reset when they are reused
+public class TimeSeries {
+
+    private final long[][] counts;
+    private final long[][] bucketIndices;
+
+    public TimeSeries() {
+        TimeSeriesResolution[] resolutions = TimeSeriesResolution.values();
+        this.counts = new long[resolutions.length][];
+        this.bucketIndices = new long[resolutions.length][];
+        for (TimeSeriesResolution resolution : resolutions) {
+            this.counts[resolution.ordinal()] = new long[resolution.getBuckets()];
+            this.bucketIndices[resolution.ordinal()] = new long[resolution.getBuckets()];
+        }
+    }
+
+    public synchronized void increment(long time, long amount) {
+        for (TimeSeriesResolution resolution : TimeSeriesResolution.values()) {
+            long bucketIndex = Math.floorDiv(time, resolution.getInterval());
+            int slot = (int) Math.floorMod(bucketIndex, resolution.getBuckets());
+
+            long[] counts = this.counts[resolution.ordinal()];
+            long[] bucketIndices = this.bucketIndices[resolution.ordinal()];
+            if (bucketIndices[slot] != bucketIndex) {
+                bucketIndices[slot] = bucketIndex;
+                counts[slot] = 0;
+            }
+            counts[slot] += amount;
+        }
+    }
+
+    // returns one counter per bucket from the bucket containing from up to the bucket containing to,
+    // buckets outside of the retention are always 0
+    public synchronized TimeSeriesRange query(TimeSeriesResolution resolution, long from, long to) {
+        long firstBucket = Math.floorDiv(from, resolution.getInterval());
+        long lastBucket = Math.floorDiv(to, resolution.getInterval());
+        if (lastBucket < firstBucket) {
+            return new TimeSeriesRange(resolution, firstBucket * resolution.getInterval(), new long[0]);
+        }
+        // older buckets have already been overwritten
+        firstBucket = Math.max(firstBucket, lastBucket - resolution.getBuckets() + 1);
+
+        long[] counts = this.counts[resolution.ordinal()];
+        long[] bucketIndices = this.bucketIndices[resolution.ordinal()];
+        long[] values = new long[(int) (lastBucket - firstBucket + 1)];
+        for (long bucketIndex = firstBucket; bucketIndex <= lastBucket; bucketIndex++) {
+            int slot = (int) Math.floorMod(bucketIndex, resolution.getBuckets());
+            if (bucketIndices[slot] == bucketIndex) {
+                values[(int) (bucketIndex - firstBucket)] = counts[slot];
+            }
+        }
+        return new TimeSeriesRange(resolution, firstBucket * resolution.getInterval(), values);
+    }
+
+}
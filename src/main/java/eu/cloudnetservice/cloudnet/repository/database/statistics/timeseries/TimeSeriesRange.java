@@ -0,0 +1,41 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries;
+
+public class TimeSeriesRange {
+
+    private final TimeSeriesResolution resolution;
+    private final long start;
+    private final long interval;
+    private final long[] values;
+
+    public TimeSeriesRange(TimeSeriesResolution resolution, long start, long[] values) {
+        this.resolution = resolution;
+        this.start = start;
+        this.interval = resolution.getInterval();
+        this.values = values;
+    }
+
+    public TimeSeriesResolution getResolution() {
+        return this.resolution;
+    }
+
+    public long getStart() {
+        return this.start;
+    }
+
+    public long getInterval() {
+        return this.interval;
+    }
+
+    public long[] getValues() {
+        return this.values;
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (long value : this.values) {
+            total += value;
+        }
+        return total;
+    }
+
+}
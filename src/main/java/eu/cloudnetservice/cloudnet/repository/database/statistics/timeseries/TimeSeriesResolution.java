@@ -0,0 +1,41 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries;
+
+import java.util.concurrent.TimeUnit;
+
+public enum TimeSeriesResolution {
+
+    // the number of buckets is the retention of every resolution
+    MINUTE(TimeUnit.MINUTES.toMillis(1), 24 * 60),
+    HOUR(TimeUnit.HOURS.toMillis(1), 30 * 24),
+    DAY(TimeUnit.DAYS.toMillis(1), 2 * 365);
+
+    private final long interval;
+    private final int buckets;
+
+    TimeSeriesResolution(long interval, int buckets) {
+        this.interval = interval;
+        this.buckets = buckets;
+    }
+
+    public long getInterval() {
+        return this.interval;
+    }
+
+    public int getBuckets() {
+        return this.buckets;
+    }
+
+    public long getRetention() {
+        return this.interval * this.buckets;
+    }
+
+    public static TimeSeriesResolution parseResolution(String raw) {
+        for (TimeSeriesResolution resolution : values()) {
+            if (resolution.name().equalsIgnoreCase(raw)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,46 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the series are named like downloads:v3 or downloads:v3:CloudNet.zip, every series has a fixed size
+// so the number of series is limited to keep the memory bounded
+public class TimeSeriesStore {
+
+    public static final String DOWNLOADS = "downloads";
+    public static final String REPORTS = "reports";
+
+    private final int maxSeries;
+    private final Map<String, TimeSeries> series = new ConcurrentHashMap<>();
+
+    public TimeSeriesStore(int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    public static String seriesName(String... parts) {
+        return String.join(":", parts);
+    }
+
+    public void increment(String name, long time) {
+        TimeSeries series = this.series.get(name);
+        if (series == null) {
+            if (this.series.size() >= this.maxSeries) {
+                return;
+            }
+            series = this.series.computeIfAbsent(name, key -> new TimeSeries());
+        }
+        series.increment(time, 1);
+    }
+
+    public TimeSeriesRange query(String name, TimeSeriesResolution resolution, long from, long to) {
+        TimeSeries series = this.series.get(name);
+        return series != null ? series.query(resolution, from, to) : null;
+    }
+
+    public Collection<String> getSeriesNames() {
+        return Collections.unmodifiableSet(this.series.keySet());
+    }
+
+}
@@ -0,0 +1,229 @@
+package eu.cloudnetservice.cloudnet.repository.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import de.dytanic.cloudnet.common.document.gson.JsonDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// the one client for all requests to GitHub and Jenkins, connections are kept alive and reused by the underlying client;
+// responses with an ETag are cached and revalidated with If-None-Match, a 304 doesn't count against the GitHub rate limit
+public class HttpApiClient {
+
+    private static final String USER_AGENT = "CloudNet-Repository";
+
+    private final HttpClient client;
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private final int retries;
+    private final long backoffMillis;
+    private final int cacheSize;
+    private final Map<URI, CachedResponse> cache;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    public HttpApiClient() {
+        this(
+                Duration.ofSeconds(Integer.getInteger("cloudnet.repository.http.connectTimeout", 10)),
+                Duration.ofSeconds(Integer.getInteger("cloudnet.repository.http.requestTimeout", 30)),
+                Integer.getInteger("cloudnet.repository.http.retries", 3),
+                Integer.getInteger("cloudnet.repository.http.backoff", 500),
+                Integer.getInteger("cloudnet.repository.http.cacheSize", 256)
+        );
+    }
+
+    public HttpApiClient(Duration connectTimeout, Duration requestTimeout, int retries, long backoffMillis, int cacheSize) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.connectTimeout = connectTimeout;
+        this.requestTimeout = requestTimeout;
+        this.retries = Math.max(0, retries);
+        this.backoffMillis = backoffMillis;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, CachedResponse> eldest) {
+                return this.size() > HttpApiClient.this.cacheSize;
+            }
+        };
+    }
+
+    public long getRequests() {
+        return this.requests.sum();
+    }
+
+    public long getNotModifiedResponses() {
+        return this.notModified.sum();
+    }
+
+    public JsonDocument getDocument(String url) throws IOException {
+        return JsonDocument.newDocument(this.getString(url));
+    }
+
+    public JsonElement getJson(String url) throws IOException {
+        return JsonParser.parseString(this.getString(url));
+    }
+
+    public <T> T get(String url, Class<T> type) throws IOException {
+        return JsonDocument.GSON.fromJson(this.getString(url), type);
+    }
+
+    // returns the body of the response, the cached body if the server answered with 304 Not Modified
+    public String getString(String url) throws IOException {
+        URI uri = URI.create(url);
+        CachedResponse cachedResponse = this.getCached(uri);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(this.requestTimeout)
+                .header("User-Agent", USER_AGENT)
+                .GET();
+        if (cachedResponse != null) {
+            builder.header("If-None-Match", cachedResponse.etag);
+        }
+
+        HttpResponse<String> response = this.send(builder.build());
+        if (response.statusCode() == 304 && cachedResponse != null) {
+            this.notModified.increment();
+            return cachedResponse.body;
+        }
+        if (response.statusCode() != 200) {
+            throw new HttpStatusException(url, response.statusCode());
+        }
+
+        response.headers().firstValue("ETag").ifPresent(etag -> this.putCached(uri, new CachedResponse(etag, response.body())));
+        return response.body();
+    }
+
+    // connection errors, rate limits and server errors are retried with an exponential backoff, all other responses are returned
+    private HttpResponse<String> send(HttpRequest request) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            this.requests.increment();
+
+            HttpResponse<String> response = null;
+            IOException exception = null;
+            try {
+                response = this.client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException ioException) {
+                exception = ioException;
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while requesting " + request.uri());
+            }
+
+            boolean retry = response == null || response.statusCode() == 429 || response.statusCode() >= 500;
+            if (!retry) {
+                return response;
+            }
+            if (attempt >= this.retries) {
+                if (exception != null) {
+                    throw exception;
+                }
+                throw new HttpStatusException(request.uri().toString(), response.statusCode());
+            }
+
+            this.backoff(request.uri().toString(), attempt, exception != null ? exception.toString() : "status " + response.statusCode());
+        }
+    }
+
+    // large files are streamed into the handler instead of being buffered; the connection has a read timeout, so a transfer
+    // which stalls fails instead of blocking the install forever. Only the request is retried, a failure of the handler is not
+    public <T> T download(String url, DownloadHandler<T> handler) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            this.requests.increment();
+
+            URLConnection connection = new URL(url).openConnection();
+            connection.setConnectTimeout((int) this.connectTimeout.toMillis());
+            connection.setReadTimeout((int) this.requestTimeout.toMillis());
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+
+            int status = -1;
+            IOException exception = null;
+            try {
+                status = connection instanceof HttpURLConnection ? ((HttpURLConnection) connection).getResponseCode() : 200;
+            } catch (IOException ioException) {
+                exception = ioException;
+            }
+
+            if (exception == null && status != 429 && status < 500) {
+                if (status != 200) {
+                    ((HttpURLConnection) connection).disconnect();
+                    throw new HttpStatusException(url, status);
+                }
+                try (InputStream inputStream = connection.getInputStream()) {
+                    return handler.handle(inputStream, connection.getContentLengthLong());
+                }
+            }
+
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).disconnect();
+            }
+            if (attempt >= this.retries) {
+                if (exception != null) {
+                    throw exception;
+                }
+                throw new HttpStatusException(url, status);
+            }
+            this.backoff(url, attempt, exception != null ? exception.toString() : "status " + status);
+        }
+    }
+
+    private void backoff(String url, int attempt, String failure) throws IOException {
+        System.err.println("Request to " + url + " failed (" + failure + "), retrying...");
+        try {
+            Thread.sleep(this.backoffMillis << attempt);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while requesting " + url);
+        }
+    }
+
+    private CachedResponse getCached(URI uri) {
+        synchronized (this.cache) {
+            return this.cache.get(uri);
+        }
+    }
+
+    private void putCached(URI uri, CachedResponse response) {
+        synchronized (this.cache) {
+            this.cache.put(uri, response);
+        }
+    }
+
+    @FunctionalInterface
+    public interface DownloadHandler<T> {
+
+        // the content length is -1 if the server didn't send it
+        T handle(InputStream inputStream, long contentLength) throws IOException;
+
+    }
+
+    private static class CachedResponse {
+
+        private final String etag;
+        private final String body;
+
+        private CachedResponse(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package eu.cloudnetservice.cloudnet.repository.http;
+
+import java.io.IOException;
+
+public class HttpStatusException extends IOException {
+
+    private final int status;
+
+    public HttpStatusException(String url, int status) {
+        super("Request to " + url + " failed with status " + status);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+}
@@ -1,40 +1,28 @@
 package eu.cloudnetservice.cloudnet.repository.loader;
 
+import eu.cloudnetservice.cloudnet.repository.archiver.StagedDirectory;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
 import eu.cloudnetservice.cloudnet.repository.version.VersionFileMappings;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 public interface CloudNetVersionFileLoader {
 
-    // Loads all available version files (cloudnet.jar, driver.jar, cloudnet.cnl, driver.cnl and all modules) from the source (e.g. Jenkins)
-    CloudNetVersionFile[] loadLastVersionFiles(CloudNetParentVersion parentVersion, VersionFileMappings versionFileMappings) throws IOException, CloudNetVersionLoadException;
+    // Loads all available version files (cloudnet.jar, driver.jar, cloudnet.cnl, driver.cnl and all modules) from the source (e.g. Jenkins),
+    // files which are already written into the given stage have their size and hash set, all others are downloaded by the archiver
+    CloudNetVersionFile[] loadLastVersionFiles(CloudNetParentVersion parentVersion, VersionFileMappings versionFileMappings, StagedDirectory stage) throws IOException, CloudNetVersionLoadException;
 
 
+    // only the central directory at the end of the file is read to find the module file
     default boolean isCloudNetModule(CloudNetParentVersion parentVersion, Path path) {
-        try (var inputStream = Files.newInputStream(path);
-             var zipInputStream = new ZipInputStream(inputStream, StandardCharsets.UTF_8)) {
-            ZipEntry entry;
-            while ((entry = zipInputStream.getNextEntry()) != null) {
-
-                if (entry.getName().equals(parentVersion.getModuleFileName())) {
-                    zipInputStream.closeEntry();
-                    return true;
-                }
-
-                zipInputStream.closeEntry();
-            }
+        try (var zipFile = new ZipFile(path.toFile())) {
+            return zipFile.getEntry(parentVersion.getModuleFileName()) != null;
         } catch (IOException ignored) { //most likely the given file is no jar/zip file and therefore cannot be a module
             return false;
         }
-
-        return false;
     }
 
 }
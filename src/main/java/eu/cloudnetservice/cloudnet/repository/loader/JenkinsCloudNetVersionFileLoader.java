@@ -1,8 +1,8 @@
 package eu.cloudnetservice.cloudnet.repository.loader;
 
-import de.dytanic.cloudnet.common.document.gson.JsonDocument;
-import eu.cloudnetservice.cloudnet.repository.Constants;
+import eu.cloudnetservice.cloudnet.repository.archiver.StagedDirectory;
 import eu.cloudnetservice.cloudnet.repository.config.CloudNetVersionFileInfo;
+import eu.cloudnetservice.cloudnet.repository.http.HttpApiClient;
 import eu.cloudnetservice.cloudnet.repository.loader.jenkins.JenkinsArtifact;
 import eu.cloudnetservice.cloudnet.repository.loader.jenkins.JenkinsBuild;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
@@ -14,21 +14,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public class JenkinsCloudNetVersionFileLoader implements CloudNetVersionFileLoader {
 
     private String mavenRepositoryURL = System.getProperty("cloudnet.repository.maven.url", "https://cloudnetservice.eu/repositories");
+    private HttpApiClient httpClient;
+
+    public JenkinsCloudNetVersionFileLoader(HttpApiClient httpClient) {
+        this.httpClient = httpClient;
+    }
 
     @Override
-    public CloudNetVersionFile[] loadLastVersionFiles(CloudNetParentVersion parentVersion, VersionFileMappings versionFileMappings) throws IOException {
-        var masterStatus = JsonDocument.newDocument();
-        this.loadJson(masterStatus, new URL(parentVersion.getJenkinsBaseURL() + "api/json/"));
+    public CloudNetVersionFile[] loadLastVersionFiles(CloudNetParentVersion parentVersion, VersionFileMappings versionFileMappings, StagedDirectory stage) throws IOException {
+        var masterStatus = this.httpClient.getDocument(parentVersion.getJenkinsBaseURL() + "api/json/");
 
         var lastBuild = masterStatus.get("lastBuild", JenkinsBuild.class);
         var lastSuccessfulBuild = masterStatus.get("lastSuccessfulBuild", JenkinsBuild.class);
@@ -41,8 +44,7 @@ public class JenkinsCloudNetVersionFileLoader implements CloudNetVersionFileLoad
             throw new CloudNetVersionLoadException("Jenkins last build on \"master\" branch was not successful!", this);
         }
 
-        var lastBuildJson = JsonDocument.newDocument();
-        this.loadJson(lastBuildJson, new URL(lastBuild.getApiUrl()));
+        var lastBuildJson = this.httpClient.getDocument(lastBuild.getApiUrl());
 
         var artifacts = lastBuildJson.get("artifacts", JenkinsArtifact[].class);
 
@@ -50,85 +52,81 @@ public class JenkinsCloudNetVersionFileLoader implements CloudNetVersionFileLoad
             throw new CloudNetVersionLoadException("Jenkins last build on \"master\" branch has no artifacts object!", this);
         }
 
-        var artifactsConnection = new URL(lastBuild.getUrl() + "artifact/AutoUpdater.zip").openConnection();
+        Collection<CloudNetVersionFile> versionFiles = this.httpClient.download(lastBuild.getUrl() + "artifact/AutoUpdater.zip",
+                (inputStream, contentLength) -> this.extractVersionFiles(parentVersion, versionFileMappings, stage, inputStream));
 
-        var tempDirectory = Constants.TEMP_DIRECTORY.resolve("versions").resolve("jenkins").resolve(UUID.randomUUID().toString());
+        for (CloudNetVersionFileInfo versionFile : parentVersion.getAdditionalVersionFiles()) {
+            versionFiles.add(new CloudNetVersionFile(
+                    new URL(lastBuild.getUrl() + "artifact/" + versionFile.getPath()),
+                    versionFile.getName(),
+                    versionFile.getFileType(),
+                    null
+            ));
+        }
 
-        Files.createDirectories(tempDirectory);
+        return versionFiles.toArray(CloudNetVersionFile[]::new);
+    }
 
-        Collection<Path> targetPaths = new ArrayList<>();
+    // every file of the zip is written into the stage while it is hashed, it is not read again apart from the central directory of jars
+    Collection<CloudNetVersionFile> extractVersionFiles(CloudNetParentVersion parentVersion, VersionFileMappings versionFileMappings,
+                                                        StagedDirectory stage, InputStream inputStream) throws IOException {
+        Collection<CloudNetVersionFile> versionFiles = new ArrayList<>();
 
-        try (var inputStream = artifactsConnection.getInputStream();
-             var zipInputStream = new ZipInputStream(inputStream, StandardCharsets.UTF_8)) {
+        try (var zipInputStream = new ZipInputStream(inputStream, StandardCharsets.UTF_8)) {
             ZipEntry zipEntry;
             while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-
                 if (zipEntry.isDirectory()) {
-                    Files.createDirectories(tempDirectory.resolve(zipEntry.getName()));
-
                     zipInputStream.closeEntry();
                     continue;
                 }
 
-                Path path = tempDirectory.resolve(zipEntry.getName());
-                Files.copy(zipInputStream, path);
-                targetPaths.add(path);
+                // the version store is flat, all files are archived by their file name
+                String name = Paths.get(zipEntry.getName()).getFileName().toString();
+                if (stage.contains(name)) {
+                    System.out.println("Skipping " + zipEntry.getName() + " of " + parentVersion.getName() + ", a file with the same name has already been archived");
+                    zipInputStream.closeEntry();
+                    continue;
+                }
 
+                long size = stage.write(name, zipInputStream);
                 zipInputStream.closeEntry();
+
+                CloudNetVersionFile versionFile = this.createVersionFile(parentVersion, versionFileMappings, stage, name);
+                versionFile.setSize(size);
+                versionFile.setSha256(stage.getSha256(name));
+                versionFiles.add(versionFile);
             }
         }
 
-        Collection<CloudNetVersionFile> versionFiles = targetPaths.stream()
-                .map(path -> {
-                    try {
-                        CloudNetVersionFile.FileType fileType = CloudNetVersionFile.FileType.CLOUDNET_JAR;
-                        String artifactId = null;
-
-                        if (path.getFileName().toString().endsWith(".cnl")) {
-                            fileType = CloudNetVersionFile.FileType.CLOUDNET_CNL;
-                        } else if (this.isCloudNetModule(parentVersion, path)) {
-                            fileType = CloudNetVersionFile.FileType.MODULE;
-                            artifactId = path.getFileName().toString();
-                        } else {
-                            artifactId = path.getFileName().toString();
-                        }
-
-                        if (artifactId != null && artifactId.endsWith(".jar")) {
-                            artifactId = artifactId.substring(0, artifactId.length() - 4);
-                        }
-
-                        MavenVersionInfo versionInfo = artifactId != null ? new MavenVersionInfo(
-                                this.mavenRepositoryURL,
-                                parentVersion.getMavenGroupId(),
-                                versionFileMappings.getVersionName(artifactId)
-                        ) : null;
-
-                        return new CloudNetVersionFile(path.toUri().toURL(), path.getFileName().toString(), fileType, versionInfo);
-                    } catch (IOException exception) {
-                        exception.printStackTrace();
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return versionFiles;
+    }
 
-        for (CloudNetVersionFileInfo versionFile : parentVersion.getAdditionalVersionFiles()) {
-            versionFiles.add(new CloudNetVersionFile(
-                    new URL(lastBuild.getUrl() + "artifact/" + versionFile.getPath()),
-                    versionFile.getName(),
-                    versionFile.getFileType(),
-                    null
-            ));
+    private CloudNetVersionFile createVersionFile(CloudNetParentVersion parentVersion, VersionFileMappings versionFileMappings,
+                                                  StagedDirectory stage, String name) throws IOException {
+        CloudNetVersionFile.FileType fileType = CloudNetVersionFile.FileType.CLOUDNET_JAR;
+        String artifactId = null;
+
+        if (name.endsWith(".cnl")) {
+            fileType = CloudNetVersionFile.FileType.CLOUDNET_CNL;
+        } else if (this.isCloudNetModule(parentVersion, stage.getFile(name))) {
+            fileType = CloudNetVersionFile.FileType.MODULE;
+            artifactId = name;
+        } else {
+            artifactId = name;
         }
 
-        return versionFiles.toArray(CloudNetVersionFile[]::new);
-    }
-
-    private void loadJson(JsonDocument targetDocument, URL url) throws IOException {
-        var connection = url.openConnection();
-        try (InputStream inputStream = connection.getInputStream()) {
-            targetDocument.read(inputStream);
+        if (artifactId != null && artifactId.endsWith(".jar")) {
+            artifactId = artifactId.substring(0, artifactId.length() - 4);
         }
+
+        MavenVersionInfo versionInfo = artifactId != null ? new MavenVersionInfo(
+                this.mavenRepositoryURL,
+                parentVersion.getMavenGroupId(),
+                versionFileMappings.getVersionName(artifactId)
+        ) : null;
+
+        // the file is already at its final location once the stage has been published
+        return new CloudNetVersionFile(stage.getTarget().resolve(name).toUri().toURL(), name, fileType, versionInfo);
     }
 
 }
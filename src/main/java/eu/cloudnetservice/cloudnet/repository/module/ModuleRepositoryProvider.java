@@ -1,19 +1,24 @@
 package eu.cloudnetservice.cloudnet.repository.module;
 
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
+import de.dytanic.cloudnet.common.io.FileUtils;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
 import eu.cloudnetservice.cloudnet.repository.Constants;
+import eu.cloudnetservice.cloudnet.repository.store.BlobStore;
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Properties;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
@@ -31,38 +36,34 @@ public class ModuleRepositoryProvider {
     }
 
     public Collection<RepositoryModuleInfo> getModuleInfos(String parentVersionName) {
-        return this.getModuleInfos().stream()
-                .filter(moduleInfo -> moduleInfo.getParentVersionName().equals(parentVersionName))
-                .collect(Collectors.toList());
+        return Arrays.asList(this.server.getDatabase().getModuleInfos(parentVersionName));
     }
 
     public Collection<RepositoryModuleInfo> getModuleInfos(String parentVersionName, String group) {
-        return this.getModuleInfos().stream()
-                .filter(moduleInfo -> moduleInfo.getParentVersionName().equals(parentVersionName))
-                .filter(moduleInfo -> moduleInfo.getModuleId().getGroup().equalsIgnoreCase(group))
-                .collect(Collectors.toList());
+        return Arrays.asList(this.server.getDatabase().getModuleInfos(parentVersionName, group));
     }
 
     public Collection<RepositoryModuleInfo> getModuleInfos(String parentVersionName, String group, String name) {
-        return this.getModuleInfos().stream()
-                .filter(moduleInfo -> moduleInfo.getParentVersionName().equals(parentVersionName))
-                .filter(moduleInfo -> moduleInfo.getModuleId().getGroup().equalsIgnoreCase(group))
-                .filter(moduleInfo -> moduleInfo.getModuleId().getName().equalsIgnoreCase(name))
-                .collect(Collectors.toList());
+        return Arrays.asList(this.server.getDatabase().getModuleInfos(parentVersionName, group, name));
     }
 
     public RepositoryModuleInfo getModuleInfo(String parentVersionName, ModuleId moduleId) {
-        return this.getModuleInfos().stream()
-                .filter(moduleInfo -> moduleInfo.getParentVersionName().equals(parentVersionName))
-                .filter(moduleInfo -> moduleId.equals(moduleInfo.getModuleId()))
-                .findFirst().orElse(null);
+        for (RepositoryModuleInfo moduleInfo : this.server.getDatabase().getModuleInfos(parentVersionName, moduleId.getGroup(), moduleId.getName())) {
+            if (moduleId.equals(moduleInfo.getModuleId())) {
+                return moduleInfo;
+            }
+        }
+        return null;
     }
 
     public RepositoryModuleInfo getModuleInfoIgnoreVersion(String parentVersionName, ModuleId moduleId) {
-        return this.getModuleInfos().stream()
-                .filter(moduleInfo -> moduleInfo.getParentVersionName().equals(parentVersionName))
-                .filter(moduleInfo -> moduleId.equalsIgnoreVersion(moduleInfo.getModuleId()))
-                .findFirst().orElse(null);
+        // the index ignores the case, the module id doesn't
+        for (RepositoryModuleInfo moduleInfo : this.server.getDatabase().getModuleInfos(parentVersionName, moduleId.getGroup(), moduleId.getName())) {
+            if (moduleId.equalsIgnoreVersion(moduleInfo.getModuleId())) {
+                return moduleInfo;
+            }
+        }
+        return null;
     }
 
     public void addModule(RepositoryModuleInfo moduleInfo, InputStream inputStream) throws IOException {
@@ -145,7 +146,7 @@ public class ModuleRepositoryProvider {
             throw new ModuleInstallException("Module not found");
         }
 
-        this.removeModule(oldModuleInfo.getParentVersionName(), oldModuleInfo.getModuleId());
+        this.server.getDatabase().removeModuleInfo(oldModuleInfo.getParentVersionName(), oldModuleInfo.getModuleId());
         this.server.getDatabase().insertModuleInfo(moduleInfo);
     }
 
@@ -166,15 +167,25 @@ public class ModuleRepositoryProvider {
         Path tempPath = Constants.TEMP_DIRECTORY.resolve(UUID.randomUUID().toString());
         Files.createDirectories(tempPath.getParent());
 
-        Files.copy(inputStream, tempPath);
+        MessageDigest digest = FileValidatorCache.newDigest();
+        Files.copy(new DigestInputStream(inputStream, digest), tempPath);
+        byte[] sha256 = digest.digest();
 
-        try (InputStream tempInputStream = Files.newInputStream(tempPath)) {
-            this.validateModule(parentVersion, moduleInfo.getModuleId(), tempInputStream);
-        }
+        try {
+            try (InputStream tempInputStream = Files.newInputStream(tempPath)) {
+                this.validateModule(parentVersion, moduleInfo.getModuleId(), tempInputStream);
+            }
 
-        for (Path path : paths) {
-            Files.copy(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            // both files are links to the same blob, the blob of the replaced latest.jar is deleted if no version uses it anymore
+            BlobStore blobStore = this.server.getBlobStore();
+            for (Path path : paths) {
+                blobStore.place(tempPath, StringUtils.toHex(sha256), path);
+                this.server.getFileValidatorCache().register(path, sha256);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
         }
+        this.server.getBlobStore().collectGarbage();
     }
 
     private void validateModule(CloudNetParentVersion parentVersion, ModuleId moduleId, InputStream inputStream) throws IOException {
@@ -195,16 +206,22 @@ public class ModuleRepositoryProvider {
         }
     }
 
-    public void removeModule(String parentVersionName, ModuleId moduleId) {
+    // the files of all versions of the module are deleted with it, blobs which were only used by them are deleted too
+    public void removeModule(String parentVersionName, ModuleId moduleId) throws IOException {
         this.server.getDatabase().removeModuleInfo(parentVersionName, moduleId);
+
+        Path directory = this.validatePath(this.getModuleDirectory(parentVersionName, moduleId));
+        FileUtils.delete(directory.toFile());
+        this.server.getFileValidatorCache().invalidateDirectory(directory);
+        this.server.getBlobStore().collectGarbage();
     }
 
-    public InputStream openLatestModuleStream(String parentVersionName, ModuleId moduleId) throws IOException {
+    public Path findLatestModulePath(String parentVersionName, ModuleId moduleId) {
         if (moduleId == null) {
             return null;
         }
         Path path = this.getLatestPath(parentVersionName, moduleId);
-        return Files.exists(path) ? Files.newInputStream(path) : null;
+        return Files.exists(path) ? path : null;
     }
 
     public InputStream openModuleStream(String parentVersionName, ModuleId moduleId) throws IOException {
@@ -4,6 +4,8 @@ import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseArchiver;
 import eu.cloudnetservice.cloudnet.repository.database.Database;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
+import eu.cloudnetservice.cloudnet.repository.web.ConditionalRequests;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileDownloadSender;
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
 import io.javalin.http.NotFoundResponse;
@@ -11,8 +13,11 @@ import io.javalin.plugin.openapi.dsl.OpenApiUpdater;
 import io.swagger.v3.oas.models.Operation;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.javalin.apibuilder.ApiBuilder.get;
 import static io.javalin.apibuilder.ApiBuilder.path;
@@ -27,13 +32,15 @@ public class CloudNetUpdateRepository {
     private final String targetParentVersion;
     private final Database database;
     private final ReleaseArchiver releaseArchiver;
+    private final FileDownloadSender downloadSender;
 
-    private String repositoryInformation;
+    private volatile RepositoryInformation repositoryInformation;
 
-    public CloudNetUpdateRepository(String targetParentVersion, Database database, ReleaseArchiver releaseArchiver) {
+    public CloudNetUpdateRepository(String targetParentVersion, Database database, ReleaseArchiver releaseArchiver, FileDownloadSender downloadSender) {
         this.targetParentVersion = targetParentVersion;
         this.database = database;
         this.releaseArchiver = releaseArchiver;
+        this.downloadSender = downloadSender;
     }
 
     public String getTargetParentVersion() {
@@ -41,19 +48,39 @@ public class CloudNetUpdateRepository {
     }
 
     public void installVersion(CloudNetVersion version) {
-        this.repositoryInformation = "repository-version=" + this.repositoryVersion + "\n";
+        String repositoryInformation = "repository-version=" + this.repositoryVersion + "\n";
         if (version != null) {
-            this.repositoryInformation += "app-version=" + version.getName() + "\n" +
-                    "git-commit=" + version.getCommit().fetchCommitHash() + "\n" +
-                    "release-timestamp=" + version.getReleaseDate().getTime() + "\n" +
-                    "files=" + Arrays.stream(version.getFiles())
+            CloudNetVersionFile[] files = Arrays.stream(version.getFiles())
                     .filter(file -> file.getFileType() != CloudNetVersionFile.FileType.JAVA_DOCS)
                     .filter(file -> file.getFileType() != CloudNetVersionFile.FileType.CLOUDNET_ZIP)
+                    .toArray(CloudNetVersionFile[]::new);
+
+            repositoryInformation += "app-version=" + version.getName() + "\n" +
+                    "git-commit=" + version.getCommit().fetchCommitHash() + "\n" +
+                    "release-timestamp=" + version.getReleaseDate().getTime() + "\n" +
+                    "files=" + Arrays.stream(files)
                     .map(CloudNetVersionFile::getName)
                     .collect(Collectors.joining(";"));
-       } else {
-            this.repositoryInformation += "app-version=NONE";
+
+            // older clients only read the files key, newer ones can skip every file whose hash matches the installed one;
+            // versions archived before the hashes were recorded don't have these keys
+            for (CloudNetVersionFile file : files) {
+                if (file.getSha256() != null) {
+                    repositoryInformation += "\nfile-size." + file.getName() + "=" + file.getSize() +
+                            "\nfile-sha256." + file.getName() + "=" + file.getSha256();
+                }
+            }
+
+            // versions from which patches can be downloaded, files without a patch have to be downloaded completely
+            String deltaVersions = this.listDeltaVersions(version);
+            if (!deltaVersions.isEmpty()) {
+                repositoryInformation += "\ndelta-versions=" + deltaVersions;
+            }
+        } else {
+            repositoryInformation += "app-version=NONE";
         }
+
+        this.repositoryInformation = new RepositoryInformation(repositoryInformation, ConditionalRequests.computeEntityTag(repositoryInformation));
     }
 
     public void init(String pathPrefix, Javalin javalin) {
@@ -61,11 +88,14 @@ public class CloudNetUpdateRepository {
             get("/repository", documented(
                     document()
                             .operation((OpenApiUpdater<Operation>) operation -> operation
-                                    .summary("Get the repository version, cloudnet version (with git commit hash) and a list of all available files for this version")
+                                    .summary("Get the repository version, cloudnet version (with git commit hash) and a list of all available files for this version with their sizes and SHA-256 hashes")
                                     .addTagsItem(WEB_API_DOCS_TAG)
                             )
                             .result("200", String.class, "text/x-java-properties"),
-                    (Handler) ctx -> ctx.result(this.repositoryInformation).contentType("text/x-java-properties")
+                    (Handler) ctx -> {
+                        RepositoryInformation information = this.repositoryInformation;
+                        ConditionalRequests.sendResult(ctx, information.content, information.entityTag, "text/x-java-properties");
+                    }
             ));
             get("/versions/:version/:file", documented(
                     document()
@@ -77,24 +107,73 @@ public class CloudNetUpdateRepository {
                         if (version == null) {
                             throw new NotFoundResponse("Version not found");
                         }
-                        var fileName = ctx.pathParam("file");
-                        Arrays.stream(version.getFiles())
-                                .filter(file -> file.getName().equals(fileName))
-                                .filter(file -> file.getFileType() != CloudNetVersionFile.FileType.JAVA_DOCS)
-                                .filter(file -> file.getFileType() != CloudNetVersionFile.FileType.CLOUDNET_ZIP)
-                                .findFirst()
-                                .ifPresentOrElse(file -> {
-                                    try {
-                                        ctx.result(this.releaseArchiver.openFileStream(version, file)).contentType("application/zip");
-                                    } catch (IOException exception) {
-                                        exception.printStackTrace();
-                                    }
-                                }, () -> {
-                                    throw new NotFoundResponse("File not found");
-                                });
+                        var file = this.findFile(version, ctx.pathParam("file"));
+                        this.downloadSender.send(ctx, this.releaseArchiver.getFilePath(version, file), "application/zip");
+                    }
+            ));
+            get("/deltas/:from/:version/:file", documented(
+                    document()
+                            .operation((OpenApiUpdater<Operation>) operation -> operation
+                                    .summary("Download the patch which turns the file of the older version into the file of the given version")
+                                    .addTagsItem(WEB_API_DOCS_TAG)
+                            )
+                            .result("200", null, "application/octet-stream")
+                            .result("404", (Class<?>) null, apiResponse -> apiResponse.description("File, Version or Patch not found")),
+                    ctx -> {
+                        var version = this.database.getVersion(this.targetParentVersion, ctx.pathParam("version"));
+                        var sourceVersion = this.database.getVersion(this.targetParentVersion, ctx.pathParam("from"));
+                        if (version == null || sourceVersion == null) {
+                            throw new NotFoundResponse("Version not found");
+                        }
+                        var file = this.findFile(version, ctx.pathParam("file"));
+                        Path path = this.releaseArchiver.getDeltaPath(version, sourceVersion.getName(), file);
+                        if (!Files.exists(path)) {
+                            throw new NotFoundResponse("Patch not found");
+                        }
+
+                        // the patch contains the hashes as well, the header allows to check the result without reading the patch first
+                        if (file.getSha256() != null) {
+                            ctx.header("X-Target-SHA256", file.getSha256());
+                        }
+                        this.downloadSender.send(ctx, path, "application/octet-stream");
                     }
             ));
         }));
     }
 
+    private CloudNetVersionFile findFile(CloudNetVersion version, String fileName) {
+        return Arrays.stream(version.getFiles())
+                .filter(file -> file.getName().equals(fileName))
+                .filter(file -> file.getFileType() != CloudNetVersionFile.FileType.JAVA_DOCS)
+                .filter(file -> file.getFileType() != CloudNetVersionFile.FileType.CLOUDNET_ZIP)
+                .findFirst()
+                .orElseThrow(() -> new NotFoundResponse("File not found"));
+    }
+
+    private String listDeltaVersions(CloudNetVersion version) {
+        Path deltaDirectory = this.releaseArchiver.getDeltaDirectory(version);
+        if (!Files.isDirectory(deltaDirectory)) {
+            return "";
+        }
+
+        try (Stream<Path> stream = Files.list(deltaDirectory)) {
+            return stream.map(path -> path.getFileName().toString()).sorted().collect(Collectors.joining(";"));
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            return "";
+        }
+    }
+
+    private static class RepositoryInformation {
+
+        private final String content;
+        private final String entityTag;
+
+        private RepositoryInformation(String content, String entityTag) {
+            this.content = content;
+            this.entityTag = entityTag;
+        }
+
+    }
+
 }
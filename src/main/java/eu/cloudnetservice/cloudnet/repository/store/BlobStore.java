@@ -0,0 +1,171 @@
+package eu.cloudnetservice.cloudnet.repository.store;
+
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// every distinct file content is stored once as <first two characters of the hash>/<sha256>, the files of versions, docs and modules
+// are hard links to these blobs; the link count of a blob is its reference count, a blob with a single link isn't referenced anymore.
+// file systems without hard links keep a full copy of every file
+public class BlobStore {
+
+    private final Path directory;
+    private final boolean supported;
+    // the hashes of the blobs by their inode, every hard link of a blob has the same file key
+    private final Map<Object, String> hashes = new ConcurrentHashMap<>();
+
+    public BlobStore(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+
+        boolean supported;
+        try {
+            Files.createDirectories(this.directory);
+            supported = Files.getFileStore(this.directory).supportsFileAttributeView("unix");
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            supported = false;
+        }
+        this.supported = supported;
+    }
+
+    public boolean isSupported() {
+        return this.supported;
+    }
+
+    public Path getBlobPath(String sha256) {
+        return this.directory.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    public synchronized void init() throws IOException {
+        if (!this.supported) {
+            return;
+        }
+
+        for (Path blob : this.listBlobs()) {
+            this.hashes.put(this.fileKey(blob), blob.getFileName().toString());
+        }
+    }
+
+    // the content of the source with the given hash is placed at the target, source and target may be the same file
+    // to replace a file by a link to the blob with the same content
+    public synchronized void place(Path source, String sha256, Path target) throws IOException {
+        if (!this.supported) {
+            if (!source.equals(target)) {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+
+        Path blob = this.getBlobPath(sha256);
+        try {
+            if (!Files.exists(blob)) {
+                Files.createDirectories(blob.getParent());
+                Files.createLink(blob, source);
+                this.hashes.put(this.fileKey(blob), sha256);
+            }
+            if (Files.exists(target) && Files.isSameFile(blob, target)) {
+                return;
+            }
+
+            // the link is created next to the target and then renamed, the target is never missing for running downloads
+            Path link = target.resolveSibling("." + target.getFileName() + "-" + UUID.randomUUID());
+            Files.createLink(link, blob);
+            Files.move(link, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (UnsupportedOperationException | FileSystemException exception) {
+            // most likely the target is on another file system than the store
+            System.err.println("Unable to link " + target + " to blob " + sha256 + ": " + exception.getMessage());
+            if (!source.equals(target)) {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    // returns the hash of the file if it is a link to a blob, null otherwise
+    public String findHash(Path path) {
+        if (!this.supported) {
+            return null;
+        }
+        try {
+            return this.hashes.get(this.fileKey(path));
+        } catch (IOException exception) {
+            return null;
+        }
+    }
+
+    // replaces every file in the directory which isn't linked yet by a link to the blob with the same content
+    public synchronized int importDirectory(Path root) throws IOException {
+        if (!this.supported || !Files.isDirectory(root)) {
+            return 0;
+        }
+
+        Collection<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).filter(path -> !path.toAbsolutePath().normalize().startsWith(this.directory)).collect(Collectors.toList());
+        }
+
+        int imported = 0;
+        for (Path file : files) {
+            if (this.linkCount(file) == 1) {
+                this.place(file, this.hash(file), file);
+                imported++;
+            }
+        }
+        return imported;
+    }
+
+    // deletes all blobs which are not linked from any other file
+    public synchronized int collectGarbage() throws IOException {
+        if (!this.supported) {
+            return 0;
+        }
+
+        int deleted = 0;
+        for (Path blob : this.listBlobs()) {
+            if (this.linkCount(blob) <= 1) {
+                this.hashes.remove(this.fileKey(blob));
+                Files.delete(blob);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private Collection<Path> listBlobs() throws IOException {
+        try (Stream<Path> stream = Files.walk(this.directory, 2)) {
+            return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private int linkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+
+    private Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private String hash(Path path) throws IOException {
+        MessageDigest digest = FileValidatorCache.newDigest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return StringUtils.toHex(digest.digest());
+    }
+
+}
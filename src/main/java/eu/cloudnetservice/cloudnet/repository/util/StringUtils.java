@@ -14,6 +14,8 @@ public class StringUtils {
         throw new UnsupportedOperationException();
     }
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     public static String EMPTY_HASH_STRING = hashString("");
 
     public static boolean startsWithIgnoreCase(String str, String prefix) {
@@ -35,6 +37,15 @@ public class StringUtils {
         return null;
     }
 
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
     public static String hashString(String input) {
         if ((input == null || input.isEmpty()) && EMPTY_HASH_STRING != null) {
             return EMPTY_HASH_STRING;
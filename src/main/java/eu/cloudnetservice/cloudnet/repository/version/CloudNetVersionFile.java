@@ -14,6 +14,9 @@ public class CloudNetVersionFile implements Serializable {
     private String name;
     private FileType fileType;
     private MavenVersionInfo versionInfo;
+    // both are set when the file is archived, files of versions installed before have a size of 0 and no hash
+    private long size;
+    private String sha256;
 
     public CloudNetVersionFile(URL downloadURL, String name, FileType fileType, MavenVersionInfo versionInfo) {
         this.downloadURL = downloadURL;
@@ -38,6 +41,22 @@ public class CloudNetVersionFile implements Serializable {
         return this.versionInfo;
     }
 
+    public long getSize() {
+        return this.size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return this.sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
     public enum FileType {
         CLOUDNET_ZIP, CLOUDNET_JAR, CLOUDNET_CNL, MODULE, JAVA_DOCS
     }
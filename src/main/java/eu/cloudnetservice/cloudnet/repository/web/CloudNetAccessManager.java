@@ -3,10 +3,10 @@ package eu.cloudnetservice.cloudnet.repository.web;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
 import eu.cloudnetservice.cloudnet.repository.endpoint.discord.DiscordEndPoint;
 import eu.cloudnetservice.cloudnet.repository.endpoint.discord.DiscordLoginManager;
+import eu.cloudnetservice.cloudnet.repository.web.ratelimit.RateLimiter;
 import io.javalin.core.security.AccessManager;
 import io.javalin.core.security.Role;
 import io.javalin.http.*;
-import io.javalin.http.util.RateLimit;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Set;
@@ -15,6 +15,8 @@ import java.util.concurrent.TimeUnit;
 public class CloudNetAccessManager implements AccessManager {
 
     private final CloudNetUpdateServer server;
+    // only failed logins are limited, keyed by the address of the client so that changing the path or the method doesn't allow more attempts
+    private final RateLimiter failedLoginLimiter = new RateLimiter(15, TimeUnit.MINUTES);
 
     public CloudNetAccessManager(CloudNetUpdateServer server) {
         this.server = server;
@@ -36,15 +38,32 @@ public class CloudNetAccessManager implements AccessManager {
             throw new UnauthorizedResponse();
         }
 
-        new RateLimit(ctx).requestPerTimeUnit(15, TimeUnit.MINUTES);
+        this.failedLoginLimiter.check(ctx, ctx.ip());
 
+        WebPermissionRole role;
+        try {
+            role = this.authenticate(ctx, authorization);
+        } catch (UnauthorizedResponse | ForbiddenResponse exception) {
+            this.failedLoginLimiter.tryAcquire(ctx.ip());
+            throw exception;
+        }
+
+        if (permittedRoles.stream().noneMatch(permittedRole -> ((WebPermissionRole) permittedRole).canInteract(role))) {
+            throw new ForbiddenResponse("Not enough permissions");
+        }
+
+        ctx.header("User-Role", role.name());
+        ctx.header("User-Role-ID", String.valueOf(role.ordinal()));
+
+        handler.handle(ctx);
+    }
+
+    private WebPermissionRole authenticate(Context ctx, String authorization) throws Exception {
         String[] authParts = authorization.split(" ");
         if (authParts.length != 2) {
             throw new ForbiddenResponse("Wrong authorization header");
         }
 
-        WebPermissionRole role;
-
         if (authParts[0].equalsIgnoreCase("Basic")) {
             String username;
             String password;
@@ -59,8 +78,8 @@ public class CloudNetAccessManager implements AccessManager {
             if (!this.server.getDatabase().checkUserPassword(username, password)) {
                 throw new ForbiddenResponse("Invalid credentials");
             }
-            role = this.server.getDatabase().getRole(username);
             ctx.sessionAttribute("Username", "BASIC:" + username);
+            return this.server.getDatabase().getRole(username);
         } else if (authParts[0].equalsIgnoreCase("Bearer")) {
 
             String token = authParts[1];
@@ -69,18 +88,8 @@ public class CloudNetAccessManager implements AccessManager {
                     .orElseThrow(() -> new ForbiddenResponse("Discord not enabled"))
                     .getLoginManager();
 
-            role = loginManager.getRole(ctx, token);
-        } else {
-            throw new ForbiddenResponse("Unsupported authorization");
-        }
-
-        if (permittedRoles.stream().noneMatch(permittedRole -> ((WebPermissionRole) permittedRole).canInteract(role))) {
-            throw new ForbiddenResponse("Not enough permissions");
+            return loginManager.getRole(ctx, token);
         }
-
-        ctx.header("User-Role", role.name());
-        ctx.header("User-Role-ID", String.valueOf(role.ordinal()));
-
-        handler.handle(ctx);
+        throw new ForbiddenResponse("Unsupported authorization");
     }
 }
@@ -0,0 +1,85 @@
+package eu.cloudnetservice.cloudnet.repository.web;
+
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+import eu.cloudnetservice.cloudnet.repository.web.download.HttpDates;
+import io.javalin.http.Context;
+
+import java.nio.charset.StandardCharsets;
+
+public class ConditionalRequests {
+
+    private ConditionalRequests() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static String computeEntityTag(String content) {
+        return computeEntityTag(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String computeEntityTag(byte[] content) {
+        return "\"" + StringUtils.toHex(FileValidatorCache.newDigest().digest(content)) + "\"";
+    }
+
+    // lastModified may be -1 if the resource has no modification date
+    public static boolean isNotModified(Context context, String entityTag, long lastModified) {
+        String ifNoneMatch = context.header("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, entityTag, false);
+        }
+
+        if (lastModified < 0) {
+            return false;
+        }
+        long ifModifiedSince = HttpDates.parse(context.header("If-Modified-Since"));
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    // If-Range and If-Match only allow the strong comparison, weak tags never match
+    public static boolean matchesStrongly(String header, String entityTag) {
+        return matches(header, entityTag, true);
+    }
+
+    public static boolean acceptsGzip(Context context) {
+        String acceptEncoding = context.header("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    public static void sendResult(Context context, String result, String entityTag, String contentType) {
+        context.header("ETag", entityTag);
+        if (isNotModified(context, entityTag, -1)) {
+            context.status(304);
+            return;
+        }
+        context.contentType(contentType).result(result);
+    }
+
+    private static boolean matches(String header, String entityTag, boolean strong) {
+        if (header.trim().equals("*")) {
+            return true;
+        }
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                if (strong) {
+                    continue;
+                }
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -29,7 +29,10 @@ public class MimeTypes {
     }
 
     public static String getTypeFromPath(Path path) {
-        String name = path.getFileName().toString();
+        return getTypeFromName(path.getFileName().toString());
+    }
+
+    public static String getTypeFromName(String name) {
         int pointIndex = name.lastIndexOf('.');
         if (pointIndex == -1) {
             return "text/plain";
@@ -0,0 +1,175 @@
+package eu.cloudnetservice.cloudnet.repository.web;
+
+import eu.cloudnetservice.cloudnet.repository.database.DatabaseTable;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileDownloadSender;
+import io.javalin.http.Context;
+import io.javalin.plugin.json.JavalinJson;
+
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// keeps the serialized responses of the public api which only depend on one table of the database,
+// the entries are dropped when that table changes for the parent version of the response
+public class ResponseCache {
+
+    // same threshold as the dynamic gzip of javalin, smaller responses are sent uncompressed
+    private static final int MIN_GZIP_SIZE = 1500;
+
+    private final int maxEntries;
+    // the least recently used response is evicted once the cache is full
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return this.size() > ResponseCache.this.maxEntries;
+        }
+    };
+    private final AtomicLongArray generations = new AtomicLongArray(DatabaseTable.values().length);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ResponseCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public ResponseCache() {
+        this(Integer.getInteger("cloudnet.repository.api.cacheSize", 1024));
+    }
+
+    // the parent version is null for responses which contain the data of all parent versions
+    public void sendJson(Context context, DatabaseTable table, String parentVersionName, Supplier<Object> supplier) throws IOException {
+        Key key = new Key(table, parentVersionName != null ? parentVersionName.toLowerCase() : null, context.path());
+
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+        }
+        if (entry != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+
+            long generation = this.generations.get(table.ordinal());
+            entry = new Entry(JavalinJson.toJson(supplier.get()).getBytes(StandardCharsets.UTF_8));
+            this.put(key, entry, generation);
+        }
+
+        this.send(context, entry);
+    }
+
+    public synchronized void invalidate(DatabaseTable table, String parentVersionName) {
+        this.generations.incrementAndGet(table.ordinal());
+        this.entries.keySet().removeIf(key -> key.table == table
+                && (parentVersionName == null || key.parentVersionName == null || key.parentVersionName.equalsIgnoreCase(parentVersionName)));
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    // the response is not cached if the table has been changed while it was serialized, it might not contain that change
+    private synchronized void put(Key key, Entry entry, long generation) {
+        if (this.generations.get(key.table.ordinal()) == generation) {
+            this.entries.put(key, entry);
+        }
+    }
+
+    private void send(Context context, Entry entry) throws IOException {
+        boolean gzip = entry.gzip != null && ConditionalRequests.acceptsGzip(context);
+        String entityTag = gzip ? entry.entityTag.substring(0, entry.entityTag.length() - 1) + "-gz\"" : entry.entityTag;
+
+        context.header("ETag", entityTag);
+        if (entry.gzip != null) {
+            context.header("Vary", "Accept-Encoding");
+        }
+        if (ConditionalRequests.isNotModified(context, entityTag, -1)) {
+            context.status(304);
+            return;
+        }
+
+        // the bytes are written to jetty directly, otherwise javalin would compress them again
+        byte[] content = gzip ? entry.gzip : entry.json;
+        context.res.setContentType("application/json");
+        if (gzip) {
+            context.res.setHeader("Content-Encoding", "gzip");
+        }
+        context.res.setContentLength(content.length);
+
+        ServletOutputStream outputStream = FileDownloadSender.unwrapResponse(context.res).getOutputStream();
+        outputStream.write(content);
+    }
+
+    private static byte[] compress(byte[] content) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static class Key {
+
+        private final DatabaseTable table;
+        private final String parentVersionName;
+        private final String path;
+
+        private Key(DatabaseTable table, String parentVersionName, String path) {
+            this.table = table;
+            this.parentVersionName = parentVersionName;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return this.table == key.table && Objects.equals(this.parentVersionName, key.parentVersionName) && this.path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.table, this.parentVersionName, this.path);
+        }
+
+    }
+
+    private static class Entry {
+
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String entityTag;
+
+        private Entry(byte[] json) {
+            this.json = json;
+            this.gzip = json.length >= MIN_GZIP_SIZE ? compress(json) : null;
+            this.entityTag = ConditionalRequests.computeEntityTag(json);
+        }
+
+    }
+
+}
@@ -2,6 +2,9 @@ package eu.cloudnetservice.cloudnet.repository.web;
 
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileDownloadSender;
+import eu.cloudnetservice.cloudnet.repository.web.download.ZipArchiveCache;
+import eu.cloudnetservice.cloudnet.repository.web.download.ZipEntrySender;
 import eu.cloudnetservice.cloudnet.repository.web.registry.*;
 import io.javalin.Javalin;
 import io.javalin.plugin.json.JavalinJson;
@@ -22,12 +25,19 @@ public class WebServer {
     );
 
     private final CloudNetUpdateServer server;
+    private final FileDownloadSender downloadSender;
+    private final ZipArchiveCache zipArchiveCache;
+    private final ZipEntrySender zipEntrySender = new ZipEntrySender();
+    private final ResponseCache responseCache = new ResponseCache();
 
     private Javalin javalin;
     private boolean apiAvailable = System.getProperty("cloudnet.repository.api.enabled", "true").equalsIgnoreCase("true");
 
     public WebServer(CloudNetUpdateServer server) {
         this.server = server;
+        this.downloadSender = new FileDownloadSender(server.getFileValidatorCache());
+        this.zipArchiveCache = new ZipArchiveCache(server.getFileValidatorCache());
+        server.getDatabase().addChangeListener(this.responseCache::invalidate);
     }
 
     public boolean isApiAvailable() {
@@ -38,6 +48,22 @@ public class WebServer {
         this.apiAvailable = apiAvailable;
     }
 
+    public FileDownloadSender getDownloadSender() {
+        return this.downloadSender;
+    }
+
+    public ZipArchiveCache getZipArchiveCache() {
+        return this.zipArchiveCache;
+    }
+
+    public ZipEntrySender getZipEntrySender() {
+        return this.zipEntrySender;
+    }
+
+    public ResponseCache getResponseCache() {
+        return this.responseCache;
+    }
+
     public Javalin getJavalin() {
         return this.javalin;
     }
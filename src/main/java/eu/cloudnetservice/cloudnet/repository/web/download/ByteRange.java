@@ -0,0 +1,110 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class ByteRange {
+
+    private static final String UNIT_PREFIX = "bytes=";
+    private static final int MAX_RANGES = 64;
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return this.start;
+    }
+
+    // inclusive, like in the Range and Content-Range headers
+    public long getEnd() {
+        return this.end;
+    }
+
+    public long getLength() {
+        return this.end - this.start + 1;
+    }
+
+    public String toContentRange(long size) {
+        return "bytes " + this.start + "-" + this.end + "/" + size;
+    }
+
+    // returns null if the header is malformed and has to be ignored, an empty list if none of the ranges is satisfiable
+    public static List<ByteRange> parse(String header, long size) {
+        if (header == null || !header.startsWith(UNIT_PREFIX)) {
+            return null;
+        }
+
+        String[] specs = header.substring(UNIT_PREFIX.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int separator = spec.indexOf('-');
+            if (separator == -1) {
+                return null;
+            }
+
+            long first;
+            long last;
+            try {
+                if (separator == 0) {
+                    long suffixLength = Long.parseLong(spec.substring(1));
+                    if (suffixLength <= 0) {
+                        continue;
+                    }
+                    first = Math.max(0, size - suffixLength);
+                    last = size - 1;
+                } else {
+                    first = Long.parseLong(spec.substring(0, separator));
+                    last = separator == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(separator + 1));
+                }
+            } catch (NumberFormatException exception) {
+                return null;
+            }
+
+            if (first < 0 || last < first) {
+                return null;
+            }
+            if (first >= size) {
+                continue;
+            }
+
+            ranges.add(new ByteRange(first, Math.min(last, size - 1)));
+        }
+
+        return merge(ranges);
+    }
+
+    private static List<ByteRange> merge(List<ByteRange> ranges) {
+        if (ranges.size() <= 1) {
+            return ranges;
+        }
+
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+
+        return merged;
+    }
+
+}
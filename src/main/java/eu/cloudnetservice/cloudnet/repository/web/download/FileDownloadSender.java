@@ -0,0 +1,251 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import eu.cloudnetservice.cloudnet.repository.web.ConditionalRequests;
+import io.javalin.http.Context;
+import org.eclipse.jetty.server.HttpOutput;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+public class FileDownloadSender {
+
+    private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+    private final FileValidatorCache validatorCache;
+    private final HotFileCache hotFileCache;
+
+    public FileDownloadSender(FileValidatorCache validatorCache, HotFileCache hotFileCache) {
+        this.validatorCache = validatorCache;
+        this.hotFileCache = hotFileCache;
+        validatorCache.addInvalidationListener(hotFileCache::invalidate);
+    }
+
+    public FileDownloadSender(FileValidatorCache validatorCache) {
+        this(validatorCache, new HotFileCache());
+    }
+
+    public HotFileCache getHotFileCache() {
+        return this.hotFileCache;
+    }
+
+    public void send(Context context, Path path, String contentType) throws IOException {
+        FileValidator validator = this.validatorCache.get(path);
+
+        context.header("Accept-Ranges", "bytes");
+        context.header("ETag", validator.getEntityTag());
+        context.header("Last-Modified", HttpDates.format(validator.getLastModified()));
+
+        if (ConditionalRequests.isNotModified(context, validator.getEntityTag(), validator.getLastModified())) {
+            context.status(304);
+            return;
+        }
+
+        // frequently downloaded files are served from memory without opening and mapping them for every request
+        ByteBuffer content = this.hotFileCache.get(path, validator);
+        if (content != null) {
+            this.send(context, new BufferSource(content), validator, contentType);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.send(context, new ChannelSource(channel), validator, contentType);
+        }
+    }
+
+    private void send(Context context, Source source, FileValidator validator, String contentType) throws IOException {
+        long size = source.size();
+
+        List<ByteRange> ranges = this.getRequestedRanges(context, size, validator);
+
+        if (ranges == null) {
+            context.res.setContentType(contentType);
+            context.res.setContentLengthLong(size);
+            this.sendRegion(context, source, 0, size);
+            return;
+        }
+
+        if (ranges.isEmpty()) {
+            context.status(416).header("Content-Range", "bytes */" + size);
+            context.res.setContentLengthLong(0);
+            return;
+        }
+
+        context.status(206);
+
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+
+            context.header("Content-Range", range.toContentRange(size));
+            context.res.setContentType(contentType);
+            context.res.setContentLengthLong(range.getLength());
+            this.sendRegion(context, source, range.getStart(), range.getLength());
+            return;
+        }
+
+        this.sendMultipartRanges(context, source, ranges, size, contentType);
+    }
+
+    private List<ByteRange> getRequestedRanges(Context context, long size, FileValidator validator) {
+        String rangeHeader = context.header("Range");
+        if (rangeHeader == null) {
+            return null;
+        }
+
+        // the client only wants the ranges if the file is still the one from its previous partial download
+        String ifRange = context.header("If-Range");
+        if (ifRange != null && !this.isSameFile(ifRange.trim(), validator)) {
+            return null;
+        }
+
+        return ByteRange.parse(rangeHeader, size);
+    }
+
+    private boolean isSameFile(String ifRange, FileValidator validator) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ConditionalRequests.matchesStrongly(ifRange, validator.getEntityTag());
+        }
+        return HttpDates.parse(ifRange) == validator.getLastModified();
+    }
+
+    private void sendMultipartRanges(Context context, Source source, List<ByteRange> ranges, long size, String contentType) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+
+        byte[][] partHeaders = new byte[ranges.size()][];
+        byte[] closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        long contentLength = closeDelimiter.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: " + range.toContentRange(size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + range.getLength();
+        }
+
+        context.res.setContentType("multipart/byteranges; boundary=" + boundary);
+        context.res.setContentLengthLong(contentLength);
+
+        ServletOutputStream outputStream = unwrapResponse(context.res).getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+
+            outputStream.write(partHeaders[i]);
+            this.writeRegion(outputStream, source, range.getStart(), range.getLength());
+        }
+        outputStream.write(closeDelimiter);
+    }
+
+    // sends the region as the complete response body
+    private void sendRegion(Context context, Source source, long position, long length) throws IOException {
+        ServletOutputStream outputStream = unwrapResponse(context.res).getOutputStream();
+        if (!(outputStream instanceof HttpOutput) || length > MAX_MAPPING_SIZE) {
+            this.writeRegion(outputStream, source, position, length);
+            return;
+        }
+
+        // the buffer is either mapped from the page cache of the os or cached off the heap,
+        // jetty writes it to the socket without copying it into the heap
+        ((HttpOutput) outputStream).sendContent(source.slice(position, length));
+    }
+
+    private void writeRegion(ServletOutputStream outputStream, Source source, long position, long length) throws IOException {
+        if (!(outputStream instanceof HttpOutput)) {
+            source.transferTo(position, length, Channels.newChannel(outputStream));
+            return;
+        }
+
+        // a single mapping is limited to 2GB
+        for (long offset = 0; offset < length; offset += MAX_MAPPING_SIZE) {
+            long chunkLength = Math.min(MAX_MAPPING_SIZE, length - offset);
+            ((HttpOutput) outputStream).write(source.slice(position + offset, chunkLength));
+        }
+    }
+
+    // javalin wraps the response to compress results, the file has to bypass that to reach jetty directly
+    public static ServletResponse unwrapResponse(ServletResponse response) {
+        while (response instanceof ServletResponseWrapper) {
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        return response;
+    }
+
+    private interface Source {
+
+        long size() throws IOException;
+
+        ByteBuffer slice(long position, long length) throws IOException;
+
+        void transferTo(long position, long length, WritableByteChannel target) throws IOException;
+
+    }
+
+    private static class ChannelSource implements Source {
+
+        private final FileChannel channel;
+
+        private ChannelSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return this.channel.size();
+        }
+
+        @Override
+        public ByteBuffer slice(long position, long length) throws IOException {
+            return this.channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+
+        @Override
+        public void transferTo(long position, long length, WritableByteChannel target) throws IOException {
+            long written = 0;
+            while (written < length) {
+                written += this.channel.transferTo(position + written, length - written, target);
+            }
+        }
+
+    }
+
+    private static class BufferSource implements Source {
+
+        private final ByteBuffer buffer;
+
+        private BufferSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public long size() {
+            return this.buffer.remaining();
+        }
+
+        @Override
+        public ByteBuffer slice(long position, long length) {
+            ByteBuffer slice = this.buffer.duplicate();
+            slice.position((int) position).limit((int) (position + length));
+            return slice.slice();
+        }
+
+        @Override
+        public void transferTo(long position, long length, WritableByteChannel target) throws IOException {
+            ByteBuffer slice = this.slice(position, length);
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+public class FileValidator {
+
+    private final String sha256;
+    private final long size;
+    private final long lastModified;
+    private final String entityTag;
+
+    public FileValidator(String sha256, long size, long lastModified) {
+        this.sha256 = sha256;
+        this.size = size;
+        this.lastModified = HttpDates.truncate(lastModified);
+        this.entityTag = sha256 != null
+                ? "\"" + sha256 + "\""
+                : "W/\"" + Long.toHexString(size) + "-" + Long.toHexString(this.lastModified) + "\"";
+    }
+
+    // used until the hash of the file is known, the entity tag only depends on the size and the modification time
+    public static FileValidator weak(long size, long lastModified) {
+        return new FileValidator(null, size, lastModified);
+    }
+
+    public boolean isWeak() {
+        return this.sha256 == null;
+    }
+
+    // the weak validator has been replaced by the hashed one of the same file, content cached for it is still valid
+    public boolean isUpgradedBy(FileValidator validator) {
+        return this.isWeak() && !validator.isWeak() && this.size == validator.size && this.lastModified == validator.lastModified;
+    }
+
+    public String getSha256() {
+        return this.sha256;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    public String getEntityTag() {
+        return this.entityTag;
+    }
+
+}
@@ -0,0 +1,138 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import eu.cloudnetservice.cloudnet.repository.store.BlobStore;
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// holds the hashes of all served files, so that conditional requests can be answered without reading the file again
+public class FileValidatorCache {
+
+    private final Map<Path, FileValidator> validators = new ConcurrentHashMap<>();
+    private final BlobStore blobStore;
+    private final Collection<Consumer<Path>> invalidationListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService hashExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "File hashing");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FileValidatorCache(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    public FileValidatorCache() {
+        this(null);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", exception);
+        }
+    }
+
+    // the listeners are called with every file or directory which has been rewritten, caches of the content have to drop it
+    public void addInvalidationListener(Consumer<Path> listener) {
+        this.invalidationListeners.add(listener);
+    }
+
+    public FileValidator register(Path path, byte[] sha256) throws IOException {
+        return this.register(path, StringUtils.toHex(sha256));
+    }
+
+    private FileValidator register(Path path, String sha256) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FileValidator validator = new FileValidator(sha256, attributes.size(), attributes.lastModifiedTime().toMillis());
+        FileValidator oldValidator = this.validators.put(this.key(path), validator);
+        if (oldValidator != null) {
+            this.notifyInvalidation(path);
+        }
+        return validator;
+    }
+
+    public FileValidator getIfPresent(Path path) {
+        return this.validators.get(this.key(path));
+    }
+
+    // files that have been written before the start of the server are hashed in the background after their first request,
+    // unless they are links to a blob which is named by the hash of its content; until then they have a weak validator
+    public FileValidator get(Path path) throws IOException {
+        FileValidator validator = this.getIfPresent(path);
+        if (validator != null) {
+            return validator;
+        }
+
+        String blobHash = this.blobStore != null ? this.blobStore.findHash(path) : null;
+        if (blobHash != null) {
+            return this.register(path, blobHash);
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FileValidator weakValidator = FileValidator.weak(attributes.size(), attributes.lastModifiedTime().toMillis());
+        validator = this.validators.putIfAbsent(this.key(path), weakValidator);
+        if (validator != null) {
+            return validator;
+        }
+
+        this.hashExecutor.execute(() -> this.hash(path, weakValidator));
+        return weakValidator;
+    }
+
+    public void invalidate(Path path) {
+        this.validators.remove(this.key(path));
+        this.notifyInvalidation(path);
+    }
+
+    public void invalidateDirectory(Path directory) {
+        Path key = this.key(directory);
+        this.validators.keySet().removeIf(path -> path.startsWith(key));
+        this.notifyInvalidation(directory);
+    }
+
+    // the hash is only registered if the file has not been changed or registered by someone else in the meantime
+    private void hash(Path path, FileValidator weakValidator) {
+        try {
+            MessageDigest digest = newDigest();
+            try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            FileValidator validator = new FileValidator(StringUtils.toHex(digest.digest()), attributes.size(), attributes.lastModifiedTime().toMillis());
+            if (weakValidator.isUpgradedBy(validator)) {
+                this.validators.replace(this.key(path), weakValidator, validator);
+            }
+        } catch (IOException exception) {
+            this.validators.remove(this.key(path), weakValidator);
+        }
+    }
+
+    private void notifyInvalidation(Path path) {
+        Path key = this.key(path);
+        for (Consumer<Path> listener : this.invalidationListeners) {
+            listener.accept(key);
+        }
+    }
+
+    private Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+}
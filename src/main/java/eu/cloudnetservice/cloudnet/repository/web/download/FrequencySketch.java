@@ -0,0 +1,78 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// count-min sketch with counters up to 15 which estimates how often a key has been requested recently,
+// all counters are halved after a number of increments so that old popularity fades out;
+// every download increments it, so it is updated without a lock and the estimates are allowed to be slightly off
+class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0x3c6ef372, 0xbb67ae85, 0x5be0cd19};
+
+    private final AtomicIntegerArray[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int width) {
+        int capacity = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.counters = new AtomicIntegerArray[DEPTH];
+        for (int row = 0; row < DEPTH; row++) {
+            this.counters[row] = new AtomicIntegerArray(capacity);
+        }
+        this.mask = capacity - 1;
+        this.sampleSize = capacity * 10;
+    }
+
+    void increment(Object key) {
+        int hash = this.spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = this.index(hash, row);
+            if (this.counters[row].getAndUpdate(index, count -> Math.min(count + 1, MAX_COUNT)) < MAX_COUNT) {
+                added = true;
+            }
+        }
+
+        if (added) {
+            int additions = this.additions.incrementAndGet();
+            // only the thread which halves the number of additions resets the counters
+            if (additions >= this.sampleSize && this.additions.compareAndSet(additions, additions / 2)) {
+                this.reset();
+            }
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = this.spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, this.counters[row].get(this.index(hash, row)));
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (AtomicIntegerArray row : this.counters) {
+            for (int i = 0; i < row.length(); i++) {
+                row.updateAndGet(i, count -> count >>> 1);
+            }
+        }
+    }
+
+    private int index(int hash, int row) {
+        int value = (hash ^ SEEDS[row]) * 0x9E3779B9;
+        return (value ^ (value >>> 16)) & this.mask;
+    }
+
+    private int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        return hash;
+    }
+
+}
@@ -0,0 +1,207 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// keeps the content of the most requested files in direct buffers, limited by the number of bytes of all cached files;
+// a file is only admitted if it has been requested more often recently than the files it would replace (TinyLFU),
+// otherwise the least recently used files are evicted first. Hits only read the map and update the sketch without a lock,
+// the lock is only held to admit, evict and remove files
+public class HotFileCache {
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final FrequencySketch sketch;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    // only one request loads a file, concurrent requests for the same file are served from the disk meanwhile
+    private final Set<Path> loadingKeys = new HashSet<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HotFileCache() {
+        this(
+                Long.getLong("cloudnet.repository.download.cacheSize", 256L * 1024 * 1024),
+                Long.getLong("cloudnet.repository.download.cacheFileSize", 64L * 1024 * 1024)
+        );
+    }
+
+    public HotFileCache(long maxBytes, long maxFileBytes) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+        this.sketch = new FrequencySketch(1024);
+    }
+
+    // returns the content of the file or null if it is not and shouldn't be cached; the validator identifies the version
+    // of the file, content which has been cached for another validator is outdated
+    public ByteBuffer get(Path path, FileValidator validator) throws IOException {
+        if (this.maxBytes <= 0) {
+            return null;
+        }
+
+        Path key = path.toAbsolutePath().normalize();
+        this.sketch.increment(key);
+
+        Entry entry = this.entries.get(key);
+        if (entry != null && entry.validator.isUpgradedBy(validator)) {
+            entry.validator = validator;
+        }
+        if (entry != null && entry.validator == validator) {
+            entry.lastAccess = System.nanoTime();
+            this.hits.increment();
+            return entry.buffer.duplicate();
+        }
+
+        synchronized (this) {
+            // the content is outdated, unless another request has already replaced it
+            if (entry != null && this.entries.get(key) == entry) {
+                this.remove(key);
+            }
+            this.misses.increment();
+
+            if (validator.getSize() > this.maxFileBytes || !this.admit(key, validator.getSize())) {
+                this.rejections.increment();
+                return null;
+            }
+            if (!this.loadingKeys.add(key)) {
+                return null;
+            }
+        }
+
+        ByteBuffer buffer;
+        try {
+            buffer = this.load(path, validator.getSize());
+        } finally {
+            synchronized (this) {
+                this.loadingKeys.remove(key);
+            }
+        }
+        if (buffer == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            // the space might have been taken by other files in the meantime
+            if (!this.entries.containsKey(key) && this.admit(key, buffer.capacity())) {
+                this.evict(buffer.capacity());
+                this.entries.put(key, new Entry(validator, buffer));
+                this.bytes += buffer.capacity();
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    public synchronized void invalidate(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        this.entries.keySet().stream()
+                .filter(cached -> cached.startsWith(key))
+                .collect(Collectors.toList())
+                .forEach(this::remove);
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        long hits = this.hits.sum();
+        long requests = hits + this.misses.sum();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("entries", this.entries.size());
+        statistics.put("bytes", this.bytes);
+        statistics.put("maxBytes", this.maxBytes);
+        statistics.put("hits", hits);
+        statistics.put("misses", this.misses.sum());
+        statistics.put("hitRate", requests == 0 ? 0D : (double) hits / requests);
+        statistics.put("rejections", this.rejections.sum());
+        statistics.put("evictions", this.evictions.sum());
+        return statistics;
+    }
+
+    // the candidate is admitted if it is requested more often than every file which has to be evicted to make room for it
+    private boolean admit(Path key, long size) {
+        long free = this.maxBytes - this.bytes;
+        if (free >= size) {
+            return true;
+        }
+
+        int frequency = this.sketch.frequency(key);
+        for (Map.Entry<Path, Entry> victim : this.leastRecentlyUsed()) {
+            if (this.sketch.frequency(victim.getKey()) >= frequency) {
+                return false;
+            }
+            free += victim.getValue().buffer.capacity();
+            if (free >= size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void evict(long size) {
+        Iterator<Map.Entry<Path, Entry>> iterator = this.leastRecentlyUsed().iterator();
+        while (this.maxBytes - this.bytes < size && iterator.hasNext()) {
+            this.remove(iterator.next().getKey());
+            this.evictions.increment();
+        }
+    }
+
+    // the cache only holds a few large files, sorting them on every admission is cheaper than ordering them on every hit
+    private List<Map.Entry<Path, Entry>> leastRecentlyUsed() {
+        List<Map.Entry<Path, Entry>> entries = new ArrayList<>(this.entries.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        return entries;
+    }
+
+    private void remove(Path key) {
+        Entry entry = this.entries.remove(key);
+        if (entry != null) {
+            this.bytes -= entry.buffer.capacity();
+        }
+    }
+
+    private ByteBuffer load(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the file has been replaced after the validator has been created, it is served from the disk
+            if (channel.size() != size) {
+                return null;
+            }
+
+            ByteBuffer buffer;
+            try {
+                buffer = ByteBuffer.allocateDirect((int) size);
+            } catch (OutOfMemoryError error) {
+                // the direct memory limit of the jvm is lower than the size of the cache, the file is served from the disk
+                System.out.println("Unable to cache " + path + " in direct memory: " + error.getMessage());
+                return null;
+            }
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    return null;
+                }
+            }
+            return buffer.flip().asReadOnlyBuffer();
+        }
+    }
+
+    private static class Entry {
+
+        private volatile FileValidator validator;
+        private final ByteBuffer buffer;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(FileValidator validator, ByteBuffer buffer) {
+            this.validator = validator;
+            this.buffer = buffer;
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+public class HttpDates {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    private HttpDates() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static String format(long millis) {
+        return FORMATTER.format(Instant.ofEpochMilli(millis));
+    }
+
+    // returns -1 if the given value is no valid http date
+    public static long parse(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException exception) {
+            return -1;
+        }
+    }
+
+    // http dates only have a precision of seconds
+    public static long truncate(long millis) {
+        return millis - Math.floorMod(millis, 1000L);
+    }
+
+}
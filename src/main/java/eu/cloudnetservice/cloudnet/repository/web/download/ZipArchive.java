@@ -0,0 +1,204 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// an index of the central directory of a zip file, the entries are read with positional reads from a single channel
+// which is shared by all requests; only the central directory is read when the archive is opened
+public class ZipArchive implements AutoCloseable {
+
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int MAX_END_RECORD_SIZE = 22 + 0xFFFF;
+    // mapping costs more than reading for small entries, only larger entries are mapped into memory
+    private static final int MAP_THRESHOLD = Integer.getInteger("cloudnet.repository.docs.mapThreshold", 256 * 1024);
+
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    // the archive is closed by the cache once it is evicted and no request is using it anymore
+    private int references;
+    private boolean evicted;
+
+    private ZipArchive(FileChannel channel, Map<String, Entry> entries) {
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    public static ZipArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ZipArchive(channel, readCentralDirectory(channel));
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, MAX_END_RECORD_SIZE);
+        ByteBuffer tail = read(channel, size - tailLength, tailLength);
+
+        int end = -1;
+        for (int position = tailLength - 22; position >= 0; position--) {
+            if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                end = position;
+                break;
+            }
+        }
+        if (end == -1) {
+            throw new IOException("No zip file: end of central directory not found");
+        }
+
+        int entryCount = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL || directoryOffset + directorySize > size) {
+            throw new IOException("Zip64 archives are not supported");
+        }
+
+        ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+        Map<String, Entry> entries = new HashMap<>(entryCount * 2);
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (position + 46 > directory.limit() || directory.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                throw new IOException("Invalid central directory header of entry " + i);
+            }
+
+            int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            byte[] name = new byte[nameLength];
+            directory.duplicate().position(position + 46).get(name);
+
+            Entry entry = new Entry(
+                    directory.getShort(position + 10) & 0xFFFF,
+                    directory.getInt(position + 16),
+                    directory.getInt(position + 20) & 0xFFFFFFFFL,
+                    directory.getInt(position + 24) & 0xFFFFFFFFL,
+                    directory.getInt(position + 42) & 0xFFFFFFFFL
+            );
+            entries.put(new String(name, StandardCharsets.UTF_8), entry);
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("Unexpected end of zip file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    public Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    // the stored or deflated data of the entry as it is in the file, large entries are mapped into memory without copying them into the heap
+    public ByteBuffer readData(Entry entry) throws IOException {
+        long dataOffset = entry.dataOffset;
+        if (dataOffset == -1) {
+            // the length of the local header is only known after reading it, it is read once on the first request
+            ByteBuffer header = read(this.channel, entry.localHeaderOffset, 30);
+            if (header.getInt(0) != LOCAL_FILE_HEADER) {
+                throw new IOException("Invalid local file header");
+            }
+            dataOffset = entry.localHeaderOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+            entry.dataOffset = dataOffset;
+        }
+        if (entry.compressedSize <= MAP_THRESHOLD) {
+            return read(this.channel, dataOffset, (int) entry.compressedSize);
+        }
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, entry.compressedSize);
+    }
+
+    synchronized boolean retain() {
+        if (this.evicted) {
+            return false;
+        }
+        this.references++;
+        return true;
+    }
+
+    public synchronized void release() {
+        if (--this.references == 0 && this.evicted) {
+            this.closeQuietly();
+        }
+    }
+
+    synchronized void evict() {
+        this.evicted = true;
+        if (this.references == 0) {
+            this.closeQuietly();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            this.close();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    public static class Entry {
+
+        private final int method;
+        private final int crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+        private volatile long dataOffset = -1;
+
+        private Entry(int method, int crc, long compressedSize, long size, long localHeaderOffset) {
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public int getMethod() {
+            return this.method;
+        }
+
+        public int getCrc() {
+            return this.crc;
+        }
+
+        public long getCompressedSize() {
+            return this.compressedSize;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+    }
+
+}
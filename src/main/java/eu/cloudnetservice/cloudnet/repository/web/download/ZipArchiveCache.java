@@ -0,0 +1,110 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// keeps the most recently used archives open; an archive is reopened once the validator of its file changed,
+// which happens when a new version of the file has been published
+public class ZipArchiveCache {
+
+    private final FileValidatorCache validatorCache;
+    private final int maxArchives;
+    private final Map<Path, CachedArchive> archives;
+
+    public ZipArchiveCache(FileValidatorCache validatorCache) {
+        this(validatorCache, Integer.getInteger("cloudnet.repository.docs.openArchives", 16));
+    }
+
+    public ZipArchiveCache(FileValidatorCache validatorCache, int maxArchives) {
+        this.validatorCache = validatorCache;
+        this.maxArchives = maxArchives;
+        this.archives = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, CachedArchive> eldest) {
+                if (this.size() > ZipArchiveCache.this.maxArchives) {
+                    eldest.getValue().archive.evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // returns null if the file doesn't exist, the returned archive has to be released after it has been used
+    public CachedArchive acquire(Path path) throws IOException {
+        FileValidator validator;
+        try {
+            validator = this.validatorCache.get(path);
+        } catch (NoSuchFileException exception) {
+            return null;
+        }
+
+        Path key = path.toAbsolutePath().normalize();
+        CachedArchive cached = this.retainCached(key, validator);
+        if (cached != null) {
+            return cached;
+        }
+
+        // the central directory is read without holding the lock, requests for other archives are not blocked by it
+        CachedArchive opened = new CachedArchive(ZipArchive.open(path), validator);
+        opened.archive.retain();
+        synchronized (this.archives) {
+            cached = this.archives.get(key);
+            if (cached != null && cached.validator == validator) {
+                // another request opened the same archive in the meantime, it is only used by this request
+                opened.archive.evict();
+                return opened;
+            }
+            if (cached != null) {
+                cached.archive.evict();
+            }
+            this.archives.put(key, opened);
+            return opened;
+        }
+    }
+
+    private CachedArchive retainCached(Path key, FileValidator validator) {
+        synchronized (this.archives) {
+            CachedArchive cached = this.archives.get(key);
+            if (cached != null && cached.validator.isUpgradedBy(validator)) {
+                cached.validator = validator;
+            }
+            if (cached != null && cached.validator == validator && cached.archive.retain()) {
+                return cached;
+            }
+            if (cached != null) {
+                this.archives.remove(key);
+                cached.archive.evict();
+            }
+            return null;
+        }
+    }
+
+    public static class CachedArchive {
+
+        private final ZipArchive archive;
+        private volatile FileValidator validator;
+
+        private CachedArchive(ZipArchive archive, FileValidator validator) {
+            this.archive = archive;
+            this.validator = validator;
+        }
+
+        public ZipArchive getArchive() {
+            return this.archive;
+        }
+
+        public FileValidator getValidator() {
+            return this.validator;
+        }
+
+        public void release() {
+            this.archive.release();
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import eu.cloudnetservice.cloudnet.repository.web.ConditionalRequests;
+import io.javalin.http.Context;
+import org.eclipse.jetty.server.HttpOutput;
+
+import javax.servlet.ServletOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// sends entries of zip archives without extracting them, deflated entries are sent as they are stored in the archive
+// wrapped into a gzip header and trailer if the client accepts gzip
+public class ZipEntrySender {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    public void send(Context context, ZipArchiveCache.CachedArchive cachedArchive, ZipArchive.Entry entry, String contentType) throws IOException {
+        FileValidator validator = cachedArchive.getValidator();
+        boolean gzip = entry.getMethod() == ZipArchive.DEFLATED && ConditionalRequests.acceptsGzip(context);
+
+        // the entity tag is unique for the entry in this version of the archive, both encodings need a different one
+        String archiveTag = validator.isWeak()
+                ? "W/\"" + Long.toHexString(validator.getSize()) + "-" + Long.toHexString(validator.getLastModified())
+                : "\"" + validator.getSha256().substring(0, 16);
+        String entityTag = archiveTag + "-" + Integer.toHexString(entry.getCrc()) + (gzip ? "-gz" : "") + "\"";
+        context.header("ETag", entityTag);
+        context.header("Last-Modified", HttpDates.format(validator.getLastModified()));
+        context.header("Vary", "Accept-Encoding");
+
+        if (ConditionalRequests.isNotModified(context, entityTag, validator.getLastModified())) {
+            context.status(304);
+            return;
+        }
+
+        ZipArchive archive = cachedArchive.getArchive();
+        ServletOutputStream outputStream = FileDownloadSender.unwrapResponse(context.res).getOutputStream();
+        context.res.setContentType(contentType);
+
+        if (entry.getMethod() == ZipArchive.STORED) {
+            context.res.setContentLengthLong(entry.getSize());
+            this.write(outputStream, archive.readData(entry));
+            return;
+        }
+        if (entry.getMethod() != ZipArchive.DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry.getMethod());
+        }
+
+        if (gzip) {
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(entry.getCrc())
+                    .putInt((int) entry.getSize())
+                    .flip();
+
+            context.res.setHeader("Content-Encoding", "gzip");
+            context.res.setContentLengthLong(GZIP_HEADER.length + entry.getCompressedSize() + trailer.remaining());
+            outputStream.write(GZIP_HEADER);
+            this.write(outputStream, archive.readData(entry));
+            outputStream.write(trailer.array());
+            return;
+        }
+
+        // clients without gzip support get the inflated entry
+        context.res.setContentLengthLong(entry.getSize());
+        Inflater inflater = new Inflater(true);
+        try (InputStream inputStream = new InflaterInputStream(new ByteBufferInputStream(archive.readData(entry)), inflater)) {
+            inputStream.transferTo(outputStream);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void write(ServletOutputStream outputStream, ByteBuffer buffer) throws IOException {
+        if (outputStream instanceof HttpOutput) {
+            ((HttpOutput) outputStream).write(buffer);
+            return;
+        }
+
+        byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            outputStream.write(chunk, 0, length);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, length);
+            return length;
+        }
+
+    }
+
+}
@@ -2,18 +2,25 @@ package eu.cloudnetservice.cloudnet.repository.web.handler;
 
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
 import eu.cloudnetservice.cloudnet.repository.web.MimeTypes;
+import eu.cloudnetservice.cloudnet.repository.web.WebServer;
+import eu.cloudnetservice.cloudnet.repository.web.download.ZipArchive;
+import eu.cloudnetservice.cloudnet.repository.web.download.ZipArchiveCache;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 public class ArchivedVersionHandler implements Handler {
 
     private Path baseDirectory;
     private String defaultFileName;
+    private String archiveFileName;
     private CloudNetUpdateServer updateServer;
     private CloudNetParentVersion parentVersion;
 
@@ -30,6 +37,11 @@ public class ArchivedVersionHandler implements Handler {
         this.updateServer = updateServer;
     }
 
+    public ArchivedVersionHandler(Path baseDirectory, CloudNetParentVersion parentVersion, String defaultFileName, String archiveFileName, CloudNetUpdateServer updateServer) {
+        this(baseDirectory, parentVersion, defaultFileName, updateServer);
+        this.archiveFileName = archiveFileName;
+    }
+
     @Override
     public void handle(@NotNull Context context) throws Exception {
         String version = context.pathParam("version");
@@ -51,18 +63,76 @@ public class ArchivedVersionHandler implements Handler {
             version = latestVersion.getName();
         }
 
-        Path file = this.baseDirectory.resolve(version).resolve(context.path().substring(versionIndex + baseVersion.length() + 1)); // 1 = the / at the end
+        String fileName = context.path().substring(versionIndex + baseVersion.length() + 1); // 1 = the / at the end
+        if (this.archiveFileName != null && this.sendFromArchive(context, version, fileName)) {
+            return;
+        }
+
+        Path file = this.baseDirectory.resolve(version).resolve(fileName);
+
+        // files which have already been validated are known to exist, no need to ask the file system again
+        if (this.updateServer.getFileValidatorCache().getIfPresent(file) == null) {
+            if (this.defaultFileName != null && Files.isDirectory(file)) {
+                file = file.resolve(this.defaultFileName);
+            }
 
-        if (this.defaultFileName != null && Files.isDirectory(file)) {
-            file = file.resolve(this.defaultFileName);
+            if (!Files.exists(file)) {
+                context.status(404).result("");
+                return;
+            }
         }
 
-        if (!Files.exists(file)) {
+        try {
+            this.updateServer.getWebServer().getDownloadSender().send(context, file, MimeTypes.getTypeFromPath(file));
+        } catch (NoSuchFileException exception) {
+            // the file has been removed after it has been validated, nothing has been written yet
+            this.updateServer.getFileValidatorCache().invalidate(file);
+            context.res.reset();
             context.status(404).result("");
             return;
         }
+        this.countDownload(context, version, file.getFileName().toString());
+    }
+
+    // the files of newer versions are kept in a single zip file and served from its index, older versions have been extracted
+    private boolean sendFromArchive(Context context, String version, String fileName) throws Exception {
+        WebServer webServer = this.updateServer.getWebServer();
+        ZipArchiveCache.CachedArchive cachedArchive = webServer.getZipArchiveCache().acquire(this.baseDirectory.resolve(version).resolve(this.archiveFileName));
+        if (cachedArchive == null) {
+            return false;
+        }
+
+        try {
+            String entryName = fileName;
+            ZipArchive.Entry entry = fileName.isEmpty() || fileName.endsWith("/") ? null : cachedArchive.getArchive().getEntry(entryName);
+            if (entry == null && this.defaultFileName != null) {
+                entryName = (fileName.isEmpty() || fileName.endsWith("/") ? fileName : fileName + "/") + this.defaultFileName;
+                entry = cachedArchive.getArchive().getEntry(entryName);
+            }
+            if (entry == null) {
+                context.status(404).result("");
+                return true;
+            }
+
+            webServer.getZipEntrySender().send(context, cachedArchive, entry, MimeTypes.getTypeFromName(entryName));
+            this.countDownload(context, version, entryName.substring(entryName.lastIndexOf('/') + 1));
+        } finally {
+            cachedArchive.release();
+        }
+        return true;
+    }
+
+    private void countDownload(Context context, String version, String fileName) {
+        // only complete downloads are counted, resumed or chunked downloads (206) would be counted multiple times otherwise
+        if (context.status() != 200) {
+            return;
+        }
 
-        context.status(202).contentType(MimeTypes.getTypeFromPath(file)).result(Files.newInputStream(file));
-        this.updateServer.getStatisticsManager().increaseDownloads(this.parentVersion.getName());
+        CloudNetVersion cloudNetVersion = this.updateServer.getDatabase().getVersion(this.parentVersion.getName(), version);
+        if (cloudNetVersion != null && Arrays.stream(cloudNetVersion.getFiles()).anyMatch(file -> file.getName().equals(fileName))) {
+            this.updateServer.getStatisticsManager().increaseDownloads(this.parentVersion.getName(), fileName);
+        } else {
+            this.updateServer.getStatisticsManager().increaseDownloads(this.parentVersion.getName());
+        }
     }
 }
@@ -68,8 +68,10 @@ public class GitHubWebHookReleaseEventHandler implements Handler {
                 break;
 
                 case "published": {
-                    System.out.println("Publishing github release " + release.getTagName() + "...");
-                    this.updateServer.installLatestRelease(this.parentVersion, release);
+                    // installing takes longer than GitHub waits for the response
+                    var job = this.updateServer.getReleaseInstallQueue().submit(this.parentVersion.getName(), release);
+                    System.out.println("Queued github release " + release.getTagName() + " as install job " + job.getUniqueId());
+                    context.status(202).result(JsonDocument.newDocument("jobId", job.getUniqueId().toString()).toJson());
                 }
                 break;
 
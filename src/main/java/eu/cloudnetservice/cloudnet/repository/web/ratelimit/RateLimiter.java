@@ -0,0 +1,120 @@
+package eu.cloudnetservice.cloudnet.repository.web.ratelimit;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpResponseException;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// a token bucket per key, implemented as the generic cell rate algorithm: instead of a token count
+// every key only stores the time at which its bucket will be full again
+public class RateLimiter {
+
+    private static final int DEFAULT_MAX_KEYS = 10000;
+
+    private final long maxRequests;
+    private final TimeUnit unit;
+    private final long emissionInterval;
+    private final long burstTolerance;
+
+    // access ordered, the first entries are the least recently used ones
+    private final LinkedHashMap<String, Bucket> buckets;
+
+    public RateLimiter(long maxRequests, TimeUnit unit) {
+        this(maxRequests, unit, DEFAULT_MAX_KEYS);
+    }
+
+    public RateLimiter(long maxRequests, TimeUnit unit, int maxKeys) {
+        if (maxRequests <= 0) {
+            throw new IllegalArgumentException("maxRequests has to be positive");
+        }
+        this.maxRequests = maxRequests;
+        this.unit = unit;
+        this.emissionInterval = unit.toNanos(1) / maxRequests;
+        this.burstTolerance = this.emissionInterval * (maxRequests - 1);
+        this.buckets = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return this.size() > maxKeys;
+            }
+        };
+    }
+
+    public boolean tryAcquire(String key) {
+        return this.tryAcquire(key, System.nanoTime()) == 0;
+    }
+
+    public void acquire(Context context, String key) {
+        this.reject(context, this.tryAcquire(key, System.nanoTime()));
+    }
+
+    // rejects the request like acquire if the key has no requests left, but doesn't use up a request
+    public void check(Context context, String key) {
+        this.reject(context, this.getRetryAfter(key, System.nanoTime()));
+    }
+
+    private void reject(Context context, long retryAfter) {
+        if (retryAfter != 0) {
+            context.header("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfter))));
+
+            String unit = this.unit.toString().toLowerCase();
+            unit = unit.substring(0, unit.length() - 1);
+            throw new HttpResponseException(429, "Rate limit exceeded - Server allows " + this.maxRequests + " requests per " + unit + ".", Collections.emptyMap());
+        }
+    }
+
+    // uses up all remaining requests of the key for the current time unit
+    public synchronized void block(String key) {
+        long now = System.nanoTime();
+        this.buckets.computeIfAbsent(key, k -> new Bucket(now)).theoreticalArrivalTime = now + this.emissionInterval * this.maxRequests;
+    }
+
+    public synchronized int size() {
+        return this.buckets.size();
+    }
+
+    // returns 0 if the request is allowed, otherwise the nanos until the next request would be allowed
+    synchronized long tryAcquire(String key, long now) {
+        this.removeExpired(now);
+
+        Bucket bucket = this.buckets.computeIfAbsent(key, k -> new Bucket(now));
+        long theoreticalArrivalTime = Math.max(bucket.theoreticalArrivalTime, now);
+        long retryAfter = theoreticalArrivalTime - this.burstTolerance - now;
+        if (retryAfter > 0) {
+            return retryAfter;
+        }
+
+        bucket.theoreticalArrivalTime = theoreticalArrivalTime + this.emissionInterval;
+        return 0;
+    }
+
+    synchronized long getRetryAfter(String key, long now) {
+        Bucket bucket = this.buckets.get(key);
+        return bucket != null ? Math.max(0, Math.max(bucket.theoreticalArrivalTime, now) - this.burstTolerance - now) : 0;
+    }
+
+    // full buckets behave exactly like missing ones, dropping them from the least recently used end keeps the map small
+    private void removeExpired(long now) {
+        Iterator<Bucket> iterator = this.buckets.values().iterator();
+        for (int i = 0; i < 2 && iterator.hasNext(); i++) {
+            if (iterator.next().theoreticalArrivalTime - now > 0) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static class Bucket {
+
+        private long theoreticalArrivalTime;
+
+        private Bucket(long theoreticalArrivalTime) {
+            this.theoreticalArrivalTime = theoreticalArrivalTime;
+        }
+
+    }
+
+}
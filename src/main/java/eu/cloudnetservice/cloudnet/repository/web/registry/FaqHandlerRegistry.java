@@ -3,6 +3,7 @@ package eu.cloudnetservice.cloudnet.repository.web.registry;
 import com.google.gson.JsonObject;
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
+import eu.cloudnetservice.cloudnet.repository.database.DatabaseTable;
 import eu.cloudnetservice.cloudnet.repository.faq.FAQEntry;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
 import eu.cloudnetservice.cloudnet.repository.web.WebPermissionRole;
@@ -39,7 +40,8 @@ public class FaqHandlerRegistry implements JavalinHandlerRegistry {
                                 .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get a list of all available faq entries for the specific parent version").addTagsItem(FAQ_TAG))
                                 .result("404", (Class<?>) null, apiResponse -> apiResponse.description("Parent version not found"))
                                 .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                        (Handler) context -> context.json(Arrays.stream(server.getDatabase().getFAQEntries(context.pathParam("parent"))).map(this::serializeFAQEntryNonAuthorization).toArray(JsonObject[]::new))
+                        (Handler) context -> webServer.getResponseCache().sendJson(context, DatabaseTable.FAQ, context.pathParam("parent"),
+                                () -> Arrays.stream(server.getDatabase().getFAQEntries(context.pathParam("parent"))).map(this::serializeFAQEntryNonAuthorization).toArray(JsonObject[]::new))
                 ));
                 get("/:language", documented(
                         document()
@@ -47,13 +49,19 @@ public class FaqHandlerRegistry implements JavalinHandlerRegistry {
                                         .summary("Get a list of all available faq entries for the specific parent version and language")
                                         .addTagsItem(FAQ_TAG)
                                 )
-                                .result("404", (Class<?>) null, apiResponse -> apiResponse.description("Parent version not found"))
+                                .result("404", (Class<?>) null, apiResponse -> apiResponse.description("Parent version or language not found"))
                                 .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                        (Handler) context -> context.json(Arrays.stream(server.getDatabase().getFAQEntries(context.pathParam("parent")))
-                                .filter(entry -> entry.getLanguage().equalsIgnoreCase(context.pathParam("language")))
-                                .map(this::serializeFAQEntryNonAuthorization)
-                                .toArray(JsonObject[]::new)
-                        )
+                        (Handler) context -> {
+                            // only languages with entries are cached, any other path would just fill the response cache
+                            if (!server.getDatabase().getFAQLanguages(context.pathParam("parent")).contains(context.pathParam("language").toLowerCase())) {
+                                throw new NotFoundResponse("Language not found");
+                            }
+                            webServer.getResponseCache().sendJson(context, DatabaseTable.FAQ, context.pathParam("parent"),
+                                    () -> Arrays.stream(server.getDatabase().getFAQEntries(context.pathParam("parent"), context.pathParam("language")))
+                                            .map(this::serializeFAQEntryNonAuthorization)
+                                            .toArray(JsonObject[]::new)
+                            );
+                        }
                 ));
             });
 
@@ -2,11 +2,14 @@ package eu.cloudnetservice.cloudnet.repository.web.registry;
 
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
+import eu.cloudnetservice.cloudnet.repository.database.DatabaseTable;
 import eu.cloudnetservice.cloudnet.repository.Constants;
+import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseArchiver;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
 import eu.cloudnetservice.cloudnet.repository.version.service.ServiceVersion;
 import eu.cloudnetservice.cloudnet.repository.version.service.ServiceVersionType;
 import eu.cloudnetservice.cloudnet.repository.web.APIAvailableResponse;
+import eu.cloudnetservice.cloudnet.repository.web.ConditionalRequests;
 import eu.cloudnetservice.cloudnet.repository.web.WebPermissionRole;
 import eu.cloudnetservice.cloudnet.repository.web.WebServer;
 import eu.cloudnetservice.cloudnet.repository.web.handler.ArchivedVersionHandler;
@@ -30,6 +33,7 @@ public class GeneralHandlerRegistry implements JavalinHandlerRegistry {
     @Override
     public void init(CloudNetUpdateServer server, WebServer webServer, Javalin javalin) {
         javalin.get("/admin/api", context -> context.result("{}"), Set.of(WebPermissionRole.MEMBER));
+        javalin.get("/admin/api/downloads/cache", context -> context.json(webServer.getDownloadSender().getHotFileCache().getStatistics()), Set.of(WebPermissionRole.DEVELOPER));
         javalin.get("/api", documented(
                 document()
                         .operation(operation -> {
@@ -47,19 +51,22 @@ public class GeneralHandlerRegistry implements JavalinHandlerRegistry {
                 throw new InternalServerErrorResponse("API currently not available");
             }
         });
+        // the languages are only loaded on startup, the response and its entity tag are built once
+        String languages = JsonDocument.GSON.toJson(server.getConfiguration().getAvailableLanguages());
+        String languagesEntityTag = ConditionalRequests.computeEntityTag(languages);
         javalin.get("/api/languages", documented(
                 document()
                         .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get all available languages").addTagsItem(GENERAL_TAG))
                         .jsonArray("200", String.class)
                         .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                (Handler) context -> context.json(server.getConfiguration().getAvailableLanguages())
+                (Handler) context -> ConditionalRequests.sendResult(context, languages, languagesEntityTag, "application/json")
         ));
 
         for (CloudNetParentVersion parentVersion : server.getConfiguration().getParentVersions()) {
             javalin.post(parentVersion.getGitHubWebHookPath(), new GitHubWebHookReleaseEventHandler(server, parentVersion));
 
             javalin.get("/versions/" + parentVersion.getName() + "/:version/*", new ArchivedVersionHandler(Constants.VERSIONS_DIRECTORY.resolve(parentVersion.getName()), parentVersion, "CloudNet.zip", server));
-            javalin.get("/docs/" + parentVersion.getName() + "/:version/*", new ArchivedVersionHandler(Constants.DOCS_DIRECTORY.resolve(parentVersion.getName()), parentVersion, "index.html", server));
+            javalin.get("/docs/" + parentVersion.getName() + "/:version/*", new ArchivedVersionHandler(Constants.DOCS_DIRECTORY.resolve(parentVersion.getName()), parentVersion, "index.html", ReleaseArchiver.DOCS_ARCHIVE_NAME, server));
         }
 
         javalin.get("/api/:parent/serviceversions", documented(
@@ -67,7 +74,8 @@ public class GeneralHandlerRegistry implements JavalinHandlerRegistry {
                         .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get all available service versions for a specific parent version").addTagsItem(GENERAL_TAG))
                         .jsonArray("200", ServiceVersionType[].class)
                         .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                (Handler) context -> context.json(server.getDatabase().getServiceVersionTypes(context.pathParam("parent")))
+                (Handler) context -> webServer.getResponseCache().sendJson(context, DatabaseTable.SERVICE_VERSIONS, context.pathParam("parent"),
+                        () -> server.getDatabase().getServiceVersionTypes(context.pathParam("parent")))
         ));
 
         javalin.post("/admin/api/:parent/serviceversions", context -> {
@@ -2,6 +2,7 @@ package eu.cloudnetservice.cloudnet.repository.web.registry;
 
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
+import eu.cloudnetservice.cloudnet.repository.database.DatabaseTable;
 import eu.cloudnetservice.cloudnet.repository.module.ModuleId;
 import eu.cloudnetservice.cloudnet.repository.module.ModuleInstallException;
 import eu.cloudnetservice.cloudnet.repository.module.RepositoryModuleInfo;
@@ -15,6 +16,7 @@ import io.swagger.v3.oas.models.Operation;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
@@ -45,7 +47,8 @@ public class ModuleHandlerRegistry implements JavalinHandlerRegistry {
                                 .jsonArray("200", RepositoryModuleInfo.class)
                                 .result("404", (Class<?>) null, apiResponse -> apiResponse.description("Parent version not found"))
                                 .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                        (Handler) context -> context.json(server.getModuleRepositoryProvider().getModuleInfos(context.pathParam("parent")))
+                        (Handler) context -> webServer.getResponseCache().sendJson(context, DatabaseTable.MODULES, context.pathParam("parent"),
+                                () -> server.getModuleRepositoryProvider().getModuleInfos(context.pathParam("parent")))
                 ));
                 get("/list/:group", documented(
                         document()
@@ -56,9 +59,10 @@ public class ModuleHandlerRegistry implements JavalinHandlerRegistry {
                         context -> {
                             Collection<RepositoryModuleInfo> moduleInfos = server.getModuleRepositoryProvider().getModuleInfos(context.pathParam("parent"), context.pathParam("group"));
                             if (moduleInfos.isEmpty()) {
-                                context.status(404);
+                                context.status(404).json(moduleInfos);
+                                return;
                             }
-                            context.json(moduleInfos);
+                            webServer.getResponseCache().sendJson(context, DatabaseTable.MODULES, context.pathParam("parent"), () -> moduleInfos);
                         }
                 ));
                 get("/latest/:group/:name", documented(
@@ -76,7 +80,7 @@ public class ModuleHandlerRegistry implements JavalinHandlerRegistry {
                                 context.status(404);
                                 return;
                             }
-                            context.json(moduleInfo);
+                            webServer.getResponseCache().sendJson(context, DatabaseTable.MODULES, context.pathParam("parent"), () -> moduleInfo);
                         }
                 ));
                 get("/file/:group/:name", documented(
@@ -86,17 +90,15 @@ public class ModuleHandlerRegistry implements JavalinHandlerRegistry {
                                 .result("404", (Class<?>) null, apiResponse -> apiResponse.description("Parent version or group and name combination not found"))
                                 .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
                         context -> {
-                            InputStream inputStream = server.getModuleRepositoryProvider().openLatestModuleStream(
+                            Path path = server.getModuleRepositoryProvider().findLatestModulePath(
                                     context.pathParam("parent"),
                                     new ModuleId(context.pathParam("group"), context.pathParam("name"))
                             );
-                            if (inputStream == null) {
+                            if (path == null) {
                                 context.status(404);
                             } else {
-                                context
-                                        .contentType("application/zip")
-                                        .header("Content-Disposition", "attachment; filename=" + context.pathParam("name") + ".jar")
-                                        .result(inputStream);
+                                context.header("Content-Disposition", "attachment; filename=" + context.pathParam("name") + ".jar");
+                                webServer.getDownloadSender().send(context, path, "application/zip");
                             }
                         }
                 ));
@@ -125,7 +127,7 @@ public class ModuleHandlerRegistry implements JavalinHandlerRegistry {
                         .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get a list of all modules").addTagsItem(MODULES_TAG))
                         .jsonArray("200", RepositoryModuleInfo.class)
                         .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                (Handler) context -> context.json(server.getModuleRepositoryProvider().getModuleInfos())
+                (Handler) context -> webServer.getResponseCache().sendJson(context, DatabaseTable.MODULES, null, () -> server.getModuleRepositoryProvider().getModuleInfos())
         ));
         javalin.exception(ModuleInstallException.class, (exception, context) -> context.status(400).contentType("application/json").result(JsonDocument.newDocument()
                 .append("message", exception.getMessage())
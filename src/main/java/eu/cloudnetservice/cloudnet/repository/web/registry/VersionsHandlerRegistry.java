@@ -2,14 +2,22 @@ package eu.cloudnetservice.cloudnet.repository.web.registry;
 
 import de.dytanic.cloudnet.common.document.gson.JsonDocument;
 import eu.cloudnetservice.cloudnet.repository.CloudNetUpdateServer;
+import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseInstallJob;
+import eu.cloudnetservice.cloudnet.repository.database.DatabaseTable;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
+import eu.cloudnetservice.cloudnet.repository.web.ConditionalRequests;
+import eu.cloudnetservice.cloudnet.repository.web.WebPermissionRole;
 import eu.cloudnetservice.cloudnet.repository.web.WebServer;
 import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Handler;
+import io.javalin.http.NotFoundResponse;
 import io.javalin.plugin.openapi.dsl.OpenApiUpdater;
 import io.swagger.v3.oas.models.Operation;
 
 import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static io.javalin.plugin.openapi.dsl.OpenApiBuilder.document;
@@ -21,19 +29,23 @@ public class VersionsHandlerRegistry implements JavalinHandlerRegistry {
 
     @Override
     public void init(CloudNetUpdateServer server, WebServer webServer, Javalin javalin) {
+        // the parent versions are only loaded on startup, the response and its entity tag are built once
+        String parentVersions = JsonDocument.GSON.toJson(server.getParentVersionNames());
+        String parentVersionsEntityTag = ConditionalRequests.computeEntityTag(parentVersions);
         javalin.get("/api/parentVersions", documented(
                 document()
                         .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get the names of all parent versions").addTagsItem(VERSIONS_TAG))
                         .jsonArray("200", String.class)
                         .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                (Handler) context -> context.result(JsonDocument.GSON.toJson(server.getParentVersionNames()))
+                (Handler) context -> ConditionalRequests.sendResult(context, parentVersions, parentVersionsEntityTag, "application/json")
         ));
         javalin.get("/api/versions", documented(
                 document()
                         .operation((OpenApiUpdater<Operation>) operation -> operation.summary("Get the names of all versions").addTagsItem(VERSIONS_TAG))
                         .jsonArray("200", String.class)
                         .result("500", (Class<?>) null, apiResponse -> apiResponse.description("API not available")),
-                (Handler) context -> context.result(JsonDocument.GSON.toJson(Arrays.stream(server.getDatabase().getAllVersions()).map(CloudNetVersion::getName).collect(Collectors.toList())))
+                (Handler) context -> webServer.getResponseCache().sendJson(context, DatabaseTable.VERSIONS, null,
+                        () -> Arrays.stream(server.getDatabase().getAllVersions()).map(CloudNetVersion::getName).collect(Collectors.toList()))
         ));
         javalin.get("/api/versions/:parent", documented(
                 document()
@@ -47,7 +59,8 @@ public class VersionsHandlerRegistry implements JavalinHandlerRegistry {
                         context.status(404);
                         return;
                     }
-                    context.result(JsonDocument.GSON.toJson(Arrays.stream(server.getDatabase().getAllVersions(context.pathParam("parent"))).map(CloudNetVersion::getName).collect(Collectors.toList())));
+                    webServer.getResponseCache().sendJson(context, DatabaseTable.VERSIONS, context.pathParam("parent"),
+                            () -> Arrays.stream(server.getDatabase().getAllVersions(context.pathParam("parent"))).map(CloudNetVersion::getName).collect(Collectors.toList()));
                 }
         ));
         javalin.get("/api/versions/:parent/:version", documented(
@@ -63,9 +76,29 @@ public class VersionsHandlerRegistry implements JavalinHandlerRegistry {
                             context.pathParam("parent"),
                             this.getVersionOrLatest(server, context.pathParam("parent"), context.pathParam("version"))
                     );
-                    context.status(version != null ? 200 : 404).result(JsonDocument.GSON.toJson(version));
+                    if (version == null) {
+                        context.status(404).result(JsonDocument.GSON.toJson(null));
+                        return;
+                    }
+                    webServer.getResponseCache().sendJson(context, DatabaseTable.VERSIONS, context.pathParam("parent"), () -> version);
                 }
         ));
+
+        javalin.get("/admin/api/jobs", context -> context.json(server.getReleaseInstallQueue().getJobs()), Set.of(WebPermissionRole.DEVELOPER));
+        javalin.get("/admin/api/jobs/:jobId", context -> {
+            UUID uniqueId;
+            try {
+                uniqueId = UUID.fromString(context.pathParam("jobId"));
+            } catch (IllegalArgumentException exception) {
+                throw new BadRequestResponse("Invalid job id");
+            }
+
+            ReleaseInstallJob job = server.getReleaseInstallQueue().getJob(uniqueId);
+            if (job == null) {
+                throw new NotFoundResponse("Job not found");
+            }
+            context.json(job);
+        }, Set.of(WebPermissionRole.DEVELOPER));
     }
 
     private String getVersionOrLatest(CloudNetUpdateServer server, String parentVersionName, String version) {
@@ -0,0 +1,101 @@
+package eu.cloudnetservice.cloudnet.repository.archiver;
+
+import de.dytanic.cloudnet.common.document.gson.JsonDocument;
+import eu.cloudnetservice.cloudnet.repository.database.Database;
+import eu.cloudnetservice.cloudnet.repository.database.H2Database;
+import eu.cloudnetservice.cloudnet.repository.github.GitHubReleaseInfo;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReleaseInstallQueueTest {
+
+    @Test
+    public void testQueue() throws Exception {
+        Files.deleteIfExists(Paths.get("target", "h2-install-jobs.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-install-jobs"));
+        assertTrue(database.init());
+
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Collection<String> installed = new ConcurrentLinkedQueue<>();
+        // failed assertions in the executor would not fail the test, the results are checked below
+        Collection<Boolean> released = new ConcurrentLinkedQueue<>();
+
+        ReleaseInstallQueue queue = new ReleaseInstallQueue(database, executorService, (parentVersionName, gitHubRelease, stageListener) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                released.add(release.await(1, TimeUnit.MINUTES));
+                stageListener.stageFinished("archive", 5);
+                if (gitHubRelease.getTagName().equals("broken")) {
+                    throw new IllegalStateException("Download failed");
+                }
+                installed.add(gitHubRelease.getTagName());
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        queue.init();
+
+        ReleaseInstallJob first = queue.submit("v3", this.release("3.3.0"));
+        ReleaseInstallJob second = queue.submit("v3", this.release("broken"));
+        // a redelivered event is merged into the job which is already queued
+        ReleaseInstallJob duplicate = queue.submit("v3", this.release("broken"));
+
+        assertEquals(second.getUniqueId(), duplicate.getUniqueId());
+        assertEquals(1, duplicate.getCoalescedEvents());
+        assertEquals(ReleaseInstallJob.State.RUNNING, first.getState());
+        assertEquals(ReleaseInstallJob.State.QUEUED, second.getState());
+        assertEquals(2, queue.getJobs().size());
+
+        release.countDown();
+        this.awaitFinished(queue, first);
+        this.awaitFinished(queue, second);
+        executorService.shutdown();
+
+        // jobs of the same parent version never run at the same time
+        assertEquals(List.of(true, true), List.copyOf(released));
+        assertEquals(1, maxRunning.get());
+        assertEquals(1, installed.size());
+
+        ReleaseInstallJob finishedFirst = queue.getJob(first.getUniqueId());
+        assertEquals(ReleaseInstallJob.State.SUCCEEDED, finishedFirst.getState());
+        assertEquals(5L, (long) finishedFirst.getStageTimes().get("archive"));
+
+        ReleaseInstallJob finishedSecond = queue.getJob(second.getUniqueId());
+        assertEquals(ReleaseInstallJob.State.FAILED, finishedSecond.getState());
+        assertEquals("IllegalStateException: Download failed", finishedSecond.getError());
+
+        database.close();
+
+        database = new H2Database(Paths.get("target", "h2-install-jobs"));
+        assertTrue(database.init());
+        ReleaseInstallJob[] jobs = database.getInstallJobs();
+        assertEquals(2, jobs.length);
+        assertEquals(first.getUniqueId(), jobs[0].getUniqueId());
+        assertEquals(ReleaseInstallJob.State.FAILED, jobs[1].getState());
+        database.close();
+    }
+
+    private void awaitFinished(ReleaseInstallQueue queue, ReleaseInstallJob job) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (!queue.getJob(job.getUniqueId()).isFinished()) {
+            assertTrue(System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+    }
+
+    private GitHubReleaseInfo release(String tagName) {
+        return JsonDocument.GSON.fromJson("{\"tag_name\":\"" + tagName + "\"}", GitHubReleaseInfo.class);
+    }
+
+}
@@ -0,0 +1,119 @@
+package eu.cloudnetservice.cloudnet.repository.archiver;
+
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidator;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class StagedDirectoryTest {
+
+    @Test
+    public void testPublish() throws IOException {
+        Path base = Paths.get("target", "staged-" + UUID.randomUUID());
+        Path target = base.resolve("versions").resolve("3.3.0");
+        Path store = base.resolve("releases");
+        FileValidatorCache validatorCache = new FileValidatorCache();
+
+        StagedDirectory first = new StagedDirectory(target, store);
+        first.write("CloudNet.zip", this.stream("first"));
+        // nothing is visible before the directory has been published
+        assertFalse(Files.exists(target));
+        assertNull(first.publish(validatorCache));
+
+        assertEquals("first", Files.readString(target.resolve("CloudNet.zip")));
+        FileValidator firstValidator = validatorCache.getIfPresent(target.resolve("CloudNet.zip"));
+        assertNotNull(firstValidator);
+
+        StagedDirectory second = new StagedDirectory(target, store);
+        second.write("CloudNet.zip", this.stream("second"));
+        second.write("docs/index.html", this.stream("index"));
+        Path oldDirectory = second.publish(validatorCache);
+
+        assertEquals(first.getDirectory(), oldDirectory.toAbsolutePath().normalize());
+        assertEquals("second", Files.readString(target.resolve("CloudNet.zip")));
+        assertEquals("index", Files.readString(target.resolve("docs").resolve("index.html")));
+        // the old files stay readable for downloads which are still running
+        assertEquals("first", Files.readString(oldDirectory.resolve("CloudNet.zip")));
+
+        FileValidator secondValidator = validatorCache.getIfPresent(target.resolve("CloudNet.zip"));
+        assertNotEquals(firstValidator.getSha256(), secondValidator.getSha256());
+        assertEquals(second.getSha256("CloudNet.zip"), secondValidator.getSha256());
+    }
+
+    @Test
+    public void testEscape() throws IOException {
+        Path base = Paths.get("target", "staged-" + UUID.randomUUID());
+        StagedDirectory stage = new StagedDirectory(base.resolve("versions").resolve("3.3.0"), base.resolve("releases"));
+
+        try {
+            stage.write("../escaped", this.stream("content"));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testRemoveUnpublished() throws IOException {
+        Path base = Paths.get("target", "staged-" + UUID.randomUUID());
+        Path targetDirectory = base.resolve("versions");
+        Path store = base.resolve("releases");
+        FileValidatorCache validatorCache = new FileValidatorCache();
+
+        StagedDirectory published = new StagedDirectory(targetDirectory.resolve("3.3.0"), store);
+        published.write("CloudNet.zip", this.stream("published"));
+        published.publish(validatorCache);
+
+        // a stage of an install which has been interrupted and a directory that has been replaced before a restart
+        StagedDirectory interrupted = new StagedDirectory(targetDirectory.resolve("3.4.0"), store);
+        interrupted.write("CloudNet.zip", this.stream("interrupted"));
+        StagedDirectory replacing = new StagedDirectory(targetDirectory.resolve("3.3.0"), store);
+        replacing.write("CloudNet.zip", this.stream("replacing"));
+        Path replaced = replacing.publish(validatorCache);
+
+        assertEquals(2, StagedDirectory.removeUnpublished(store, targetDirectory));
+        assertFalse(Files.exists(interrupted.getDirectory()));
+        assertFalse(Files.exists(replaced));
+        assertEquals("replacing", Files.readString(targetDirectory.resolve("3.3.0").resolve("CloudNet.zip")));
+        assertEquals(0, StagedDirectory.removeUnpublished(store, targetDirectory));
+    }
+
+    @Test
+    public void testLinkDirectories() throws IOException {
+        Path base = Paths.get("target", "staged-" + UUID.randomUUID());
+        Path targetDirectory = base.resolve("versions");
+        Path store = base.resolve("releases");
+        FileValidatorCache validatorCache = new FileValidatorCache();
+
+        // a directory of an install before the releases were staged
+        Files.createDirectories(targetDirectory.resolve("3.2.0"));
+        Files.writeString(targetDirectory.resolve("3.2.0").resolve("CloudNet.zip"), "legacy");
+
+        assertEquals(1, StagedDirectory.linkDirectories(store, targetDirectory));
+        assertTrue(Files.isSymbolicLink(targetDirectory.resolve("3.2.0")));
+        assertEquals("legacy", Files.readString(targetDirectory.resolve("3.2.0").resolve("CloudNet.zip")));
+        assertEquals(0, StagedDirectory.linkDirectories(store, targetDirectory));
+        assertEquals(0, StagedDirectory.removeUnpublished(store, targetDirectory));
+
+        // the linked directory is replaced like every other published one
+        StagedDirectory stage = new StagedDirectory(targetDirectory.resolve("3.2.0"), store);
+        stage.write("CloudNet.zip", this.stream("staged"));
+        Path oldDirectory = stage.publish(validatorCache);
+
+        assertEquals("staged", Files.readString(targetDirectory.resolve("3.2.0").resolve("CloudNet.zip")));
+        assertEquals("legacy", Files.readString(oldDirectory.resolve("CloudNet.zip")));
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
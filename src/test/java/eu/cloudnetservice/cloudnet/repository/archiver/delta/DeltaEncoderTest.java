@@ -0,0 +1,140 @@
+package eu.cloudnetservice.cloudnet.repository.archiver.delta;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class DeltaEncoderTest {
+
+    @Test
+    public void testBinaryDelta() throws IOException {
+        Random random = new Random(42);
+        byte[] source = new byte[256 * 1024];
+        random.nextBytes(source);
+
+        // a few bytes changed, a range inserted and a range removed
+        ByteArrayOutputStream targetStream = new ByteArrayOutputStream();
+        targetStream.write(source, 0, 50_000);
+        targetStream.write("inserted".getBytes(StandardCharsets.UTF_8));
+        targetStream.write(source, 50_000, 100_000);
+        targetStream.write(source, 160_000, source.length - 160_000);
+        byte[] target = targetStream.toByteArray();
+        target[200_000] ^= 1;
+
+        byte[] patch = this.encode(source, target);
+        assertArrayEquals(target, this.apply(source, patch));
+        assertTrue("patch has " + patch.length + " bytes", patch.length < target.length / 100);
+    }
+
+    @Test
+    public void testJarDelta() throws IOException {
+        Random random = new Random(7);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            entries.put("de/dytanic/cloudnet/Class" + i + ".class", this.classLike(random));
+        }
+        byte[] source = this.jar(entries, 1000L);
+
+        // one class changed, one added and the timestamps of all entries differ
+        entries.put("de/dytanic/cloudnet/Class17.class", this.classLike(random));
+        entries.put("de/dytanic/cloudnet/NewClass.class", this.classLike(random));
+        byte[] target = this.jar(entries, 2000000L);
+
+        byte[] patch = this.encode(source, target);
+        assertArrayEquals(target, this.apply(source, patch));
+        assertTrue("patch has " + patch.length + " of " + target.length + " bytes", patch.length < target.length / 10);
+    }
+
+    @Test
+    public void testWrongSource() throws IOException {
+        byte[] source = "first version of the file".getBytes(StandardCharsets.UTF_8);
+        byte[] target = "second version of the file".getBytes(StandardCharsets.UTF_8);
+        byte[] patch = this.encode(source, target);
+
+        assertArrayEquals(target, this.apply(source, patch));
+        assertThrows(IOException.class, () -> new DeltaPatcher().apply(ByteBuffer.wrap(target), new ByteArrayInputStream(patch), OutputStream.nullOutputStream()));
+    }
+
+    @Test
+    public void testMappedFiles() throws IOException {
+        Random random = new Random(3);
+        byte[] source = new byte[64 * 1024];
+        random.nextBytes(source);
+        byte[] target = source.clone();
+        target[1000] ^= 1;
+
+        Path directory = Paths.get("target", "delta-" + UUID.randomUUID());
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("source.jar"), source);
+        Files.write(directory.resolve("target.jar"), target);
+
+        // the archiver maps the files instead of reading them into the heap
+        ByteBuffer mappedSource = this.map(directory.resolve("source.jar"));
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        new DeltaEncoder().encode(mappedSource, this.map(directory.resolve("target.jar")), patch);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new DeltaPatcher().apply(mappedSource, new ByteArrayInputStream(patch.toByteArray()), outputStream);
+        assertArrayEquals(target, outputStream.toByteArray());
+        assertTrue(patch.size() < target.length / 100);
+    }
+
+    private byte[] encode(byte[] source, byte[] target) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new DeltaEncoder().encode(ByteBuffer.wrap(source), ByteBuffer.wrap(target), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private byte[] apply(byte[] source, byte[] patch) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new DeltaPatcher().apply(ByteBuffer.wrap(source), new ByteArrayInputStream(patch), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private byte[] classLike(Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            builder.append("method").append(random.nextInt(100000)).append(';');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] jar(Map<String, byte[]> entries, long time) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setTime(time);
+                zipOutputStream.putNextEntry(zipEntry);
+                zipOutputStream.write(entry.getValue());
+                zipOutputStream.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+}
@@ -0,0 +1,89 @@
+package eu.cloudnetservice.cloudnet.repository.database;
+
+import eu.cloudnetservice.cloudnet.repository.module.ModuleId;
+import eu.cloudnetservice.cloudnet.repository.module.RepositoryModuleInfo;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
+import eu.cloudnetservice.cloudnet.repository.version.VersionFileMappings;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.function.IntFunction;
+
+// not a unit test, run the main method to compare the indexed lookups of the database with scanning the cached arrays
+public class DatabaseLookupBenchmark {
+
+    private static final int LOOKUPS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        int versions = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int modules = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        Files.deleteIfExists(Paths.get("target", "h2-lookup-benchmark.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-lookup-benchmark"));
+        if (!database.init()) {
+            throw new IllegalStateException("Database could not be initialized");
+        }
+
+        for (int i = 0; i < versions; i++) {
+            database.registerVersion(new CloudNetVersion("v3", "3." + i, null, null, new Date(i),
+                    new CloudNetVersionFile[0], new VersionFileMappings(), new HashMap<>()));
+        }
+        for (int i = 0; i < modules; i++) {
+            database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "module-" + i, "1.0"),
+                    new String[0], new ModuleId[0], "v3", "3.0", "", null, "", null));
+        }
+
+        // the arrays are what every lookup used to scan
+        CloudNetVersion[] allVersions = database.getAllVersions();
+        RepositoryModuleInfo[] allModules = database.getModuleInfos();
+
+        measure("getVersion, index", i -> database.getVersion("v3", "3." + i % versions));
+        measure("getVersion, scan", i -> {
+            String name = "3." + i % versions;
+            return Arrays.stream(allVersions)
+                    .filter(version -> version.getParentVersionName().equalsIgnoreCase("v3") && version.getName().equals(name))
+                    .findFirst().orElse(null);
+        });
+
+        measure("getLatestVersion, index", i -> database.getLatestVersion("v3"));
+        measure("getLatestVersion, scan", i -> Arrays.stream(allVersions)
+                .filter(version -> version.getParentVersionName().equalsIgnoreCase("v3"))
+                .max(Comparator.comparing(CloudNetVersion::getReleaseDate)).orElse(null));
+
+        measure("getModuleInfos, index", i -> database.getModuleInfos("v3", "eu.cloudnetservice", "module-" + i % modules));
+        measure("getModuleInfos, scan", i -> {
+            String name = "module-" + i % modules;
+            return Arrays.stream(allModules)
+                    .filter(moduleInfo -> moduleInfo.getParentVersionName().equalsIgnoreCase("v3")
+                            && moduleInfo.getModuleId().getGroup().equalsIgnoreCase("eu.cloudnetservice")
+                            && moduleInfo.getModuleId().getName().equalsIgnoreCase(name))
+                    .toArray(RepositoryModuleInfo[]::new);
+        });
+
+        database.close();
+    }
+
+    private static void measure(String name, IntFunction<Object> lookup) {
+        // the first round only warms up the jit
+        for (int i = 0; i < LOOKUPS / 10; i++) {
+            lookup.apply(i);
+        }
+
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (lookup.apply(i) != null) {
+                found++;
+            }
+        }
+        long time = System.nanoTime() - start;
+
+        System.out.printf("%s: %d ns per lookup, %d found%n", name, time / LOOKUPS, found);
+    }
+
+}
@@ -1,19 +1,37 @@
 package eu.cloudnetservice.cloudnet.repository.database;
 
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.CloudId;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalStatistics;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalVersionedStatistics;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.ServerVersion;
+import eu.cloudnetservice.cloudnet.repository.faq.FAQEntry;
 import eu.cloudnetservice.cloudnet.repository.github.GitHubAuthorInfo;
 import eu.cloudnetservice.cloudnet.repository.github.GitHubCommitInfo;
+import eu.cloudnetservice.cloudnet.repository.module.ModuleId;
+import eu.cloudnetservice.cloudnet.repository.module.RepositoryModuleInfo;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
 import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
 import eu.cloudnetservice.cloudnet.repository.version.MavenVersionInfo;
 import eu.cloudnetservice.cloudnet.repository.version.VersionFileMappings;
+import eu.cloudnetservice.cloudnet.repository.web.WebPermissionRole;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 
@@ -120,4 +138,313 @@ public class H2DatabaseTest {
 
     }
 
+    @Test
+    public void testIndexedLookups() throws IOException {
+        Files.deleteIfExists(Paths.get("target", "h2-lookups.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-lookups"));
+
+        assertTrue(database.init());
+
+        var firstEntry = new FAQEntry(UUID.randomUUID(), "english", "v3", 0, "Question", "Answer", "test", new HashMap<>());
+        var secondEntry = new FAQEntry(UUID.randomUUID(), "german", "v3", 0, "Frage", "Antwort", "test", new HashMap<>());
+        database.insertFAQEntry(firstEntry);
+        database.insertFAQEntry(secondEntry);
+
+        assertEquals(2, database.getFAQEntries("V3").length);
+        assertEquals(0, database.getFAQEntries("v2").length);
+        assertEquals(1, database.getFAQEntries("v3", "German").length);
+        assertEquals(Set.of("english", "german"), Set.copyOf(database.getFAQLanguages("V3")));
+        assertTrue(database.getFAQLanguages("v2").isEmpty());
+        assertEquals(secondEntry.getUniqueId(), database.getFAQEntries("v3", "german")[0].getUniqueId());
+        assertEquals(firstEntry.getUniqueId(), database.getFAQEntry(firstEntry.getUniqueId()).getUniqueId());
+
+        database.deleteFAQEntry(firstEntry.getUniqueId());
+        assertNull(database.getFAQEntry(firstEntry.getUniqueId()));
+        assertEquals(0, database.getFAQEntries("v3", "english").length);
+
+        database.insertUser("test", "password");
+        assertTrue(database.containsUser("test"));
+        assertFalse(database.containsUser("Test"));
+        assertTrue(database.checkUserPassword("test", "password"));
+        assertFalse(database.checkUserPassword("test", "wrong"));
+        assertEquals(WebPermissionRole.MEMBER, database.getRole("test"));
+
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test-Module", "1.0"), new String[0], new ModuleId[0], "v3", "3.1.0", "", null, "", null));
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Other", "1.0"), new String[0], new ModuleId[0], "v3", "3.1.0", "", null, "", null));
+
+        assertEquals(2, database.getModuleInfos("v3").length);
+        assertEquals(2, database.getModuleInfos("v3", "EU.cloudnetservice").length);
+        assertEquals(1, database.getModuleInfos("v3", "eu.cloudnetservice", "test-module").length);
+        assertEquals(0, database.getModuleInfos("v2", "eu.cloudnetservice", "test-module").length);
+
+        database.removeModuleInfo("v3", new ModuleId("eu.cloudnetservice", "Other"));
+        assertEquals(0, database.getModuleInfos("v3", "eu.cloudnetservice", "other").length);
+
+        database.close();
+    }
+
+    @Test
+    public void testWriteThroughCache() throws IOException {
+        Files.deleteIfExists(Paths.get("target", "h2-write-through.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-write-through"));
+
+        assertTrue(database.init());
+
+        var entry = new FAQEntry(UUID.randomUUID(), "english", "v3", 0, "Question", "Answer", "test", new HashMap<>());
+        database.insertFAQEntry(entry);
+        entry.setAnswer("Changed answer");
+
+        // the cache keeps its own copy, changes are only visible after an update
+        assertEquals("Answer", database.getFAQEntry(entry.getUniqueId()).getAnswer());
+        database.updateFAQEntry(entry);
+        assertEquals("Changed answer", database.getFAQEntry(entry.getUniqueId()).getAnswer());
+
+        database.insertUser("test");
+        assertTrue(database.hasPassword("test"));
+        database.updateUserPassword("test", "password");
+        database.updateUserRole("test", WebPermissionRole.MODERATOR);
+        assertTrue(database.checkUserPassword("test", "password"));
+        assertEquals(WebPermissionRole.MODERATOR, database.getRole("test"));
+
+        database.resync();
+
+        assertEquals("Changed answer", database.getFAQEntry(entry.getUniqueId()).getAnswer());
+        assertEquals(1, database.getFAQEntries("v3").length);
+        assertTrue(database.checkUserPassword("test", "password"));
+        assertEquals(WebPermissionRole.MODERATOR, database.getRole("test"));
+
+        database.deleteUser("test");
+        assertFalse(database.containsUser("test"));
+
+        database.close();
+    }
+
+    @Test
+    public void testFailedWrites() throws IOException {
+        Files.deleteIfExists(Paths.get("target", "h2-failed-writes.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-failed-writes"));
+
+        assertTrue(database.init());
+
+        // the parent version is longer than its column, the snapshot must not contain a module that is not in the database
+        String parent = "v".repeat(40);
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test", "1.0"), new String[0], new ModuleId[0], parent, "3.3.0", "", null, "", null));
+        assertEquals(0, database.getModuleInfos(parent).length);
+
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test", "1.0"), new String[0], new ModuleId[0], "v3", "3.3.0", "", null, "", null));
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test", "1.1"), new String[0], new ModuleId[0], "v3", "3.3.0", "", null, "", null));
+        assertEquals(1, database.getModuleInfos("v3").length);
+        assertEquals("1.1", database.getModuleInfos("v3")[0].getModuleId().getVersion());
+
+        database.resync();
+        assertEquals(1, database.getModuleInfos("v3").length);
+
+        database.close();
+    }
+
+    @Test
+    public void testChangeListener() throws IOException {
+        Files.deleteIfExists(Paths.get("target", "h2-listener.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-listener"));
+
+        assertTrue(database.init());
+
+        Collection<String> changes = new ArrayList<>();
+        database.addChangeListener((table, parentVersionName) -> changes.add(table + ":" + parentVersionName));
+
+        var entry = new FAQEntry(UUID.randomUUID(), "english", "v3", 0, "Question", "Answer", "test", new HashMap<>());
+        database.insertFAQEntry(entry);
+        database.deleteFAQEntry(entry.getUniqueId());
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test", "1.0"), new String[0], new ModuleId[0], "v3", "3.3.0", "", null, "", null));
+        // an update of a module replaces it in all parent versions
+        database.updateModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test", "1.1"), new String[0], new ModuleId[0], "v3", "3.3.0", "", null, "", null));
+
+        assertEquals(Arrays.asList("FAQ:v3", "FAQ:v3", "MODULES:v3", "MODULES:null"), changes);
+
+        // failed writes don't change the snapshot, so nothing has to be invalidated
+        database.insertModuleInfo(new RepositoryModuleInfo(new ModuleId("eu.cloudnetservice", "Test", "1.0"), new String[0], new ModuleId[0], "v".repeat(40), "3.3.0", "", null, "", null));
+        assertEquals(4, changes.size());
+
+        database.close();
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        Files.deleteIfExists(Paths.get("target", "h2-concurrent.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-concurrent"));
+
+        assertTrue(database.init());
+
+        int writers = 4;
+        int readers = 8;
+        int entriesPerWriter = 100;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Collection<Future<?>> writerFutures = new ArrayList<>();
+        Collection<Future<?>> readerFutures = new ArrayList<>();
+
+        for (int writer = 0; writer < writers; writer++) {
+            String language = "language-" + writer;
+            writerFutures.add(executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < entriesPerWriter; i++) {
+                    database.insertFAQEntry(new FAQEntry(UUID.randomUUID(), language, "v3", i, "Question " + i, "Answer", "test", new HashMap<>()));
+                    database.insertUser(language + "-" + i);
+                }
+                return null;
+            }));
+        }
+        for (int reader = 0; reader < readers; reader++) {
+            readerFutures.add(executorService.submit(() -> {
+                start.await();
+                int lastSize = 0;
+                while (writing.get()) {
+                    FAQEntry[] entries = database.getFAQEntries("v3");
+                    // snapshots only ever grow while entries are inserted
+                    assertTrue(entries.length >= lastSize);
+                    lastSize = entries.length;
+                    for (FAQEntry entry : entries) {
+                        assertNotNull(database.getFAQEntry(entry.getUniqueId()));
+                    }
+                    for (String userName : database.getUserNames()) {
+                        assertTrue(database.containsUser(userName));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> future : writerFutures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<?> future : readerFutures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        assertEquals(writers * entriesPerWriter, database.getFAQEntries("v3").length);
+        assertEquals(entriesPerWriter, database.getFAQEntries("v3", "language-0").length);
+        assertEquals(writers * entriesPerWriter, database.getUserNames().size());
+
+        database.resync();
+
+        assertEquals(writers * entriesPerWriter, database.getFAQEntries("v3").length);
+        assertEquals(writers * entriesPerWriter, database.getUserNames().size());
+
+        database.close();
+    }
+
+    @Test
+    public void testStatistics() throws IOException {
+        Files.deleteIfExists(Paths.get("target", "h2-statistics.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-statistics"));
+
+        assertTrue(database.init());
+
+        InternalStatistics statistics = database.getStatistics();
+        statistics.registerVersion("v3");
+
+        CloudId id = new CloudId("v3", "test-id", "127.0.0.1");
+        statistics.acceptStatistics(id, versionedStatistics -> versionedStatistics.setCloudNetVersion(id, "3.1.0"));
+        statistics.acceptStatistics(id, versionedStatistics -> versionedStatistics.setCountry(id, "Germany"));
+        statistics.acceptStatistics(id, versionedStatistics -> versionedStatistics.addServerVersion(id, ServerVersion.V1_8));
+        statistics.increaseDownloads("v3");
+        statistics.increaseDownloads("v3");
+
+        assertTrue(statistics.hasChanges());
+        database.updateStatistics(statistics);
+        assertFalse(statistics.hasChanges());
+
+        database.close();
+
+        database = new H2Database(Paths.get("target", "h2-statistics"));
+        assertTrue(database.init());
+
+        InternalStatistics loadedStatistics = database.getStatistics();
+        assertFalse(loadedStatistics.hasChanges());
+        assertEquals(2, loadedStatistics.getGlobalStatistics().getDownloads());
+
+        InternalVersionedStatistics versionedStatistics = loadedStatistics.getVersionedStatistics("v3").orElseThrow();
+        assertEquals(2, versionedStatistics.getDownloads());
+        assertEquals("3.1.0", versionedStatistics.getCloudNetVersion(id));
+        assertEquals("Germany", versionedStatistics.getCountry(id));
+        assertTrue(versionedStatistics.getServerVersions(id).contains(ServerVersion.V1_8));
+        assertNull(versionedStatistics.getJavaVersion(id));
+
+        database.close();
+    }
+
+    @Test
+    public void testLegacyStatisticsMigration() throws Exception {
+        Files.deleteIfExists(Paths.get("target", "h2-legacy-statistics.mv.db"));
+        String url = "jdbc:h2:" + Paths.get("target", "h2-legacy-statistics").toAbsolutePath();
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE extras (key VARCHAR(128) NOT NULL, content TEXT)");
+            statement.executeUpdate("INSERT INTO extras (`key`, `content`) VALUES ('statistics', " +
+                    "'{\"globalStatistics\":{\"downloads\":42,\"installedVersions\":{\"eu.cloudnetservice.CloudId@1\":\"3.1.0\"}}," +
+                    "\"versionedStatistics\":{\"v3\":{\"downloads\":40}}}')");
+        }
+
+        Database database = new H2Database(Paths.get("target", "h2-legacy-statistics"));
+        assertTrue(database.init());
+
+        InternalStatistics statistics = database.getStatistics();
+        assertEquals(42, statistics.getGlobalStatistics().getDownloads());
+        assertEquals(40, statistics.getDownloads("v3"));
+        assertFalse(statistics.hasChanges());
+
+        database.close();
+
+        database = new H2Database(Paths.get("target", "h2-legacy-statistics"));
+        assertTrue(database.init());
+        assertEquals(42, database.getStatistics().getGlobalStatistics().getDownloads());
+        database.close();
+    }
+
+    @Test
+    public void testExpiredStatistics() throws IOException {
+        Files.deleteIfExists(Paths.get("target", "h2-expired-statistics.mv.db"));
+        Database database = new H2Database(Paths.get("target", "h2-expired-statistics"));
+        assertTrue(database.init());
+
+        InternalStatistics statistics = database.getStatistics();
+        statistics.registerVersion("v3");
+
+        CloudId oldId = new CloudId("v3", "old", null, 1000);
+        CloudId activeId = new CloudId("v3", "active", null, 5000);
+        statistics.acceptStatistics(oldId, versionedStatistics -> versionedStatistics.addServerVersion(oldId, ServerVersion.V1_8));
+        statistics.acceptStatistics(activeId, versionedStatistics -> versionedStatistics.setCountry(activeId, "Germany"));
+        database.updateStatistics(statistics);
+
+        assertEquals(1, statistics.expireInstalls(2000));
+        database.updateStatistics(statistics);
+        assertFalse(statistics.hasChanges());
+        database.close();
+
+        database = new H2Database(Paths.get("target", "h2-expired-statistics"));
+        assertTrue(database.init());
+
+        InternalStatistics loadedStatistics = database.getStatistics();
+        InternalVersionedStatistics versionedStatistics = loadedStatistics.getVersionedStatistics("v3").orElseThrow();
+        assertEquals(1, loadedStatistics.getActiveInstalls());
+        assertEquals(1, versionedStatistics.getExpiredInstalls());
+        assertEquals(1, loadedStatistics.getGlobalStatistics().getExpiredInstalls());
+        assertEquals(0, (int) versionedStatistics.toExternal().getServerVersions().get(ServerVersion.V1_8));
+        assertEquals("Germany", versionedStatistics.getCountry(activeId));
+
+        // the restored reports keep their timestamp
+        assertEquals(1, loadedStatistics.expireInstalls(6000));
+
+        database.close();
+    }
+
 }
@@ -0,0 +1,69 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics;
+
+import de.dytanic.cloudnet.common.JavaVersion;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.external.ExternalVersionedStatistics;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.CloudId;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.InternalStatistics;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.internal.ServerVersion;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StatisticsWriterTest {
+
+    @Test
+    public void testBoundedQueue() {
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+        StatisticsWriter writer = new StatisticsWriter(statistics, 2);
+
+        CloudId id = new CloudId("v3", "node", null);
+        assertTrue(writer.offer(id, versionedStatistics -> versionedStatistics.setCountry(id, "Germany")));
+        assertTrue(writer.offer(id, versionedStatistics -> versionedStatistics.addServerVersion(id, ServerVersion.V1_8)));
+        assertFalse(writer.offer(id, versionedStatistics -> versionedStatistics.setJavaVersion(id, JavaVersion.JAVA_11)));
+
+        // nothing is applied before the writer runs
+        assertFalse(statistics.hasChanges());
+
+        writer.drain();
+
+        ExternalVersionedStatistics external = statistics.getVersionedStatistics("v3").orElseThrow().toExternal();
+        assertEquals(1, (long) external.getCountries().get("Germany"));
+        assertEquals(1, (long) external.getServerVersions().get(ServerVersion.V1_8));
+        assertNull(external.getJavaVersions().get(JavaVersion.JAVA_11));
+        assertEquals(0, writer.getQueuedUpdates());
+    }
+
+    @Test
+    public void testWriterThread() throws Exception {
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+        StatisticsWriter writer = new StatisticsWriter(statistics, 10000);
+
+        AtomicInteger unknownParents = new AtomicInteger();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.execute(writer);
+
+        int reports = 5000;
+        for (int i = 0; i < reports; i++) {
+            CloudId id = new CloudId("v3", String.valueOf(i), null);
+            assertTrue(writer.offer(id, versionedStatistics -> versionedStatistics.setJavaVersion(id, JavaVersion.JAVA_11)));
+        }
+        CloudId unknownId = new CloudId("v2", "node", null);
+        assertTrue(writer.offer(unknownId, versionedStatistics -> fail(), unknownParents::incrementAndGet));
+
+        executorService.shutdownNow();
+        assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+
+        ExternalVersionedStatistics external = statistics.getVersionedStatistics("v3").orElseThrow().toExternal();
+        assertEquals(reports, (long) external.getJavaVersions().get(JavaVersion.JAVA_11));
+        assertEquals(1, unknownParents.get());
+        assertEquals(reports, statistics.drainChangedIds().size());
+    }
+
+}
@@ -0,0 +1,83 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
+
+import de.dytanic.cloudnet.common.JavaVersion;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstallRegistryTest {
+
+    @Test
+    public void testIndexReuse() {
+        InstallRegistry registry = new InstallRegistry();
+
+        int first = registry.retain("first");
+        int second = registry.retain("second");
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(first, registry.retain("first"));
+
+        registry.release(first);
+        assertEquals(first, registry.indexOf("first"));
+        registry.release(first);
+        assertEquals(-1, registry.indexOf("first"));
+        assertNull(registry.getUniqueId(first));
+
+        // the index of a released install is given to the next new install
+        assertEquals(first, registry.retain("third"));
+        assertEquals(2, registry.getInstalls());
+    }
+
+    @Test
+    public void testValueReuse() {
+        InstallRegistry registry = new InstallRegistry();
+
+        int germany = registry.retainValue("Germany");
+        assertEquals(germany, registry.retainValue("Germany"));
+        registry.releaseValue(germany);
+        assertEquals("Germany", registry.getValue(germany));
+        registry.releaseValue(germany);
+        assertNull(registry.getValue(germany));
+        assertEquals(0, registry.getValues());
+
+        // values that are no longer referenced by any install don't stay in memory
+        assertEquals(germany, registry.retainValue("France"));
+        assertEquals(1, registry.getValues());
+    }
+
+    @Test
+    public void testColumns() {
+        InstallRegistry registry = new InstallRegistry();
+        InternalVersionedStatistics first = new InternalVersionedStatistics(registry);
+        InternalVersionedStatistics second = new InternalVersionedStatistics(registry);
+
+        CloudId id = new CloudId("v3", "node", null);
+        first.setCountry(id, "Germany");
+        first.setJavaVersion(id, JavaVersion.JAVA_11);
+        second.setCountry(id, "France");
+        assertEquals(1, registry.getInstalls());
+
+        assertEquals("Germany", first.getCountry(id));
+        assertEquals("France", second.getCountry(id));
+        assertNull(second.getJavaVersion(id));
+
+        first.removeInstall(id);
+        assertFalse(first.hasInstall(id));
+        assertTrue(second.hasInstall(id));
+        assertTrue(first.toExternal().getCountries().isEmpty());
+
+        second.setCountry(id, "Germany");
+        assertEquals(1, registry.getValues());
+        second.removeInstall(id);
+        assertEquals(0, registry.getInstalls());
+        assertEquals(0, registry.getValues());
+
+        // a new install in the reused index must not see the values of the previous one
+        CloudId otherId = new CloudId("v3", "other", null);
+        first.setCloudNetVersion(otherId, "3.3.0");
+        assertNull(first.getCountry(otherId));
+        assertNull(first.getJavaVersion(otherId));
+        assertEquals("3.3.0", first.getCloudNetVersion(otherId));
+    }
+
+}
@@ -0,0 +1,143 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
+
+import de.dytanic.cloudnet.common.JavaVersion;
+import eu.cloudnetservice.cloudnet.repository.database.statistics.external.ExternalVersionedStatistics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class InternalStatisticsTest {
+
+    @Test
+    public void testConcurrentIngestion() throws Exception {
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+
+        int threads = 8;
+        int reportsPerThread = 5000;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Collection<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < threads; thread++) {
+            int threadId = thread;
+            futures.add(executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < reportsPerThread; i++) {
+                    CloudId id = new CloudId("v3", threadId + "-" + i, null);
+                    statistics.increaseDownloads("v3");
+                    statistics.acceptStatistics(id, versionedStatistics -> versionedStatistics.setJavaVersion(id, JavaVersion.JAVA_11));
+                    statistics.acceptStatistics(id, versionedStatistics -> versionedStatistics.addServerVersion(id, ServerVersion.V1_8));
+                    statistics.acceptStatistics(id, versionedStatistics -> versionedStatistics.setCountry(id, "Germany"));
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        long reports = (long) threads * reportsPerThread;
+        ExternalVersionedStatistics external = statistics.getVersionedStatistics("v3").orElseThrow().toExternal();
+
+        assertEquals(reports, external.getDownloads());
+        assertEquals(reports, statistics.getGlobalStatistics().getDownloads());
+        assertEquals(reports, (long) external.getJavaVersions().get(JavaVersion.JAVA_11));
+        assertEquals(reports, (long) external.getServerVersions().get(ServerVersion.V1_8));
+        assertEquals(reports, (long) external.getCountries().get("Germany"));
+        assertEquals(reports, statistics.drainChangedIds().size());
+    }
+
+    @Test
+    public void testChangedReports() {
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+
+        CloudId firstId = new CloudId("v3", "first", null);
+        CloudId secondId = new CloudId("v3", "second", null);
+
+        statistics.acceptStatistics(firstId, versionedStatistics -> versionedStatistics.setCloudNetVersion(firstId, "3.0.0"));
+        statistics.acceptStatistics(secondId, versionedStatistics -> versionedStatistics.setCloudNetVersion(secondId, "3.0.0"));
+        statistics.acceptStatistics(firstId, versionedStatistics -> versionedStatistics.setOperatingSystem(firstId, OperatingSystem.DEBIAN_9));
+
+        assertTrue(statistics.pollModified());
+        assertFalse(statistics.pollModified());
+
+        // an install which reports again replaces its previous values in the aggregates
+        statistics.acceptStatistics(firstId, versionedStatistics -> versionedStatistics.setCloudNetVersion(firstId, "3.1.0"));
+        statistics.acceptStatistics(firstId, versionedStatistics -> versionedStatistics.setOperatingSystem(firstId, OperatingSystem.DEBIAN_10));
+        statistics.acceptStatistics(secondId, versionedStatistics -> versionedStatistics.setCloudNetVersion(secondId, "3.1.0"));
+
+        assertTrue(statistics.pollModified());
+
+        ExternalVersionedStatistics external = statistics.getVersionedStatistics("v3").orElseThrow().toExternal();
+        assertEquals(Map.of("3.1.0", 2L), external.getCloudNetVersions());
+        assertEquals(Map.of(OperatingSystem.DEBIAN_10, 1L), external.getOperatingSystem());
+        assertEquals(Map.of("3.1.0", 2L), statistics.getGlobalStatistics().toExternal().getCloudNetVersions());
+    }
+
+    @Test
+    public void testExpireInstalls() {
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+
+        CloudId oldId = new CloudId("v3", "old", null, 1000);
+        CloudId activeId = new CloudId("v3", "active", null, 5000);
+
+        statistics.acceptStatistics(oldId, versionedStatistics -> versionedStatistics.setCloudNetVersion(oldId, "3.0.0"));
+        statistics.acceptStatistics(oldId, versionedStatistics -> versionedStatistics.addServerVersion(oldId, ServerVersion.V1_8));
+        statistics.acceptStatistics(activeId, versionedStatistics -> versionedStatistics.setCloudNetVersion(activeId, "3.0.0"));
+        statistics.drainChangedIds();
+        statistics.drainChangedDownloads();
+
+        assertEquals(1, statistics.expireInstalls(2000));
+        assertEquals(0, statistics.expireInstalls(2000));
+        assertEquals(1, statistics.getActiveInstalls());
+
+        ExternalVersionedStatistics external = statistics.getVersionedStatistics("v3").orElseThrow().toExternal();
+        assertEquals(Map.of("3.0.0", 1L), external.getCloudNetVersions());
+        assertEquals(0, (int) external.getServerVersions().get(ServerVersion.V1_8));
+        assertEquals(1, external.getExpiredInstalls());
+        assertEquals(1, statistics.getExpiredInstalls(InternalStatistics.GLOBAL_SCOPE));
+        assertFalse(statistics.getVersionedStatistics("v3").orElseThrow().hasInstall(oldId));
+        assertFalse(statistics.getGlobalStatistics().hasInstall(oldId));
+        assertEquals(-1, statistics.getRegistry().indexOf("old"));
+        assertEquals(1, statistics.getRegistry().getInstalls());
+
+        assertEquals(Set.of("v3", InternalStatistics.GLOBAL_SCOPE), Set.copyOf(statistics.drainChangedDownloads()));
+        assertEquals(1, statistics.drainExpiredIds().size());
+        assertFalse(statistics.hasChanges());
+    }
+
+    @Test
+    public void testExpireInstallOfOneParent() {
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v2");
+        statistics.registerVersion("v3");
+
+        // the same install reported for both parents, but only recently for v3
+        CloudId oldId = new CloudId("v2", "install", null, 1000);
+        CloudId activeId = new CloudId("v3", "install", null, 5000);
+
+        statistics.acceptStatistics(oldId, versionedStatistics -> versionedStatistics.setCloudNetVersion(oldId, "2.1.0"));
+        statistics.acceptStatistics(activeId, versionedStatistics -> versionedStatistics.setCloudNetVersion(activeId, "3.0.0"));
+
+        assertEquals(1, statistics.expireInstalls(2000));
+        assertFalse(statistics.getVersionedStatistics("v2").orElseThrow().hasInstall(oldId));
+        assertTrue(statistics.getVersionedStatistics("v3").orElseThrow().hasInstall(activeId));
+        assertTrue(statistics.getGlobalStatistics().hasInstall(activeId));
+        assertEquals(0, statistics.getExpiredInstalls(InternalStatistics.GLOBAL_SCOPE));
+        assertEquals(1, statistics.getRegistry().getInstalls());
+    }
+
+}
@@ -0,0 +1,50 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
+
+import de.dytanic.cloudnet.common.JavaVersion;
+
+// not a unit test, run the main method to print the heap used by the statistics of many installs
+public class StatisticsFootprintBenchmark {
+
+    private static final String[] COUNTRIES = {"Germany", "France", "United States", "Poland", "Netherlands", "Austria"};
+    private static final String[] VERSIONS = {"3.3.0", "3.3.1", "3.4.0"};
+
+    public static void main(String[] args) {
+        int installs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        long before = usedMemory();
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+
+        for (int i = 0; i < installs; i++) {
+            CloudId id = new CloudId("v3", String.format("%08x-%04x", i, i % 65536), null);
+            statistics.acceptStatistics(id, versionedStatistics -> {
+                versionedStatistics.setCloudNetVersion(id, VERSIONS[id.hashCode() & 1]);
+                versionedStatistics.setJavaVersion(id, JavaVersion.JAVA_11);
+                versionedStatistics.setOperatingSystem(id, OperatingSystem.DEBIAN_10);
+                versionedStatistics.setCountry(id, COUNTRIES[Math.floorMod(id.hashCode(), COUNTRIES.length)]);
+                versionedStatistics.addServerVersion(id, ServerVersion.V1_8);
+                versionedStatistics.addServerVersion(id, ServerVersion.V1_15);
+            });
+        }
+        statistics.drainChangedIds();
+
+        long after = usedMemory();
+        long start = System.nanoTime();
+        statistics.toExternal();
+        long aggregation = System.nanoTime() - start;
+
+        System.out.printf("%d installs: %d KiB heap, %d bytes per install, toExternal %d us%n",
+                installs, (after - before) / 1024, (after - before) / installs, aggregation / 1000);
+        // keeps the statistics reachable until the memory has been measured
+        System.out.println(statistics.getActiveInstalls());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,59 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.internal;
+
+import de.dytanic.cloudnet.common.JavaVersion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// not a unit test, run the main method to print how many reports and downloads the statistics accept per second from many threads
+public class StatisticsIngestionBenchmark {
+
+    private static final String[] COUNTRIES = {"Germany", "France", "United States", "Poland", "Netherlands", "Austria"};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int installs = 100000;
+
+        InternalStatistics statistics = new InternalStatistics();
+        statistics.registerVersion("v3");
+
+        LongAdder reports = new LongAdder();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Collection<Future<?>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < threads; thread++) {
+            int threadId = thread;
+            futures.add(executorService.submit(() -> {
+                start.await();
+                // every thread reports for its own installs and all threads count downloads of the same version
+                for (int i = 0; System.nanoTime() < end; i++) {
+                    CloudId id = new CloudId("v3", threadId + "-" + i % (installs / threads), null);
+                    String country = COUNTRIES[i % COUNTRIES.length];
+                    statistics.increaseDownloads("v3");
+                    statistics.acceptStatistics(id, versionedStatistics -> {
+                        versionedStatistics.setJavaVersion(id, JavaVersion.JAVA_11);
+                        versionedStatistics.setCountry(id, country);
+                        versionedStatistics.addServerVersion(id, ServerVersion.V1_8);
+                    });
+                    reports.increment();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        System.out.printf("%d threads: %d reports per second, %d downloads counted%n",
+                threads, reports.sum() / seconds, statistics.getDownloads("v3"));
+    }
+
+}
@@ -0,0 +1,83 @@
+package eu.cloudnetservice.cloudnet.repository.database.statistics.timeseries;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void testResolutions() {
+        TimeSeries series = new TimeSeries();
+        long start = 1000 * DAY;
+
+        series.increment(start, 1);
+        series.increment(start + 30 * 1000, 1);
+        series.increment(start + MINUTE, 1);
+        series.increment(start + 2 * HOUR, 4);
+
+        TimeSeriesRange minutes = series.query(TimeSeriesResolution.MINUTE, start, start + 2 * MINUTE);
+        assertEquals(start, minutes.getStart());
+        assertArrayEquals(new long[]{2, 1, 0}, minutes.getValues());
+
+        TimeSeriesRange hours = series.query(TimeSeriesResolution.HOUR, start, start + 2 * HOUR);
+        assertArrayEquals(new long[]{3, 0, 4}, hours.getValues());
+
+        TimeSeriesRange days = series.query(TimeSeriesResolution.DAY, start - DAY, start);
+        assertEquals(start - DAY, days.getStart());
+        assertArrayEquals(new long[]{0, 7}, days.getValues());
+        assertEquals(7, days.getTotal());
+    }
+
+    @Test
+    public void testRetention() {
+        TimeSeries series = new TimeSeries();
+        long start = 1000 * DAY;
+        int buckets = TimeSeriesResolution.MINUTE.getBuckets();
+
+        series.increment(start, 5);
+        // the same slot of the ring buffer is reused after one retention period
+        series.increment(start + buckets * MINUTE, 1);
+
+        TimeSeriesRange range = series.query(TimeSeriesResolution.MINUTE, start, start + buckets * MINUTE);
+        assertEquals(buckets, range.getValues().length);
+        assertEquals(start + MINUTE, range.getStart());
+        assertEquals(1, range.getTotal());
+
+        // the old bucket is not returned after its slot has been reused
+        assertEquals(0, series.query(TimeSeriesResolution.MINUTE, start, start).getTotal());
+        assertEquals(6, series.query(TimeSeriesResolution.DAY, start, start + buckets * MINUTE).getTotal());
+    }
+
+    @Test
+    public void testNegativeTimes() {
+        TimeSeries series = new TimeSeries();
+
+        // times before the epoch map to valid slots of the ring buffer
+        series.increment(-MINUTE - 1, 1);
+        series.increment(-1, 1);
+        assertArrayEquals(new long[]{1, 1}, series.query(TimeSeriesResolution.MINUTE, -2 * MINUTE + 1, -1).getValues());
+        assertEquals(2, series.query(TimeSeriesResolution.DAY, -1, -1).getTotal());
+    }
+
+    @Test
+    public void testStoreLimit() {
+        TimeSeriesStore store = new TimeSeriesStore(2);
+
+        store.increment(TimeSeriesStore.seriesName(TimeSeriesStore.DOWNLOADS, "v3"), DAY);
+        store.increment(TimeSeriesStore.seriesName(TimeSeriesStore.DOWNLOADS, "v3", "CloudNet.zip"), DAY);
+        store.increment(TimeSeriesStore.seriesName(TimeSeriesStore.DOWNLOADS, "v2"), DAY);
+        store.increment("downloads:v3", DAY);
+
+        assertEquals(2, store.getSeriesNames().size());
+        assertNull(store.query("downloads:v2", TimeSeriesResolution.DAY, DAY, DAY));
+        assertEquals(2, store.query("downloads:v3", TimeSeriesResolution.DAY, DAY, DAY).getTotal());
+    }
+
+}
@@ -0,0 +1,150 @@
+package eu.cloudnetservice.cloudnet.repository.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HttpApiClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private HttpApiClient client;
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.start();
+        this.baseUrl = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.client = new HttpApiClient(Duration.ofSeconds(2), Duration.ofSeconds(2), 2, 10, 16);
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testConditionalRequests() throws IOException {
+        AtomicInteger fullResponses = new AtomicInteger();
+        this.server.createContext("/releases/latest", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullResponses.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            this.respond(exchange, 200, "{\"tag_name\":\"3.3.0\"}");
+        });
+
+        String url = this.baseUrl + "/releases/latest";
+        assertEquals("3.3.0", this.client.getJson(url).getAsJsonObject().get("tag_name").getAsString());
+        assertEquals("3.3.0", this.client.getJson(url).getAsJsonObject().get("tag_name").getAsString());
+        assertEquals("{\"tag_name\":\"3.3.0\"}", this.client.getString(url));
+
+        // only the first request transferred the body, the others have been revalidated
+        assertEquals(1, fullResponses.get());
+        assertEquals(2, this.client.getNotModifiedResponses());
+    }
+
+    @Test
+    public void testRetry() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+        this.server.createContext("/commits/3.3.0", exchange -> {
+            if (attempts.incrementAndGet() < 3) {
+                this.respond(exchange, 503, "unavailable");
+                return;
+            }
+            this.respond(exchange, 200, "{\"commit\":{\"message\":\"Release\"}}");
+        });
+
+        assertEquals("Release", this.client.getJson(this.baseUrl + "/commits/3.3.0")
+                .getAsJsonObject().getAsJsonObject("commit").get("message").getAsString());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+        this.server.createContext("/missing", exchange -> {
+            attempts.incrementAndGet();
+            this.respond(exchange, 404, "not found");
+        });
+        this.server.createContext("/broken", exchange -> this.respond(exchange, 500, "error"));
+
+        // client errors are not retried
+        HttpStatusException exception = assertThrows(HttpStatusException.class, () -> this.client.getString(this.baseUrl + "/missing"));
+        assertEquals(404, exception.getStatus());
+        assertEquals(1, attempts.get());
+
+        exception = assertThrows(HttpStatusException.class, () -> this.client.getString(this.baseUrl + "/broken"));
+        assertEquals(500, exception.getStatus());
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        this.server.createContext("/artifact/AutoUpdater.zip", exchange -> {
+            if (attempts.incrementAndGet() < 2) {
+                this.respond(exchange, 503, "unavailable");
+                return;
+            }
+            this.respond(exchange, 200, "zip content");
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        this.server.createContext("/artifact/stalled.jar", exchange -> {
+            // only a part of the announced content is sent, then the transfer stalls
+            exchange.sendResponseHeaders(200, 1024);
+            exchange.getResponseBody().write(new byte[16]);
+            exchange.getResponseBody().flush();
+            try {
+                release.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+
+        String content = this.client.download(this.baseUrl + "/artifact/AutoUpdater.zip", (inputStream, contentLength) -> {
+            assertEquals(11, contentLength);
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        });
+        assertEquals("zip content", content);
+        assertEquals(2, attempts.get());
+
+        HttpStatusException exception = assertThrows(HttpStatusException.class,
+                () -> this.client.download(this.baseUrl + "/missing.jar", (inputStream, contentLength) -> inputStream.readAllBytes()));
+        assertEquals(404, exception.getStatus());
+
+        try {
+            // a stalled transfer fails after the timeout instead of blocking forever
+            assertThrows(SocketTimeoutException.class,
+                    () -> this.client.download(this.baseUrl + "/artifact/stalled.jar", (inputStream, contentLength) -> inputStream.readAllBytes()));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+}
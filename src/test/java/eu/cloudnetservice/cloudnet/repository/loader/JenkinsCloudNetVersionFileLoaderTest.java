@@ -0,0 +1,93 @@
+package eu.cloudnetservice.cloudnet.repository.loader;
+
+import eu.cloudnetservice.cloudnet.repository.archiver.StagedDirectory;
+import eu.cloudnetservice.cloudnet.repository.http.HttpApiClient;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetParentVersion;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
+import eu.cloudnetservice.cloudnet.repository.version.VersionFileMappings;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class JenkinsCloudNetVersionFileLoaderTest {
+
+    @Test
+    public void testExtractVersionFiles() throws IOException {
+        Path base = Paths.get("target", "jenkins-" + UUID.randomUUID());
+        StagedDirectory stage = new StagedDirectory(base.resolve("versions").resolve("3.3.0"), base.resolve("releases"));
+        CloudNetParentVersion parentVersion = new CloudNetParentVersion(
+                "v3", "de.dytanic.cloudnet", "v3", null, null, null, null, Collections.emptyList(), "module.json", new VersionFileMappings()
+        );
+
+        Map<String, byte[]> autoUpdater = new LinkedHashMap<>();
+        autoUpdater.put("cloudnet.cnl", "include cloudnet".getBytes(StandardCharsets.UTF_8));
+        autoUpdater.put("cloudnet.jar", this.zip(Map.of("de/dytanic/cloudnet/Main.class", new byte[16])));
+        autoUpdater.put("modules/cloudnet-bridge.jar", this.zip(Map.of("module.json", "{}".getBytes(StandardCharsets.UTF_8))));
+
+        Map<String, CloudNetVersionFile> versionFiles = new HashMap<>();
+        for (CloudNetVersionFile versionFile : new JenkinsCloudNetVersionFileLoader(new HttpApiClient()).extractVersionFiles(
+                parentVersion, new VersionFileMappings(), stage, new ByteArrayInputStream(this.zip(autoUpdater)))) {
+            versionFiles.put(versionFile.getName(), versionFile);
+        }
+
+        assertEquals(3, versionFiles.size());
+        assertEquals(CloudNetVersionFile.FileType.CLOUDNET_CNL, versionFiles.get("cloudnet.cnl").getFileType());
+        assertEquals(CloudNetVersionFile.FileType.CLOUDNET_JAR, versionFiles.get("cloudnet.jar").getFileType());
+        assertEquals(CloudNetVersionFile.FileType.MODULE, versionFiles.get("cloudnet-bridge.jar").getFileType());
+
+        // the files are written flat into the stage together with their hash
+        byte[] module = autoUpdater.get("modules/cloudnet-bridge.jar");
+        assertTrue(stage.contains("cloudnet-bridge.jar"));
+        assertArrayEquals(module, Files.readAllBytes(stage.getFile("cloudnet-bridge.jar")));
+        assertEquals(module.length, versionFiles.get("cloudnet-bridge.jar").getSize());
+        assertEquals(stage.getSha256("cloudnet-bridge.jar"), versionFiles.get("cloudnet-bridge.jar").getSha256());
+
+        stage.discard();
+    }
+
+    @Test
+    public void testDuplicateFileNames() throws IOException {
+        Path base = Paths.get("target", "jenkins-" + UUID.randomUUID());
+        StagedDirectory stage = new StagedDirectory(base.resolve("versions").resolve("3.3.0"), base.resolve("releases"));
+        CloudNetParentVersion parentVersion = new CloudNetParentVersion(
+                "v3", "de.dytanic.cloudnet", "v3", null, null, null, null, Collections.emptyList(), "module.json", new VersionFileMappings()
+        );
+
+        Map<String, byte[]> autoUpdater = new LinkedHashMap<>();
+        autoUpdater.put("cloudnet.cnl", "include cloudnet".getBytes(StandardCharsets.UTF_8));
+        autoUpdater.put("launcher/cloudnet.cnl", "include launcher".getBytes(StandardCharsets.UTF_8));
+
+        // the second file with the same name is skipped instead of failing the whole release
+        Collection<CloudNetVersionFile> versionFiles = new JenkinsCloudNetVersionFileLoader(new HttpApiClient()).extractVersionFiles(
+                parentVersion, new VersionFileMappings(), stage, new ByteArrayInputStream(this.zip(autoUpdater)));
+
+        assertEquals(1, versionFiles.size());
+        assertArrayEquals(autoUpdater.get("cloudnet.cnl"), Files.readAllBytes(stage.getFile("cloudnet.cnl")));
+
+        stage.discard();
+    }
+
+    private byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOutputStream.write(entry.getValue());
+                zipOutputStream.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+}
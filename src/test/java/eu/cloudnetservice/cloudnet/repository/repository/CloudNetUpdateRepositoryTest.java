@@ -0,0 +1,97 @@
+package eu.cloudnetservice.cloudnet.repository.repository;
+
+import eu.cloudnetservice.cloudnet.repository.archiver.ReleaseArchiver;
+import eu.cloudnetservice.cloudnet.repository.github.GitHubCommitInfo;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersion;
+import eu.cloudnetservice.cloudnet.repository.version.CloudNetVersionFile;
+import eu.cloudnetservice.cloudnet.repository.version.VersionFileMappings;
+import io.javalin.Javalin;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class CloudNetUpdateRepositoryTest {
+
+    @Test
+    public void testRepositoryInformation() throws Exception {
+        String parentVersionName = "v3";
+        // the patches are stored in a temporary directory instead of the archive of the server
+        Path versionsDirectory = Paths.get("target", "repository-" + UUID.randomUUID());
+        ReleaseArchiver releaseArchiver = new ReleaseArchiver(null, null, null, null, null) {
+            @Override
+            public Path getDeltaDirectory(CloudNetVersion version) {
+                return versionsDirectory.resolve(version.getName()).resolve("deltas");
+            }
+        };
+
+        CloudNetVersionFile jar = new CloudNetVersionFile(null, "launcher.jar", CloudNetVersionFile.FileType.CLOUDNET_JAR, null);
+        jar.setSize(1024);
+        jar.setSha256("aa11");
+        CloudNetVersionFile module = new CloudNetVersionFile(null, "cloudnet-bridge.jar", CloudNetVersionFile.FileType.MODULE, null);
+        module.setSize(2048);
+        module.setSha256("bb22");
+        // archived before the hashes were recorded
+        CloudNetVersionFile cnl = new CloudNetVersionFile(null, "autoload.cnl", CloudNetVersionFile.FileType.CLOUDNET_CNL, null);
+        CloudNetVersionFile zip = new CloudNetVersionFile(null, "CloudNet.zip", CloudNetVersionFile.FileType.CLOUDNET_ZIP, null);
+        zip.setSha256("cc33");
+
+        CloudNetVersion version = new CloudNetVersion(parentVersionName, "3.3.0",
+                new GitHubCommitInfo(null, null, "Release", "https://api.github.com/repos/CloudNetService/CloudNet-v3/git/commits/abc123", 0),
+                null, new Date(1000), new CloudNetVersionFile[]{jar, module, cnl, zip}, new VersionFileMappings(), new HashMap<>());
+
+        CloudNetUpdateRepository repository = new CloudNetUpdateRepository(parentVersionName, null, releaseArchiver, null);
+        repository.installVersion(version);
+
+        Javalin javalin = Javalin.create(config -> config.showJavalinBanner = false).start(0);
+        try {
+            repository.init("/api/" + parentVersionName, javalin);
+            URI uri = URI.create("http://localhost:" + javalin.port() + "/api/" + parentVersionName + "/repository");
+
+            Properties properties = this.fetchProperties(uri);
+            assertEquals("3.3.0", properties.getProperty("app-version"));
+            assertEquals("abc123", properties.getProperty("git-commit"));
+            assertEquals("launcher.jar;cloudnet-bridge.jar;autoload.cnl", properties.getProperty("files"));
+
+            assertEquals("1024", properties.getProperty("file-size.launcher.jar"));
+            assertEquals("aa11", properties.getProperty("file-sha256.launcher.jar"));
+            assertEquals("2048", properties.getProperty("file-size.cloudnet-bridge.jar"));
+            assertEquals("bb22", properties.getProperty("file-sha256.cloudnet-bridge.jar"));
+            assertNull(properties.getProperty("file-size.autoload.cnl"));
+            assertNull(properties.getProperty("file-sha256.autoload.cnl"));
+            assertNull(properties.getProperty("file-sha256.CloudNet.zip"));
+            assertNull(properties.getProperty("delta-versions"));
+
+            // the patches of the staged version are stored in one directory per source version
+            Files.createDirectories(releaseArchiver.getDeltaPath(version, "3.2.0", jar).getParent());
+            Files.createDirectories(releaseArchiver.getDeltaPath(version, "3.1.0", jar).getParent());
+            repository.installVersion(version);
+
+            assertEquals("3.1.0;3.2.0", this.fetchProperties(uri).getProperty("delta-versions"));
+        } finally {
+            javalin.stop();
+        }
+    }
+
+    private Properties fetchProperties(URI uri) throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+
+        Properties properties = new Properties();
+        properties.load(new StringReader(response.body()));
+        return properties;
+    }
+
+}
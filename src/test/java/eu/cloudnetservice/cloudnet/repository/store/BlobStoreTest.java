@@ -0,0 +1,78 @@
+package eu.cloudnetservice.cloudnet.repository.store;
+
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
+import eu.cloudnetservice.cloudnet.repository.web.download.FileValidatorCache;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class BlobStoreTest {
+
+    @Test
+    public void testDeduplication() throws IOException {
+        Path base = Paths.get("target", "blobs-" + UUID.randomUUID());
+        BlobStore blobStore = new BlobStore(base.resolve("blobs"));
+        Assume.assumeTrue(blobStore.isSupported());
+        blobStore.init();
+
+        Path upload = this.write(base.resolve("upload.jar"), "module");
+        String sha256 = this.hash("module");
+        Path version = base.resolve("modules").resolve("1.0.jar");
+        Path latest = base.resolve("modules").resolve("latest.jar");
+        Files.createDirectories(version.getParent());
+
+        blobStore.place(upload, sha256, version);
+        blobStore.place(upload, sha256, latest);
+        Files.delete(upload);
+
+        // both files share the content of a single blob
+        assertTrue(Files.isSameFile(version, latest));
+        assertTrue(Files.isSameFile(version, blobStore.getBlobPath(sha256)));
+        assertEquals(sha256, blobStore.findHash(latest));
+        assertEquals("\"" + sha256 + "\"", new FileValidatorCache(blobStore).get(latest).getEntityTag());
+
+        // the blob is kept as long as one of the files exists
+        Files.delete(version);
+        assertEquals(0, blobStore.collectGarbage());
+        Files.delete(latest);
+        assertEquals(1, blobStore.collectGarbage());
+        assertFalse(Files.exists(blobStore.getBlobPath(sha256)));
+    }
+
+    @Test
+    public void testImportDirectory() throws IOException {
+        Path base = Paths.get("target", "blobs-" + UUID.randomUUID());
+        BlobStore blobStore = new BlobStore(base.resolve("blobs"));
+        Assume.assumeTrue(blobStore.isSupported());
+        blobStore.init();
+
+        Path first = this.write(base.resolve("versions").resolve("3.3.0").resolve("driver.jar"), "driver");
+        Path second = this.write(base.resolve("versions").resolve("3.4.0").resolve("driver.jar"), "driver");
+        Path changed = this.write(base.resolve("versions").resolve("3.4.0").resolve("cloudnet.jar"), "cloudnet");
+
+        assertEquals(3, blobStore.importDirectory(base.resolve("versions")));
+        assertTrue(Files.isSameFile(first, second));
+        assertEquals("cloudnet", Files.readString(changed));
+
+        // linked files are not imported again
+        assertEquals(0, blobStore.importDirectory(base.resolve("versions")));
+    }
+
+    private Path write(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+
+    private String hash(String content) {
+        return StringUtils.toHex(FileValidatorCache.newDigest().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
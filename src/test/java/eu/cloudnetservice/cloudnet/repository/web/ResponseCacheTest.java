@@ -0,0 +1,89 @@
+package eu.cloudnetservice.cloudnet.repository.web;
+
+import de.dytanic.cloudnet.common.document.gson.JsonDocument;
+import eu.cloudnetservice.cloudnet.repository.database.DatabaseTable;
+import io.javalin.Javalin;
+import io.javalin.plugin.json.JavalinJson;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void testResponseCache() throws Exception {
+        JavalinJson.setToJsonMapper(JsonDocument.GSON::toJson);
+        ResponseCache cache = new ResponseCache(2);
+        AtomicInteger serializations = new AtomicInteger();
+        List<String> versions = new ArrayList<>(Collections.nCopies(200, "3.3.0-RELEASE"));
+
+        Javalin javalin = Javalin.create(config -> config.showJavalinBanner = false).start(0);
+        try {
+            javalin.get("/api/versions/:parent", context -> cache.sendJson(context, DatabaseTable.VERSIONS, context.pathParam("parent"), () -> {
+                serializations.incrementAndGet();
+                return new ArrayList<>(versions);
+            }));
+
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://localhost:" + javalin.port() + "/api/versions/v3");
+
+            HttpResponse<byte[]> plain = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, plain.statusCode());
+            assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+
+            HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+            assertTrue(gzip.body().length < plain.body().length);
+            assertEquals(new String(plain.body(), StandardCharsets.UTF_8), this.decompress(gzip.body()));
+
+            String entityTag = plain.headers().firstValue("ETag").orElseThrow();
+            HttpResponse<byte[]> notModified = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", entityTag).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(304, notModified.statusCode());
+
+            assertEquals(1, serializations.get());
+            assertEquals(2, cache.getHits());
+
+            // changes of other parent versions or tables keep the response
+            cache.invalidate(DatabaseTable.VERSIONS, "v2");
+            cache.invalidate(DatabaseTable.FAQ, null);
+            assertEquals(1, cache.size());
+
+            versions.add("3.4.0-RELEASE");
+            cache.invalidate(DatabaseTable.VERSIONS, "V3");
+            HttpResponse<String> changed = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+            assertTrue(changed.body().contains("3.4.0-RELEASE"));
+            assertEquals(2, serializations.get());
+
+            // unknown paths evict the least recently used responses instead of disabling the cache
+            for (int i = 0; i < 5; i++) {
+                client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + javalin.port() + "/api/versions/junk-" + i)).build(), HttpResponse.BodyHandlers.discarding());
+            }
+            assertEquals(2, cache.size());
+            client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+            client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+            assertEquals(8, serializations.get());
+        } finally {
+            javalin.stop();
+        }
+    }
+
+    private String decompress(byte[] content) throws IOException {
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
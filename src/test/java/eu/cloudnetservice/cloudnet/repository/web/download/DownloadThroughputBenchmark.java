@@ -0,0 +1,73 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import io.javalin.Javalin;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// not a unit test, run the main method to compare the throughput of the download paths with the input stream that was used before
+public class DownloadThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int fileSize = args.length > 0 ? Integer.parseInt(args[0]) : 16 * 1024 * 1024;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        Path path = Paths.get("target", "downloads-" + UUID.randomUUID(), "CloudNet.zip");
+        Files.createDirectories(path.getParent());
+        byte[] content = new byte[fileSize];
+        new Random(0).nextBytes(content);
+        Files.write(path, content);
+
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        FileDownloadSender channelSender = new FileDownloadSender(validatorCache, new HotFileCache(0, 0));
+        FileDownloadSender cachedSender = new FileDownloadSender(validatorCache, new HotFileCache(2L * fileSize, fileSize));
+
+        Javalin javalin = Javalin.create(config -> config.showJavalinBanner = false).start(0);
+        try {
+            javalin.get("/stream", context -> context.contentType("application/zip").result(Files.newInputStream(path)));
+            javalin.get("/channel", context -> channelSender.send(context, path, "application/zip"));
+            javalin.get("/cached", context -> cachedSender.send(context, path, "application/zip"));
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            for (String route : new String[]{"stream", "channel", "cached"}) {
+                URI uri = URI.create("http://localhost:" + javalin.port() + "/" + route);
+                // the first round only warms up the jit, the connections and the caches
+                download(client, uri, concurrency, concurrency);
+
+                long start = System.nanoTime();
+                download(client, uri, requests, concurrency);
+                long time = System.nanoTime() - start;
+
+                System.out.printf("%s: %d MiB/s%n", route, (long) fileSize * requests * 1000000000L / time / 1024 / 1024);
+            }
+        } finally {
+            javalin.stop();
+        }
+    }
+
+    private static void download(HttpClient client, URI uri, int requests, int concurrency) throws Exception {
+        for (int sent = 0; sent < requests; sent += concurrency) {
+            List<CompletableFuture<HttpResponse<Void>>> futures = new ArrayList<>();
+            for (int i = 0; i < Math.min(concurrency, requests - sent); i++) {
+                futures.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> future : futures) {
+                if (future.get().statusCode() != 200) {
+                    throw new IllegalStateException("Download of " + uri + " failed with status " + future.get().statusCode());
+                }
+            }
+        }
+    }
+
+}
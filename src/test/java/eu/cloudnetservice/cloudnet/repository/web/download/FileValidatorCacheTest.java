@@ -0,0 +1,43 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import eu.cloudnetservice.cloudnet.repository.util.StringUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FileValidatorCacheTest {
+
+    @Test
+    public void testBackgroundHashing() throws Exception {
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        Path path = Paths.get("target", "validators-" + UUID.randomUUID(), "CloudNet.jar");
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "CloudNet v3");
+
+        // the first request gets a validator without reading the file, the hash is calculated in the background
+        FileValidator weakValidator = validatorCache.get(path);
+        assertTrue(weakValidator.getEntityTag().startsWith("W/\""));
+
+        long timeout = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        FileValidator validator;
+        while ((validator = validatorCache.get(path)).isWeak()) {
+            assertTrue(System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+
+        String sha256 = StringUtils.toHex(FileValidatorCache.newDigest().digest("CloudNet v3".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("\"" + sha256 + "\"", validator.getEntityTag());
+        assertTrue(weakValidator.isUpgradedBy(validator));
+
+        assertThrows(IOException.class, () -> validatorCache.get(path.resolveSibling("missing.jar")));
+    }
+
+}
@@ -0,0 +1,133 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HotFileCacheTest {
+
+    @Test
+    public void testHits() throws IOException {
+        HotFileCache cache = new HotFileCache(1024, 1024);
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        Path path = this.createFile("CloudNet.jar", "CloudNet v3");
+        FileValidator validator = validatorCache.get(path);
+
+        assertEquals("CloudNet v3", this.toString(cache.get(path, validator)));
+        assertEquals("CloudNet v3", this.toString(cache.get(path, validator)));
+
+        Map<String, Object> statistics = cache.getStatistics();
+        assertEquals(1L, statistics.get("hits"));
+        assertEquals(1L, statistics.get("misses"));
+        assertEquals(11L, statistics.get("bytes"));
+    }
+
+    @Test
+    public void testInvalidation() throws IOException {
+        HotFileCache cache = new HotFileCache(1024, 1024);
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        validatorCache.addInvalidationListener(cache::invalidate);
+
+        Path path = this.createFile("CloudNet.jar", "CloudNet v3");
+        cache.get(path, validatorCache.get(path));
+
+        // the content of the rewritten file is loaded again because it has another validator
+        Files.writeString(path, "CloudNet v3.4");
+        validatorCache.register(path, new byte[32]);
+        assertEquals(0L, cache.getStatistics().get("bytes"));
+        assertEquals("CloudNet v3.4", this.toString(cache.get(path, validatorCache.get(path))));
+
+        validatorCache.invalidateDirectory(path.getParent());
+        assertEquals(0, cache.getStatistics().get("entries"));
+    }
+
+    @Test
+    public void testAdmission() throws IOException {
+        HotFileCache cache = new HotFileCache(16, 16);
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        Path popular = this.createFile("popular.jar", "0123456789");
+        Path rare = this.createFile("rare.jar", "9876543210");
+        Path large = this.createFile("large.jar", "01234567890123456789");
+
+        for (int i = 0; i < 5; i++) {
+            cache.get(popular, validatorCache.get(popular));
+        }
+
+        // a file that has been requested less often doesn't replace the popular one
+        assertNull(cache.get(rare, validatorCache.get(rare)));
+        assertNull(cache.get(large, validatorCache.get(large)));
+        for (int i = 0; i < 10; i++) {
+            cache.get(rare, validatorCache.get(rare));
+        }
+
+        Map<String, Object> statistics = cache.getStatistics();
+        assertEquals(1, statistics.get("entries"));
+        assertEquals(1L, statistics.get("evictions"));
+        assertTrue((long) statistics.get("bytes") <= 16);
+    }
+
+    @Test
+    public void testConcurrentHits() throws Exception {
+        HotFileCache cache = new HotFileCache(1024, 1024);
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        Path launcher = this.createFile("launcher.jar", "launcher");
+        Path driver = this.createFile("driver.jar", "driver");
+        FileValidator launcherValidator = validatorCache.get(launcher);
+        FileValidator driverValidator = validatorCache.get(driver);
+
+        int threads = 8;
+        int requestsPerThread = 10000;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        Collection<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < requestsPerThread; i++) {
+                    ByteBuffer buffer = i % 2 == 0 ? cache.get(launcher, launcherValidator) : cache.get(driver, driverValidator);
+                    // a request which comes in while another one loads the file is served from the disk
+                    if (buffer != null) {
+                        assertEquals(i % 2 == 0 ? "launcher" : "driver", this.toString(buffer));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        Map<String, Object> statistics = cache.getStatistics();
+        assertEquals(2, statistics.get("entries"));
+        assertEquals(14L, statistics.get("bytes"));
+        assertEquals((long) threads * requestsPerThread, (long) statistics.get("hits") + (long) statistics.get("misses"));
+    }
+
+    private Path createFile(String name, String content) throws IOException {
+        Path path = Paths.get("target", "hot-" + UUID.randomUUID(), name);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+        return path;
+    }
+
+    private String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
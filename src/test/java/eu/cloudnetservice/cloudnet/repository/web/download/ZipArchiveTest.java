@@ -0,0 +1,119 @@
+package eu.cloudnetservice.cloudnet.repository.web.download;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ZipArchiveTest {
+
+    private static final String INDEX = "<html>" + "<p>CloudNet</p>".repeat(200) + "</html>";
+    private static final String STYLE = "body { color: black; }";
+
+    @Test
+    public void testEntries() throws IOException {
+        Path path = this.createZip("3.3.0");
+
+        try (ZipArchive archive = ZipArchive.open(path)) {
+            assertEquals(2, archive.size());
+            assertNull(archive.getEntry("missing.html"));
+
+            ZipArchive.Entry style = archive.getEntry("stylesheet.css");
+            assertEquals(ZipArchive.STORED, style.getMethod());
+            assertEquals(STYLE, this.toString(archive.readData(style)));
+
+            // the deflated data of the entry becomes a valid gzip stream with a header and the crc and size as trailer
+            ZipArchive.Entry index = archive.getEntry("de/dytanic/index.html");
+            assertEquals(ZipArchive.DEFLATED, index.getMethod());
+            assertTrue(index.getCompressedSize() < index.getSize());
+
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+            gzip.write(new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+            ByteBuffer data = archive.readData(index);
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            gzip.write(bytes);
+            gzip.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(index.getCrc()).putInt((int) index.getSize()).array());
+
+            try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray()))) {
+                assertEquals(INDEX, new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArchive() throws IOException {
+        Path path = Paths.get("target", "zip-" + UUID.randomUUID() + ".zip");
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "no zip file");
+
+        assertThrows(IOException.class, () -> ZipArchive.open(path));
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        Path path = this.createZip("3.3.0");
+        FileValidatorCache validatorCache = new FileValidatorCache();
+        ZipArchiveCache cache = new ZipArchiveCache(validatorCache, 1);
+
+        ZipArchiveCache.CachedArchive first = cache.acquire(path);
+        ZipArchiveCache.CachedArchive second = cache.acquire(path);
+        assertSame(first.getArchive(), second.getArchive());
+        second.release();
+
+        // a replaced file gets a new validator and therefore is opened again, the old archive stays usable until it is released
+        validatorCache.invalidate(path);
+        ZipArchiveCache.CachedArchive replaced = cache.acquire(path);
+        assertNotSame(first.getArchive(), replaced.getArchive());
+        assertEquals(STYLE, this.toString(first.getArchive().readData(first.getArchive().getEntry("stylesheet.css"))));
+        first.release();
+        replaced.release();
+
+        assertNull(cache.acquire(path.resolveSibling("missing.zip")));
+    }
+
+    private Path createZip(String version) throws IOException {
+        Path path = Paths.get("target", "zip-" + UUID.randomUUID(), version + ".zip");
+        Files.createDirectories(path.getParent());
+
+        byte[] style = STYLE.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(style);
+
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(path))) {
+            outputStream.putNextEntry(new ZipEntry("de/dytanic/index.html"));
+            outputStream.write(INDEX.getBytes(StandardCharsets.UTF_8));
+            outputStream.closeEntry();
+
+            ZipEntry entry = new ZipEntry("stylesheet.css");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(style.length);
+            entry.setCrc(crc.getValue());
+            outputStream.putNextEntry(entry);
+            outputStream.write(style);
+            outputStream.closeEntry();
+        }
+        return path;
+    }
+
+    private String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
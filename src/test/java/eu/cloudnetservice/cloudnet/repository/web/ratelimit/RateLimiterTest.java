@@ -0,0 +1,83 @@
+package eu.cloudnetservice.cloudnet.repository.web.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    public void testBurstAndRefill() {
+        RateLimiter rateLimiter = new RateLimiter(3, TimeUnit.MINUTES);
+
+        assertEquals(0, rateLimiter.tryAcquire("a", 0));
+        assertEquals(0, rateLimiter.tryAcquire("a", 0));
+        assertEquals(0, rateLimiter.tryAcquire("a", 0));
+        assertEquals(MINUTE / 3, rateLimiter.tryAcquire("a", 0));
+
+        // other keys have their own bucket
+        assertEquals(0, rateLimiter.tryAcquire("b", 0));
+
+        // one request is available again after a third of the minute, not all three
+        assertEquals(0, rateLimiter.tryAcquire("a", MINUTE / 3));
+        assertNotEquals(0, rateLimiter.tryAcquire("a", MINUTE / 3));
+
+        assertEquals(0, rateLimiter.tryAcquire("a", 2 * MINUTE));
+        assertEquals(0, rateLimiter.tryAcquire("a", 2 * MINUTE));
+        assertEquals(0, rateLimiter.tryAcquire("a", 2 * MINUTE));
+        assertNotEquals(0, rateLimiter.tryAcquire("a", 2 * MINUTE));
+    }
+
+    @Test
+    public void testRetryAfter() {
+        RateLimiter rateLimiter = new RateLimiter(2, TimeUnit.MINUTES);
+
+        // checking the remaining requests doesn't use them up
+        assertEquals(0, rateLimiter.getRetryAfter("a", 0));
+        assertEquals(0, rateLimiter.tryAcquire("a", 0));
+        assertEquals(0, rateLimiter.getRetryAfter("a", 0));
+        assertEquals(0, rateLimiter.tryAcquire("a", 0));
+        assertEquals(MINUTE / 2, rateLimiter.getRetryAfter("a", 0));
+        assertEquals(0, rateLimiter.getRetryAfter("a", MINUTE / 2));
+    }
+
+    @Test
+    public void testBlock() {
+        RateLimiter rateLimiter = new RateLimiter(2, TimeUnit.MINUTES);
+
+        rateLimiter.block("a");
+        assertFalse(rateLimiter.tryAcquire("a"));
+    }
+
+    @Test
+    public void testMaxKeys() {
+        RateLimiter rateLimiter = new RateLimiter(1, TimeUnit.MINUTES, 100);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("key-" + i, 0));
+        }
+        assertEquals(100, rateLimiter.size());
+
+        // the most recently used keys are kept
+        assertNotEquals(0, rateLimiter.tryAcquire("key-999", 0));
+        assertEquals(0, rateLimiter.tryAcquire("key-0", 0));
+    }
+
+    @Test
+    public void testExpiredKeysAreRemoved() {
+        RateLimiter rateLimiter = new RateLimiter(1, TimeUnit.MINUTES);
+
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.tryAcquire("key-" + i, 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.tryAcquire("other-" + i, 2 * MINUTE);
+        }
+        assertEquals(10, rateLimiter.size());
+    }
+
+}